@@ -0,0 +1,283 @@
+/**
+ * @file ShopBenchmark.java
+ * @brief 电子商城核心路径的 JMH 基准测试
+ * @package jmh.com.bench
+ */
+package jmh.com.bench;
+
+import main.com.model.Good;
+import main.com.service.GoodService;
+import main.com.service.SalesAnalytics;
+import main.com.service.SearchService;
+import main.com.service.Session;
+import main.com.service.SessionManager;
+import main.com.service.UserService;
+import main.com.util.PasswordHasher;
+import main.com.util.TxtUtil;
+import main.com.util.UserUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import test.com.bench.DatasetGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class ShopBenchmark
+ * @brief 电子商城核心路径的微基准测试
+ * @details 每种数据规模（默认 1k、100k、1M 行）由 rows 参数给出。JMH 为每个基准和每个参数组合启动独立的 JVM，
+ *          业务类在类初始化时读取数据目录，因此数据集在该 JVM 的 Setup 中生成，并在首次访问业务类之前通过 shop.data.dir 指定。
+ *          用法：mvn -Pjmh test-compile exec:exec -Djmh.args="-p rows=1000,100000 ShopBenchmark.getGoodById"；
+ *          加上 -jvmArgsAppend -Dshop.goods.storage=mapped 在二进制商品目录上运行
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dshop.goods.watch=false")
+public class ShopBenchmark {
+    /** @brief validateUser 基准中反复登录的用户数，Setup 中各登录一次，测量的是重复登录 */
+    private static final int LOGGED_IN_USERS = 16;
+    /** @brief 搜索基准使用的查询 */
+    private static final String[] QUERIES = {"电子产品", "商品1", "描述 图书", "家居 商品42", "美"};
+
+    /**
+     * @class Dataset
+     * @brief 一个 JVM 内所有基准共享的数据集
+     */
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        /** @brief 商品、用户和购买记录各自的行数 */
+        @Param({"1000", "100000", "1000000"})
+        public int rows;
+
+        /** @brief 有购买记录的用户数 */
+        int users;
+        /** @brief 已登录过、密码已升级为散列的用户数 */
+        int loggedIn;
+        /** @brief 数据集目录 */
+        private File dir;
+        /** @brief 原来的标准输出 */
+        private PrintStream out;
+
+        /**
+         * @brief 生成数据集并初始化商品目录
+         * @throws IOException 生成数据集失败时抛出
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("shop-bench-" + rows).toFile();
+            DatasetGenerator.generate(dir, rows);
+            System.setProperty("shop.data.dir", dir.getPath());
+            out = System.out;
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    // 丢弃业务代码的控制台输出
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    // 丢弃业务代码的控制台输出
+                }
+            }));
+            TxtUtil.initialize();
+            users = DatasetGenerator.purchasingUsers(rows);
+            loggedIn = Math.min(rows, LOGGED_IN_USERS);
+            for (int user = 0; user < loggedIn; user++) {
+                UserUtil.validateUser(DatasetGenerator.username(user), DatasetGenerator.password(user)); // 首次登录把明文密码升级为散列
+            }
+        }
+
+        /**
+         * @brief 恢复标准输出并删除数据集
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.setOut(out);
+            DatasetGenerator.delete(dir);
+        }
+
+        /**
+         * @brief 随机取一个商品
+         * @return 数据集中的商品
+         */
+        Good randomGood() {
+            return TxtUtil.getGoodById(DatasetGenerator.goodId(ThreadLocalRandom.current().nextInt(rows)));
+        }
+    }
+
+    /**
+     * @class Shopper
+     * @brief 每个基准线程一个已登录的会话
+     */
+    @State(Scope.Thread)
+    public static class Shopper {
+        /** @brief 会话 */
+        Session session;
+
+        /**
+         * @brief 打开会话
+         * @param dataset 数据集，保证商品目录先于会话初始化
+         */
+        @Setup(Level.Trial)
+        public void setUp(Dataset dataset) {
+            session = SessionManager.shared().open(DatasetGenerator.username(0));
+        }
+
+        /**
+         * @brief 关闭会话，释放购物车的库存预留
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            SessionManager.shared().close(session.getId());
+        }
+    }
+
+    /**
+     * @brief 重新加载商品快照并重放日志
+     * @param dataset 数据集
+     * @return 第一个商品的库存
+     */
+    @Benchmark
+    public int loadGoods(Dataset dataset) {
+        TxtUtil.loadGoods();
+        return TxtUtil.getGoodById(DatasetGenerator.goodId(0)).getStock();
+    }
+
+    /**
+     * @brief 按ID查找商品
+     * @param dataset 数据集
+     * @return 商品库存
+     */
+    @Benchmark
+    public int getGoodById(Dataset dataset) {
+        return dataset.randomGood().getStock();
+    }
+
+    /**
+     * @brief 获取商品列表
+     * @param dataset 数据集
+     * @return 商品数
+     */
+    @Benchmark
+    public int getGoodsList(Dataset dataset) {
+        return TxtUtil.getGoodsList().size();
+    }
+
+    /**
+     * @brief 从随机位置翻一页商品
+     * @param dataset 数据集
+     * @return 本页的商品数
+     */
+    @Benchmark
+    public int catalogPage(Dataset dataset) {
+        Good good = dataset.randomGood();
+        return TxtUtil.getCatalogSnapshot().page(null, good.getPrice() + ":" + good.getId(), 20).getGoods().size();
+    }
+
+    /**
+     * @brief 修改一个商品
+     * @param dataset 数据集
+     */
+    @Benchmark
+    public void updateGoodInTxt(Dataset dataset) {
+        Good good = dataset.randomGood();
+        TxtUtil.updateGoodInTxt(new Good(good.getId(), good.getName(), good.getDescription(),
+                good.getPrice(), good.getStock(), good.getCategory()));
+    }
+
+    /**
+     * @brief 已登录过的用户再次登录
+     * @param dataset 数据集
+     * @return 登录是否成功
+     */
+    @Benchmark
+    public boolean validateUser(Dataset dataset) {
+        int user = ThreadLocalRandom.current().nextInt(dataset.loggedIn);
+        return UserUtil.validateUser(DatasetGenerator.username(user), DatasetGenerator.password(user));
+    }
+
+    /**
+     * @brief 计算一个密码散列
+     * @param dataset 数据集
+     * @return 散列
+     */
+    @Benchmark
+    public String passwordHash(Dataset dataset) {
+        return PasswordHasher.hash(DatasetGenerator.password(ThreadLocalRandom.current().nextInt(dataset.rows)));
+    }
+
+    /**
+     * @brief 查询一个用户的购买记录
+     * @param dataset 数据集
+     * @return 购买记录
+     */
+    @Benchmark
+    public List<String> getPurchasedGoodsByUser(Dataset dataset) {
+        return TxtUtil.getPurchasedGoodsByUser(DatasetGenerator.username(ThreadLocalRandom.current().nextInt(dataset.users)));
+    }
+
+    /**
+     * @brief 读取全部购买记录并生成四种销售报表
+     * @param dataset 数据集
+     * @return 各报表的行数之和
+     * @throws IOException 读取购买记录失败时抛出
+     */
+    @Benchmark
+    public int salesReports(Dataset dataset) throws IOException {
+        SalesAnalytics analytics = SalesAnalytics.load();
+        return analytics.topSellers(10).size() + analytics.revenueByCategory().size()
+                + analytics.topSpenders(10).size() + analytics.salesByDay().size();
+    }
+
+    /**
+     * @brief 全文搜索商品
+     * @param dataset 数据集
+     * @return 搜索结果
+     */
+    @Benchmark
+    public List<Good> search(Dataset dataset) {
+        return SearchService.search(QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)], 20);
+    }
+
+    /**
+     * @brief 按类别和价格区间筛选商品
+     * @param dataset 数据集
+     * @return 筛选结果
+     */
+    @Benchmark
+    public List<Good> facetQuery(Dataset dataset) {
+        double min = ThreadLocalRandom.current().nextInt(9000);
+        return GoodService.facets().query("电子产品", min, min + 400, true, 20);
+    }
+
+    /**
+     * @brief 加入购物车并结算
+     * @param dataset 数据集
+     * @param shopper 当前线程的会话
+     * @return 订单是否提交成功
+     */
+    @Benchmark
+    public boolean checkout(Dataset dataset, Shopper shopper) {
+        UserService.addToCart(shopper.session, DatasetGenerator.goodId(ThreadLocalRandom.current().nextInt(dataset.rows)), 1);
+        return UserService.placeOrder(shopper.session);
+    }
+}
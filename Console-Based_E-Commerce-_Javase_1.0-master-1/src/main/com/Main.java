@@ -7,9 +7,11 @@ package main.com;
 
 import main.com.model.Good;
 import main.com.service.AdminService;
+import main.com.service.CatalogImportService;
 import main.com.service.GoodService;
+import main.com.service.SearchService;
 import main.com.service.UserService;
-import main.com.util.TxtUtil;
+import main.com.storage.Storage;
 
 import java.util.List;
 import java.util.Scanner;
@@ -33,12 +35,22 @@ public class Main {
     /** @brief 商品服务对象 */
     private static GoodService goodService = new GoodService();
 
+    /** @brief 商品搜索服务对象 */
+    private static SearchService searchService = new SearchService();
+
+    /** @brief 商品批量导入导出服务对象 */
+    private static CatalogImportService catalogImportService = new CatalogImportService();
+
     /**
      * @brief 主程序入口方法
      * @param args 命令行参数
      * @details 显示主菜单，提供用户注册、登录、管理员登录等功能
      */
     public static void main(String[] args) {
+        int recovered = Storage.catalog().initialize(); // 加载商品快照并重放商品变更日志
+        if (recovered > 0) {
+            System.out.println("已恢复 " + recovered + " 个未完成的订单");
+        }
         while (true) {
             System.out.println("欢迎来到电子商城系统");
             System.out.println("1. 注册");
@@ -92,14 +104,16 @@ public class Main {
             System.out.println("3. 添加商品至购物车");
             System.out.println("4. 修改购物车商品数量");
             System.out.println("5. 结算");
-            System.out.println("6. 用户退出");
+            System.out.println("6. 搜索商品");
+            System.out.println("7. 按类别和价格筛选商品");
+            System.out.println("8. 用户退出");
             System.out.print("请选择操作: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // 清除换行符
 
             switch (choice) {
                 case 1:
-                    GoodService.viewGoods(); // 查看所有商品
+                    goodService.browseGoods(); // 分页浏览商品
                     break;
                 case 2:
                     userService.viewCart(); // 查看购物车
@@ -125,6 +139,13 @@ public class Main {
                     userService.checkout(); // 结算
                     break;
                 case 6:
+                    searchService.searchGoods(); // 按关键词搜索商品
+                    break;
+                case 7:
+                    goodService.filterGoods(); // 按类别和价格区间筛选
+                    break;
+                case 8:
+                    userService.logout(); // 关闭会话，释放未结算商品的库存预留
                     return; // 返回主菜单
                 default:
                     System.out.println("无效的选择，请重新输入。");
@@ -145,7 +166,11 @@ public class Main {
             System.out.println("4. 查看商品列表");
             System.out.println("5. 查看用户列表");
             System.out.println("6. 删除用户");
-            System.out.println("7. 退出");
+            System.out.println("7. 批量导入商品");
+            System.out.println("8. 导出商品");
+            System.out.println("9. 销售报表");
+            System.out.println("10. 实时销售指标");
+            System.out.println("11. 退出");
             System.out.print("请选择操作: ");
             int choice = scanner.nextInt();
             scanner.nextLine(); // 清除换行符
@@ -161,7 +186,7 @@ public class Main {
                     goodService.deleteGood(); // 调用删除商品的方法
                     break;
                 case 4:
-                    goodService.viewGoods(); // 调用查看商品列表的方法
+                    goodService.browseGoods(); // 分页浏览商品列表
                     break;
                 case 5:
                     adminService.viewUsers(); // 有一个方法查看用户列表
@@ -170,6 +195,18 @@ public class Main {
                     adminService.deleteUser(); // 调用删除用户的方法
                     break;
                 case 7:
+                    catalogImportService.importGoods(); // 从 CSV 文件批量导入商品
+                    break;
+                case 8:
+                    catalogImportService.exportGoods(); // 导出商品目录
+                    break;
+                case 9:
+                    adminService.viewSalesReports(); // 销量、类别销售额、用户消费和每日趋势报表
+                    break;
+                case 10:
+                    adminService.viewSalesMetrics(); // 结算时增量更新的实时指标
+                    break;
+                case 11:
                     return; // 返回主菜单
                 default:
                     System.out.println("无效的选择，请重新输入。");
@@ -191,6 +228,7 @@ public class Main {
  * │ │ ├── service # 服务类，处理业务逻辑
  * │ │ │ ├── AdminService
  * │ │ │ ├── GoodService
+ * │ │ │ ├── SessionManager
  * │ │ │ └── UserService
  * │ │ └── util # 工具类
  * │ │ │ ├── AdminUtil
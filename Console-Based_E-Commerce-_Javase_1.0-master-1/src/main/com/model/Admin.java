@@ -5,8 +5,8 @@
  */
 package main.com.model;
 
-import main.com.util.AdminUtil;
-import main.com.util.TxtUtil;
+import main.com.service.GoodService;
+import main.com.storage.Storage;
 
 import java.util.List;
 import java.util.Scanner;
@@ -61,7 +61,7 @@ public class Admin {
         System.out.print("请输入管理员密码: ");
         String password = scanner.nextLine();
 
-        return AdminUtil.validateAdmin(username, password);
+        return Storage.admins().validate(username, password);
     }
 
     /**
@@ -83,7 +83,7 @@ public class Admin {
         String category = scanner.nextLine();
 
         Good good = new Good(id, name, description, price, stock, category);
-        TxtUtil.addGoodToTxt(good); // 假设有一个方法将商品添加到TXT文件
+        Storage.catalog().add(good); // 假设有一个方法将商品添加到TXT文件
         System.out.println("商品添加成功！");
     }
 
@@ -94,7 +94,7 @@ public class Admin {
     public void modifyGood() {
         System.out.print("请输入要修改的商品ID: ");
         String id = scanner.nextLine();
-        Good good = TxtUtil.getGoodById(id); // 假设有一个方法根据ID获取商品
+        Good good = Storage.catalog().findById(id); // 假设有一个方法根据ID获取商品
         if (good != null) {
             System.out.print("请输入新的商品名称 (当前: " + good.getName() + "): ");
             String name = scanner.nextLine();
@@ -108,7 +108,7 @@ public class Admin {
             String category = scanner.nextLine();
 
             good = new Good(id, name, description, price, stock, category);
-            TxtUtil.updateGoodInTxt(good); // 假设有一个方法更新商品信息
+            Storage.catalog().update(good); // 假设有一个方法更新商品信息
             System.out.println("商品修改成功！");
         } else {
             System.out.println("未找到该商品。");
@@ -122,26 +122,16 @@ public class Admin {
     public void deleteGood() {
         System.out.print("请输入要删除的商品ID: ");
         String id = scanner.nextLine();
-        TxtUtil.deleteGoodFromTxt(id); // 假设有一个方法从TXT文件中删除商品
+        Storage.catalog().delete(id); // 假设有一个方法从TXT文件中删除商品
         System.out.println("商品删除成功！");
     }
 
     /**
      * @brief 查看所有商品方法
-     * @details 加载并显示所有商品信息
+     * @details 显示当前目录快照中价格最低的一页商品
      */
     public static void viewGoods() {
-        // 确保商品数据已经加载
-        TxtUtil.loadGoods(); // 重新加载商品列表
-
-        List<Good> goods = TxtUtil.getGoodsList(); // 获取静态商品列表
-        if (goods.isEmpty()) {
-            System.out.println("当前没有商品信息。");
-        } else {
-            for (Good good : goods) {
-                System.out.println(good);
-            }
-        }
+        GoodService.viewGoods(); // 分页显示，只格式化一页
     }
 
     /**
@@ -149,7 +139,7 @@ public class Admin {
      * @details 显示所有管理员的用户名
      */
     public void viewUsers() {
-        List<Admin> admins = AdminUtil.readAdminsFromTxt(); // 假设有一个方法读取所有管理员
+        List<Admin> admins = Storage.admins().findAll(); // 假设有一个方法读取所有管理员
         for (Admin admin : admins) {
             System.out.println(admin.getUsername());
         }
@@ -0,0 +1,272 @@
+/**
+ * @file Cart.java
+ * @brief 购物车类，保存一个会话中选购的商品
+ * @package main.com.model
+ */
+package main.com.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @class Cart
+ * @brief 有容量上限的购物车
+ * @details 以商品ID为键的 LinkedHashMap 保存购物车项目：查找、合并和修改数量都是 O(1)，
+ *          显示顺序为各商品第一次加入的顺序，重复加入同一商品只增加数量而不新增一行。
+ *          购物车只记录选购的商品，对应的库存预留由 ReservationLedger 按会话管理。
+ *          商品种类数不超过 MAX_ITEMS（系统属性 shop.cart.max.items），使每个会话占用的内存有上限。
+ *          所有方法都在购物车的锁内执行，同一会话的并发请求不会破坏购物车；调用方需要把库存变更和购物车修改作为整体时，
+ *          可以持有 getLock() 返回的同一把锁。锁是 ReentrantLock 而不是对象监视器，
+ *          结算时持有它等待刷盘的虚拟线程不会占住承载的平台线程
+ */
+public class Cart {
+    /** @brief 购物车最多容纳的商品种类数 */
+    public static final int MAX_ITEMS = Integer.getInteger("shop.cart.max.items", 100);
+
+    /** @brief 商品ID到购物车项目的映射，按加入顺序排列 */
+    private final Map<String, CartItem> items = new LinkedHashMap<>();
+    /** @brief 保护购物车的锁 */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @brief 获取购物车的锁
+     * @return 可重入锁，持有期间其他线程不能修改购物车
+     */
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    /**
+     * @brief 根据商品ID查找购物车项目
+     * @param id 商品ID
+     * @return 匹配的购物车项目，未找到时返回 null
+     */
+    public CartItem find(String id) {
+        lock.lock();
+        try {
+            return items.get(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 加入商品，已在购物车中时合并数量
+     * @param good 商品，对应库存已由调用方预留
+     * @param quantity 数量
+     * @return 加入或合并后的购物车项目；需要新增一行而购物车已满时返回 null
+     */
+    public CartItem add(Good good, int quantity) {
+        lock.lock();
+        try {
+            CartItem item = items.get(good.getId());
+            if (item != null) {
+                item.addStock(quantity); // 同一商品合并为一行
+                return item;
+            }
+            if (items.size() >= MAX_ITEMS) {
+                return null;
+            }
+            item = new CartItem(good, quantity);
+            items.put(good.getId(), item);
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 移除购物车项目，不释放预留
+     * @param id 商品ID
+     * @return 被移除的购物车项目，不存在时返回 null
+     */
+    public CartItem remove(String id) {
+        lock.lock();
+        try {
+            return items.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 判断能否再加入某种商品
+     * @param id 商品ID
+     * @return 商品已在购物车中或购物车未满时返回 true
+     */
+    public boolean canAdd(String id) {
+        lock.lock();
+        try {
+            return items.containsKey(id) || items.size() < MAX_ITEMS;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 判断购物车是否为空
+     * @return 为空时返回 true
+     */
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return items.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 获取购物车项目
+     * @return 按加入顺序排列的购物车项目列表副本
+     */
+    public List<CartItem> getItems() {
+        lock.lock();
+        try {
+            return new ArrayList<>(items.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 将购物车汇总为订单明细
+     * @return 商品到购买数量的映射，按加入顺序排列
+     */
+    public Map<Good, Integer> toOrder() {
+        lock.lock();
+        try {
+            Map<Good, Integer> order = new LinkedHashMap<>();
+            for (CartItem item : items.values()) {
+                order.put(item.getGood(), item.getQuantity());
+            }
+            return order;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 清空购物车
+     * @details 结算成功或会话结束时调用，预留由调用方处理
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            items.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 将购物车编码为紧凑的文本
+     * @return 形如 "id=数量,id=数量" 的文本，按加入顺序排列；ID 中的 %、= 和 , 以百分号转义
+     * @details 只保存商品ID和数量，恢复时按当前目录重新查找商品并预留库存
+     */
+    public String encode() {
+        lock.lock();
+        try {
+            StringBuilder sb = new StringBuilder(items.size() * 12);
+            for (CartItem item : items.values()) {
+                if (sb.length() > 0) {
+                    sb.append(',');
+                }
+                escape(item.getId(), sb);
+                sb.append('=').append(item.getQuantity());
+            }
+            return sb.toString();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 合并两个购物车编码
+     * @param first 先保存的编码，可为 null 或空串
+     * @param second 后保存的编码，可为 null 或空串
+     * @return 合并后的编码，同一商品的数量相加，first 中的商品排在前面
+     * @throws IllegalArgumentException 任一文本格式错误时抛出
+     */
+    public static String merge(String first, String second) {
+        Map<String, Integer> lines = decode(first);
+        for (Map.Entry<String, Integer> line : decode(second).entrySet()) {
+            lines.merge(line.getKey(), line.getValue(), Integer::sum);
+        }
+        StringBuilder sb = new StringBuilder(lines.size() * 12);
+        for (Map.Entry<String, Integer> line : lines.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            escape(line.getKey(), sb);
+            sb.append('=').append(line.getValue());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @brief 解码 encode 生成的文本
+     * @param encoded 编码文本，可为 null 或空串
+     * @return 商品ID到数量的映射，按原顺序排列
+     * @throws IllegalArgumentException 文本格式错误时抛出
+     */
+    public static Map<String, Integer> decode(String encoded) {
+        Map<String, Integer> lines = new LinkedHashMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return lines;
+        }
+        for (String entry : encoded.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("无效的购物车编码: " + entry);
+            }
+            try {
+                lines.merge(unescape(entry.substring(0, separator)), Integer.parseInt(entry.substring(separator + 1)), Integer::sum);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的购物车编码: " + entry);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @brief 转义商品ID中的分隔符
+     * @param id 商品ID
+     * @param sb 输出缓冲区
+     */
+    private static void escape(String id, StringBuilder sb) {
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c == '%' || c == '=' || c == ',') {
+                sb.append('%').append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * @brief 还原转义的商品ID
+     * @param text 转义后的商品ID
+     * @return 商品ID
+     */
+    private static String unescape(String text) {
+        if (text.indexOf('%') < 0) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' && i + 2 < text.length()) {
+                sb.append((char) Integer.parseInt(text.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * @file CartItem.java
+ * @brief 购物车项目类，表示购物车中的一种商品及其数量
+ * @package main.com.model
+ */
+package main.com.model;
+
+/**
+ * @class CartItem
+ * @brief 购物车项目类，用于存储购物车中的商品和数量
+ * @details 封装商品对象和购买数量
+ */
+public class CartItem {
+    /** @brief 购物车中的商品 */
+    private Good good;
+    /** @brief 商品数量 */
+    private int quantity;
+
+    /**
+     * @brief 购物车项目构造函数
+     * @param good     商品对象
+     * @param quantity 购买数量
+     */
+    public CartItem(Good good, int quantity) {
+        this.good = good;
+        this.quantity = quantity;
+    }
+
+    /**
+     * @brief 获取商品对象
+     * @return 商品对象
+     */
+    public Good getGood() {
+        return good;
+    }
+
+    /**
+     * @brief 获取商品数量
+     * @return 商品数量
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @brief 获取商品ID
+     * @return 商品ID
+     */
+    public String getId() {
+        return good.getId();
+    }
+
+    /**
+     * @brief 获取商品名称
+     * @return 商品名称
+     */
+    public String getName() {
+        return good.getName();
+    }
+
+    /**
+     * @brief 从购物车中减少商品数量
+     * @param quantity 要减少的商品数量
+     * @details 检查购物车商品数量是否充足，如果充足则减少商品数量
+     */
+    public void reduceStock(int quantity) {
+        if (quantity <= this.quantity) {
+            this.quantity -= quantity; // 减少购物车中商品数量
+        } else {
+            System.out.println("购物车中剩余商品数量不足，无法减少该数量。");
+        }
+    }
+
+    /**
+     * @brief 从购物车中增加商品数量
+     * @param quantity 要增加的商品数量
+     * @details 增加商品数量，数量必须为正数
+     */
+    public void addStock(int quantity) {
+        if (quantity > 0) {
+            this.quantity += quantity; // 增加购物车中商品数量
+        }
+    }
+
+    /**
+     * @brief 重写toString方法，提供商品信息的字符串表示
+     * @return 商品信息的字符串描述
+     */
+    @Override
+    public String toString() {
+        return "商品{" +
+                "id='" + getId() + '\'' +
+                ", 名称='" + getName() + '\'' +
+                ", 数量='" + getQuantity() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * @file CatalogPage.java
+ * @brief 商品分页结果类
+ * @package main.com.model
+ */
+package main.com.model;
+
+import java.util.List;
+
+/**
+ * @class CatalogPage
+ * @brief 商品目录的一页浏览结果
+ * @details 只包含请求的那一段商品；nextCursor 用于无偏移量地继续浏览下一页
+ */
+public class CatalogPage {
+    /** @brief 本页商品，只读 */
+    private final List<Good> goods;
+    /** @brief 本页第一件商品在（筛选后的）目录中的位置，从 0 开始 */
+    private final int offset;
+    /** @brief 筛选后的商品总数 */
+    private final int total;
+    /** @brief 下一页的游标，已是最后一页时为 null */
+    private final String nextCursor;
+    /** @brief 生成本页所用目录快照的版本号 */
+    private final long version;
+
+    /**
+     * @brief 构造函数
+     * @param goods 本页商品
+     * @param offset 本页第一件商品的位置
+     * @param total 筛选后的商品总数
+     * @param nextCursor 下一页的游标
+     * @param version 目录快照版本号
+     */
+    public CatalogPage(List<Good> goods, int offset, int total, String nextCursor, long version) {
+        this.goods = goods;
+        this.offset = offset;
+        this.total = total;
+        this.nextCursor = nextCursor;
+        this.version = version;
+    }
+
+    /**
+     * @brief 获取本页商品
+     * @return 只读商品列表
+     */
+    public List<Good> getGoods() {
+        return goods;
+    }
+
+    /**
+     * @brief 获取本页第一件商品的位置
+     * @return 位置，从 0 开始
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @brief 获取筛选后的商品总数
+     * @return 商品总数
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @brief 获取下一页的游标
+     * @return 游标，已是最后一页时为 null
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @brief 获取目录快照版本号
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @brief 是否还有下一页
+     * @return 有下一页时返回 true
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
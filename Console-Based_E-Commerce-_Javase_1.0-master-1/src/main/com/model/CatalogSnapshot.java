@@ -0,0 +1,266 @@
+/**
+ * @file CatalogSnapshot.java
+ * @brief 商品目录快照类，表示某一版本的不可变商品列表
+ * @package main.com.model
+ */
+package main.com.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @class CatalogSnapshot
+ * @brief 某一版本的商品目录
+ * @details 快照中的商品集合和顺序不可变，读者可以长期持有并遍历而无需复制或加锁；
+ *          写者每次修改目录都构造新快照并整体发布，旧快照不受影响。
+ *          商品的库存是原子变量，读者看到的始终是当前库存。
+ *          每个类别的商品另存一个同样有序的只读列表，随快照一起构造；单个商品变化时新快照只复制受影响的类别列表，
+ *          其余类别列表与旧快照共享。分页浏览（包括按类别）通过二分查找定位页首，耗时为 O(log n + 页大小)
+ */
+public class CatalogSnapshot {
+    /** @brief 目录排序规则：按价格升序，价格相同时按商品ID升序 */
+    public static final Comparator<Good> ORDER = Comparator.comparingDouble(Good::getPrice).thenComparing(Good::getId);
+    /** @brief 空目录 */
+    public static final CatalogSnapshot EMPTY = new CatalogSnapshot(0, Collections.<Good>emptyList());
+
+    /** @brief 单页最多返回的商品数 */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /** @brief 版本号，每次发布递增 */
+    private final long version;
+    /** @brief 按 ORDER 排列的只读商品列表 */
+    private final List<Good> goods;
+    /** @brief 类别到该类别只读商品列表（同样按 ORDER 排列）的映射，只包含目录中存在的类别，构造后不再修改 */
+    private final Map<String, List<Good>> categories;
+
+    /**
+     * @brief 构造函数
+     * @param version 版本号
+     * @param goods 按 ORDER 排列的商品列表，所有权移交给快照，调用方之后不得再修改
+     * @details 遍历一次商品列表按类别分组
+     */
+    public CatalogSnapshot(long version, List<Good> goods) {
+        this(version, goods, group(goods));
+    }
+
+    /**
+     * @brief 构造函数
+     * @param version 版本号
+     * @param goods 按 ORDER 排列的商品列表
+     * @param categories 类别到只读商品列表的映射
+     */
+    private CatalogSnapshot(long version, List<Good> goods, Map<String, List<Good>> categories) {
+        this.version = version;
+        this.goods = Collections.unmodifiableList(goods);
+        this.categories = categories;
+    }
+
+    /**
+     * @brief 构造新增或替换一件商品后的下一版本快照
+     * @param previous 被替换的商品，新增时为 null
+     * @param good 新增或修改后的商品
+     * @return 版本号加一的新快照，本快照不变
+     * @details 复制商品列表，移除旧商品后二分插入新商品；类别列表只复制新旧商品所在的类别
+     */
+    public CatalogSnapshot put(Good previous, Good good) {
+        List<Good> list = new ArrayList<>(goods);
+        Map<String, List<Good>> map = new HashMap<>(categories);
+        if (previous != null) {
+            list.remove(previous);
+            removeFromCategory(map, previous);
+        }
+        insert(list, good);
+        String category = good.getCategory();
+        if (category != null && !category.isEmpty()) {
+            List<Good> members = new ArrayList<>(map.getOrDefault(category, Collections.<Good>emptyList()));
+            insert(members, good);
+            map.put(category, Collections.unmodifiableList(members));
+        }
+        return new CatalogSnapshot(version + 1, list, map);
+    }
+
+    /**
+     * @brief 构造删除一件商品后的下一版本快照
+     * @param removed 被删除的商品
+     * @return 版本号加一的新快照，本快照不变
+     */
+    public CatalogSnapshot remove(Good removed) {
+        List<Good> list = new ArrayList<>(goods);
+        list.remove(removed);
+        Map<String, List<Good>> map = new HashMap<>(categories);
+        removeFromCategory(map, removed);
+        return new CatalogSnapshot(version + 1, list, map);
+    }
+
+    /**
+     * @brief 获取版本号
+     * @return 版本号
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @brief 获取商品列表
+     * @return 只读商品列表，不复制
+     */
+    public List<Good> getGoods() {
+        return goods;
+    }
+
+    /**
+     * @brief 获取商品数
+     * @return 商品数
+     */
+    public int size() {
+        return goods.size();
+    }
+
+    /**
+     * @brief 获取某一类别的商品
+     * @param category 商品类别，为 null 或空串时返回全部商品
+     * @return 按 ORDER 排列的只读商品列表，类别不存在时返回空列表
+     * @details 不复制，时间复杂度为 O(1)
+     */
+    public List<Good> getGoods(String category) {
+        if (category == null || category.isEmpty()) {
+            return goods;
+        }
+        return categories.getOrDefault(category, Collections.<Good>emptyList());
+    }
+
+    /**
+     * @brief 按偏移量获取一页商品
+     * @param category 商品类别，为 null 或空串时不筛选
+     * @param offset 页首位置，从 0 开始
+     * @param pageSize 每页商品数，超过 MAX_PAGE_SIZE 时按 MAX_PAGE_SIZE 计
+     * @return 分页结果
+     */
+    public CatalogPage page(String category, int offset, int pageSize) {
+        List<Good> list = getGoods(category);
+        return slice(list, Math.max(0, Math.min(offset, list.size())), pageSize);
+    }
+
+    /**
+     * @brief 按游标获取一页商品
+     * @param category 商品类别，为 null 或空串时不筛选
+     * @param cursor 上一页返回的游标，为 null 时从第一页开始
+     * @param pageSize 每页商品数，超过 MAX_PAGE_SIZE 时按 MAX_PAGE_SIZE 计
+     * @return 分页结果
+     * @throws IllegalArgumentException 游标格式错误时抛出
+     * @details 游标记录上一页最后一件商品的价格和ID，二分查找其后的第一件商品作为页首；
+     *          两次请求之间目录发生变化时，也不会重复或跳过未变化的商品
+     */
+    public CatalogPage page(String category, String cursor, int pageSize) {
+        List<Good> list = getGoods(category);
+        int start = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            int separator = cursor.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            double price;
+            try {
+                price = Double.parseDouble(cursor.substring(0, separator));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+            start = indexAfter(list, price, cursor.substring(separator + 1));
+        }
+        return slice(list, start, pageSize);
+    }
+
+    /**
+     * @brief 截取一页商品
+     * @param list 筛选后的商品列表
+     * @param start 页首位置
+     * @param pageSize 每页商品数
+     * @return 分页结果
+     */
+    private CatalogPage slice(List<Good> list, int start, int pageSize) {
+        int end = Math.min(list.size(), start + Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)));
+        List<Good> items = list.subList(start, end);
+        String next = null;
+        if (end < list.size() && end > start) {
+            Good last = list.get(end - 1);
+            next = last.getPrice() + ":" + last.getId();
+        }
+        return new CatalogPage(items, start, list.size(), next, version);
+    }
+
+    /**
+     * @brief 按类别分组商品
+     * @param goods 按 ORDER 排列的商品列表
+     * @return 类别到只读商品列表的映射，列表保持 ORDER 顺序；没有类别的商品不分组
+     */
+    private static Map<String, List<Good>> group(List<Good> goods) {
+        Map<String, List<Good>> categories = new HashMap<>();
+        for (Good good : goods) {
+            String category = good.getCategory();
+            if (category != null && !category.isEmpty()) {
+                categories.computeIfAbsent(category, key -> new ArrayList<>()).add(good);
+            }
+        }
+        categories.replaceAll((category, list) -> Collections.unmodifiableList(list));
+        return categories;
+    }
+
+    /**
+     * @brief 从类别映射中移除一件商品
+     * @param categories 新快照的类别映射，受影响的类别列表被替换为副本
+     * @param good 要移除的商品
+     */
+    private static void removeFromCategory(Map<String, List<Good>> categories, Good good) {
+        List<Good> members = categories.get(good.getCategory());
+        if (members == null || !members.contains(good)) {
+            return;
+        }
+        List<Good> copy = new ArrayList<>(members);
+        copy.remove(good);
+        if (copy.isEmpty()) {
+            categories.remove(good.getCategory());
+        } else {
+            categories.put(good.getCategory(), Collections.unmodifiableList(copy));
+        }
+    }
+
+    /**
+     * @brief 按 ORDER 把商品二分插入有序列表
+     * @param list 按 ORDER 排列的可修改列表
+     * @param good 要插入的商品
+     */
+    private static void insert(List<Good> list, Good good) {
+        int position = Collections.binarySearch(list, good, ORDER);
+        list.add(position < 0 ? -position - 1 : position, good);
+    }
+
+    /**
+     * @brief 查找按 ORDER 排在给定价格和ID之后的第一件商品
+     * @param list 按 ORDER 排列的商品列表
+     * @param price 价格
+     * @param id 商品ID
+     * @return 商品位置，不存在时返回列表长度
+     */
+    private static int indexAfter(List<Good> list, double price, String id) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Good good = list.get(mid);
+            int cmp = Double.compare(good.getPrice(), price);
+            if (cmp == 0) {
+                cmp = good.getId().compareTo(id);
+            }
+            if (cmp <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
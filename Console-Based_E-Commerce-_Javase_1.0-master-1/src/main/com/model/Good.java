@@ -5,12 +5,13 @@
  */
 package main.com.model;
 
-import main.com.util.TxtUtil;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @class Good
  * @brief 商品实体类，表示电子商城中的商品信息
- * @details 包含商品的基本属性和库存管理方法
+ * @details 包含商品的基本属性和库存管理方法；库存使用原子计数器，多个会话并发扣减时不会超卖
  */
 public class Good {
     /** @brief 商品ID，产品的唯一标识符 */
@@ -21,8 +22,8 @@ public class Good {
     private String description; // 商品描述
     /** @brief 商品价格 */
     private double price;       // 商品价格
-    /** @brief 商品库存数量 */
-    private int stock;          // 商品库存数量
+    /** @brief 商品库存数量，通过 CAS 原子更新 */
+    private final AtomicInteger stock; // 商品库存数量
     /** @brief 商品类别（如电子产品、服装等） */
     private String category;     // 商品类别（如电子产品、服装等）
 
@@ -41,7 +42,7 @@ public class Good {
         this.name = name;
         this.description = description;
         this.price = price;
-        this.stock = stock;
+        this.stock = new AtomicInteger(stock);
         this.category = category;
     }
 
@@ -114,7 +115,7 @@ public class Good {
      * @return 商品库存数量
      */
     public int getStock() {
-        return stock;
+        return stock.get();
     }
 
     /**
@@ -122,7 +123,7 @@ public class Good {
      * @param stock 新的库存数量
      */
     public void setStock(int stock) {
-        this.stock = stock;
+        this.stock.set(stock);
     }
 
     /**
@@ -142,28 +143,21 @@ public class Good {
     }
 
     /**
-     * @brief 减少商品库存
-     * @param quantity 要减少的库存数量
-     * @details 检查库存是否充足，如果充足则减少库存并更新文件
-     */
-    public void reduceStock(int quantity) {
-        if (quantity <= stock) {
-            stock -= quantity; // 减少库存
-            TxtUtil.updateGoodInTxt(this); // 更新文件中的商品信息
-        } else {
-            System.out.println("库存不足，无法减少该数量。");
-        }
-    }
-
-    /**
-     * @brief 增加商品库存
-     * @param quantity 要增加的库存数量
-     * @details 增加库存并更新文件
+     * @brief 原子地调整库存计数
+     * @param delta 库存变化量，正数为增加，负数为减少
+     * @return 调整后库存不小于0时返回 true，否则不做修改并返回 false
+     * @details 使用 CAS 循环实现，检查与扣减是一个原子操作，不写文件；持久化由 PurchaseRepository.placeOrder 负责
      */
-    public void addStock(int quantity) {
-        if (quantity >= stock) {
-            stock += quantity; // 增加库存
-            TxtUtil.updateGoodInTxt(this); // 更新文件中的商品信息
+    public boolean tryAdjustStock(int delta) {
+        while (true) {
+            int current = stock.get();
+            int next = current + delta;
+            if (next < 0) {
+                return false; // 库存不足
+            }
+            if (stock.compareAndSet(current, next)) {
+                return true;
+            }
         }
     }
 
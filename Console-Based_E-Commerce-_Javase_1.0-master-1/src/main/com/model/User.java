@@ -5,12 +5,24 @@
  */
 package main.com.model;
 
-import java.security.MessageDigest; /**
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
  * @class User
  * @brief 用户实体类，表示电子商城系统中的用户信息
  * @details 包含用户的基本属性、获取器、设置器和登录验证方法
  */
 public class User {
+    /** @brief 每个线程的 MD5 实例，避免每次调用都查找算法提供者 */
+    private static final ThreadLocal<MessageDigest> md5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // 每个 Java 平台都必须支持 MD5
+        }
+    });
     /** @brief 用户名 */
     private String username; // 用户名
     /** @brief 密码 */
@@ -123,20 +135,14 @@ public class User {
     }
 
     /**
-     * @brief 对用户密码进行MD5加密
-     * @param str 待加密字符串
-     * @return 16进制加密字符串
+     * @brief 计算字符串的MD5摘要
+     * @param str 待计算的字符串
+     * @return 16进制摘要字符串
+     * @details 仅用于识别旧版本保存的 MD5 密码，新密码由 PasswordHasher 散列
      */
     public static String encryptToMD5(String str) {
-        String hexStr = ""; // 加密后的16进制字符串
-        try {
-            MessageDigest md5 = MessageDigest.getInstance("MD5"); // 此 MessageDigest 类为应用程序提供信息摘要算法的功能
-            byte[] digest = md5.digest(str.getBytes("utf-8")); // 转换为MD5码
-            hexStr = bytesToHex(digest);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return hexStr;
+        byte[] digest = md5.get().digest(str.getBytes(StandardCharsets.UTF_8)); // 转换为MD5码，digest 之后实例自动重置
+        return bytesToHex(digest);
     }
 
     /**
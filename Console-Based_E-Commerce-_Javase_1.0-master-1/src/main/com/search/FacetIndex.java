@@ -0,0 +1,223 @@
+/**
+ * @file FacetIndex.java
+ * @brief 商品类别和价格二级索引类，支持分面筛选
+ * @package main.com.search
+ */
+package main.com.search;
+
+import main.com.model.CatalogSnapshot;
+import main.com.model.Good;
+import main.com.storage.CatalogListener;
+import main.com.storage.CatalogRepository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @class FacetIndex
+ * @brief 按类别和价格组织的商品二级索引
+ * @details 全部商品和每个类别的商品各保存在一个按目录顺序（价格、ID）排列的跳表中，
+ *          价格区间查询通过 subSet 在 O(log n) 时间内定位区间起点，再按需遍历；每个类别的商品数单独计数，
+ *          取分面计数无需遍历商品。
+ *          作为 CatalogListener 注册到商品目录后随商品的新增、修改和删除增量更新，不需要重新排序。
+ *          写入由目录写锁串行化，查询不加锁；查询与单个商品的写入并发时可能看到修改前或修改后的商品，但不会出错。
+ *          整体重新加载时在新的结构中建好索引，再以一次 volatile 写替换，查询看到的要么是旧索引要么是完整的新索引
+ */
+public class FacetIndex implements CatalogListener {
+    /** @brief 当前发布的索引结构 */
+    private volatile Structures current = new Structures();
+
+    /**
+     * @class Structures
+     * @brief 一组相互一致的索引结构
+     */
+    private static class Structures {
+        /** @brief 全部商品，按目录顺序排列 */
+        private final NavigableSet<Good> byPrice = new ConcurrentSkipListSet<>(CatalogSnapshot.ORDER);
+        /** @brief 类别到该类别商品的映射，商品按目录顺序排列 */
+        private final Map<String, NavigableSet<Good>> byCategory = new ConcurrentHashMap<>();
+        /** @brief 类别到商品数的映射 */
+        private final Map<String, AtomicInteger> categoryCounts = new ConcurrentHashMap<>();
+        /** @brief 商品ID到当前已索引商品对象的映射 */
+        private final Map<String, Good> goods = new ConcurrentHashMap<>();
+
+        /**
+         * @brief 加入或替换商品
+         * @param good 商品
+         */
+        private void put(Good good) {
+            remove(good.getId());
+            goods.put(good.getId(), good);
+            byPrice.add(good);
+            byCategory.computeIfAbsent(category(good), key -> new ConcurrentSkipListSet<>(CatalogSnapshot.ORDER)).add(good);
+            categoryCounts.computeIfAbsent(category(good), key -> new AtomicInteger()).incrementAndGet();
+        }
+
+        /**
+         * @brief 移除商品
+         * @param id 商品ID
+         */
+        private void remove(String id) {
+            Good previous = goods.remove(id);
+            if (previous == null) {
+                return;
+            }
+            byPrice.remove(previous);
+            NavigableSet<Good> set = byCategory.get(category(previous));
+            if (set != null) {
+                set.remove(previous);
+            }
+            AtomicInteger count = categoryCounts.get(category(previous));
+            if (count != null && count.decrementAndGet() == 0) {
+                categoryCounts.remove(category(previous));
+            }
+        }
+    }
+
+    /**
+     * @brief 注册到商品目录并按当前目录快照建立索引
+     * @param catalog 商品目录
+     */
+    public synchronized void attach(CatalogRepository catalog) {
+        catalog.addListener(this);
+        catalogReloaded(catalog.snapshot());
+    }
+
+    @Override
+    public synchronized void goodPut(Good good) {
+        current.put(good);
+    }
+
+    @Override
+    public synchronized void goodRemoved(Good good) {
+        current.remove(good.getId());
+    }
+
+    @Override
+    public synchronized void catalogReloaded(CatalogSnapshot snapshot) {
+        Structures rebuilt = new Structures();
+        for (Good good : snapshot.getGoods()) {
+            rebuilt.put(good);
+        }
+        current = rebuilt;
+    }
+
+    /**
+     * @brief 按类别和价格区间查询商品
+     * @param category 商品类别，为 null 或空串时不限类别
+     * @param minPrice 最低价格（含）
+     * @param maxPrice 最高价格（含）
+     * @param cheapestFirst 为 true 时按价格从低到高，否则从高到低
+     * @param limit 最多返回的商品数
+     * @return 符合条件的商品
+     */
+    public List<Good> query(String category, double minPrice, double maxPrice, boolean cheapestFirst, int limit) {
+        List<Good> result = new ArrayList<>();
+        Iterator<Good> iterator = range(current, category, minPrice, maxPrice, cheapestFirst);
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    /**
+     * @brief 统计价格区间内的商品数
+     * @param category 商品类别，为 null 或空串时不限类别
+     * @param minPrice 最低价格（含）
+     * @param maxPrice 最高价格（含）
+     * @return 商品数
+     * @details 需要遍历区间内的商品，耗时与区间大小成正比
+     */
+    public int count(String category, double minPrice, double maxPrice) {
+        return count(range(current, category, minPrice, maxPrice, true));
+    }
+
+    /**
+     * @brief 获取各类别的商品数
+     * @return 类别到商品数的映射，按类别名排序
+     */
+    public Map<String, Integer> facetCounts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, AtomicInteger> entry : current.categoryCounts.entrySet()) {
+            if (entry.getValue().get() > 0) {
+                counts.put(entry.getKey(), entry.getValue().get());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @brief 获取价格区间内各类别的商品数
+     * @param minPrice 最低价格（含）
+     * @param maxPrice 最高价格（含）
+     * @return 类别到商品数的映射，按类别名排序
+     */
+    public Map<String, Integer> facetCounts(double minPrice, double maxPrice) {
+        Structures structures = current;
+        Map<String, Integer> counts = new TreeMap<>();
+        for (String category : structures.byCategory.keySet()) {
+            int count = count(range(structures, category, minPrice, maxPrice, true));
+            if (count > 0) {
+                counts.put(category, count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @brief 统计迭代器剩余的元素数
+     * @param iterator 迭代器
+     * @return 元素数
+     */
+    private static int count(Iterator<Good> iterator) {
+        int count = 0;
+        for (; iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @brief 获取价格区间内商品的迭代器
+     * @param structures 查询所用的索引结构，同一次查询只读取一次 current
+     * @param category 商品类别，为 null 或空串时不限类别
+     * @param minPrice 最低价格（含）
+     * @param maxPrice 最高价格（含）
+     * @param ascending 是否按价格升序
+     * @return 迭代器
+     */
+    private static Iterator<Good> range(Structures structures, String category, double minPrice, double maxPrice, boolean ascending) {
+        NavigableSet<Good> set = category == null || category.isEmpty() ? structures.byPrice : structures.byCategory.get(category);
+        if (set == null || minPrice > maxPrice) {
+            return new ArrayList<Good>().iterator();
+        }
+        // ID 为空串的探针排在同价格的所有商品之前
+        NavigableSet<Good> slice = set.subSet(probe(minPrice), true, probe(Math.nextUp(maxPrice)), false);
+        return ascending ? slice.iterator() : slice.descendingIterator();
+    }
+
+    /**
+     * @brief 构造用于区间定位的探针商品
+     * @param price 价格
+     * @return 只有价格和空 ID 的商品
+     */
+    private static Good probe(double price) {
+        return new Good("", "", "", price, 0, "");
+    }
+
+    /**
+     * @brief 获取商品类别
+     * @param good 商品
+     * @return 类别，为 null 时返回空串
+     */
+    private static String category(Good good) {
+        return good.getCategory() == null ? "" : good.getCategory();
+    }
+}
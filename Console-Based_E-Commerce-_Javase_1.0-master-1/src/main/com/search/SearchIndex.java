@@ -0,0 +1,471 @@
+/**
+ * @file SearchIndex.java
+ * @brief 商品全文检索倒排索引类
+ * @package main.com.search
+ */
+package main.com.search;
+
+import main.com.model.CatalogSnapshot;
+import main.com.model.Good;
+import main.com.storage.CatalogListener;
+import main.com.storage.CatalogRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @class SearchIndex
+ * @brief 覆盖商品名称、描述和类别的倒排索引
+ * @details 每件商品分配一个递增的内部文档号，每个词对应一个按文档号升序的倒排表，记录该词在商品中的加权词频
+ *          （名称 3、类别 2、描述 1）。商品修改时旧文档号作废并分配新文档号，作废的文档在倒排表中惰性跳过，
+ *          作废数量超过有效文档数时整体重建。
+ *          查询的每个词都必须命中（AND 语义），从最短的倒排表出发，对其余词在倒排表中跳跃查找，
+ *          单个汉字的查询词匹配所有包含该字的二元词，
+ *          按 tf-idf 得分排序，得分相同时按目录顺序（价格、ID）排列。
+ *          作为 CatalogListener 注册到商品目录后随商品新增、修改和删除增量更新
+ */
+public class SearchIndex implements CatalogListener {
+    /** @brief 名称字段权重 */
+    private static final int NAME_WEIGHT = 3;
+    /** @brief 类别字段权重 */
+    private static final int CATEGORY_WEIGHT = 2;
+    /** @brief 描述字段权重 */
+    private static final int DESCRIPTION_WEIGHT = 1;
+    /** @brief 作废文档超过该数量且超过有效文档数时重建索引 */
+    private static final int MIN_REBUILD_TOMBSTONES = 1024;
+
+    /**
+     * @class Postings
+     * @brief 单个词的倒排表
+     */
+    private static class Postings {
+        /** @brief 文档号，升序 */
+        int[] docs = new int[4];
+        /** @brief 对应文档中该词的加权词频 */
+        byte[] weights = new byte[4];
+        /** @brief 有效长度 */
+        int size;
+
+        /**
+         * @brief 追加一个文档，文档号必须大于已有文档号
+         * @param doc 文档号
+         * @param weight 加权词频
+         */
+        void add(int doc, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = (byte) Math.min(weight, Byte.MAX_VALUE);
+            size++;
+        }
+
+        /**
+         * @brief 从指定位置起查找第一个不小于给定文档号的位置
+         * @param from 起始位置
+         * @param doc 文档号
+         * @return 位置，所有文档号都小于 doc 时返回 size
+         * @details 先按 1、2、4… 的步长跳跃再二分，按升序依次查找时总代价与较短一方的长度成正比
+         */
+        int seek(int from, int doc) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && docs[high] < doc) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(docs, low, Math.min(high + 1, size), doc);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    /**
+     * @class TermGroup
+     * @brief 一个查询词对应的一组倒排表，文档命中其中任意一个即视为命中该查询词
+     */
+    private static class TermGroup {
+        /** @brief 倒排表 */
+        final List<Postings> lists;
+        /** @brief 各倒排表长度之和 */
+        final int size;
+        /** @brief 逆文档频率 */
+        final double idf;
+        /** @brief 各倒排表的当前查找位置，查询按文档号升序调用 weightOf */
+        final int[] positions;
+
+        /**
+         * @brief 构造函数
+         * @param lists 倒排表
+         * @param documentCount 有效文档数
+         */
+        TermGroup(List<Postings> lists, int documentCount) {
+            this.lists = lists;
+            int total = 0;
+            for (Postings list : lists) {
+                total += list.size;
+            }
+            this.size = total;
+            this.idf = Math.log(1 + (double) documentCount / Math.max(1, total));
+            this.positions = new int[lists.size()];
+        }
+
+        /**
+         * @brief 合并各倒排表，获取命中的全部文档号
+         * @return 升序且不重复的文档号
+         */
+        int[] docs() {
+            int[] docs = new int[size];
+            int n = 0;
+            for (Postings list : lists) {
+                System.arraycopy(list.docs, 0, docs, n, list.size);
+                n += list.size;
+            }
+            Arrays.sort(docs);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                if (unique == 0 || docs[unique - 1] != docs[i]) {
+                    docs[unique++] = docs[i];
+                }
+            }
+            return Arrays.copyOf(docs, unique);
+        }
+
+        /**
+         * @brief 查找文档中该查询词的加权词频
+         * @param doc 文档号，多次调用时必须递增
+         * @return 各倒排表中加权词频之和
+         */
+        int weightOf(int doc) {
+            int weight = 0;
+            for (int k = 0; k < lists.size(); k++) {
+                Postings list = lists.get(k);
+                int position = list.seek(positions[k], doc);
+                positions[k] = position;
+                if (position < list.size && list.docs[position] == doc) {
+                    weight += list.weights[position];
+                }
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * @class Index
+     * @brief 一组相互一致的索引结构
+     * @details 目录重新加载或作废文档过多时在锁外建立新的一组结构，再在写锁内整体替换
+     */
+    private static class Index {
+        /** @brief 词到倒排表的映射 */
+        private final Map<String, Postings> postings = new HashMap<>();
+        /** @brief 汉字到包含该字的二元词倒排表的映射，用于单字查询 */
+        private final Map<Character, List<Postings>> bigramsByChar = new HashMap<>();
+        /** @brief 文档号到商品的映射，作废的文档为 null */
+        private Good[] documents;
+        /** @brief 下一个可用的文档号 */
+        private int nextDoc;
+        /** @brief 商品ID到当前文档号的映射 */
+        private final Map<String, Integer> docIds;
+
+        /**
+         * @brief 按给定商品建立索引
+         * @param goods 商品集合
+         */
+        Index(Collection<Good> goods) {
+            documents = new Good[Math.max(16, goods.size())];
+            docIds = new HashMap<>(goods.size() * 4 / 3 + 1);
+            for (Good good : goods) {
+                retire(good.getId()); // ID 重复时以后出现的为准
+                index(good);
+            }
+        }
+
+        /**
+         * @brief 查找查询词对应的倒排表
+         * @param term 查询词
+         * @return 倒排表组，没有命中时返回 null
+         * @details 索引中多字的汉字段只保存二元词，因此单个汉字的查询词还要匹配所有包含该字的二元词
+         */
+        TermGroup resolve(String term) {
+            List<Postings> lists = new ArrayList<>();
+            Postings exact = postings.get(term);
+            if (exact != null) {
+                lists.add(exact);
+            }
+            if (term.length() == 1 && Tokenizer.isCjk(term.charAt(0))) {
+                lists.addAll(bigramsByChar.getOrDefault(term.charAt(0), Collections.<Postings>emptyList()));
+            }
+            return lists.isEmpty() ? null : new TermGroup(lists, docIds.size());
+        }
+
+        /**
+         * @brief 为商品分配新文档号并写入倒排表
+         * @param good 商品
+         */
+        void index(Good good) {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            addField(weights, good.getName(), NAME_WEIGHT);
+            addField(weights, good.getCategory(), CATEGORY_WEIGHT);
+            addField(weights, good.getDescription(), DESCRIPTION_WEIGHT);
+
+            int doc = nextDoc++;
+            if (doc == documents.length) {
+                documents = Arrays.copyOf(documents, doc * 2);
+            }
+            documents[doc] = good;
+            docIds.put(good.getId(), doc);
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), this::newPostings).add(doc, entry.getValue());
+            }
+        }
+
+        /**
+         * @brief 为新词创建倒排表
+         * @param term 词
+         * @return 空倒排表
+         * @details 汉字二元词同时登记到其中两个字的单字映射下
+         */
+        private Postings newPostings(String term) {
+            Postings list = new Postings();
+            if (term.length() == 2 && Tokenizer.isCjk(term.charAt(0)) && Tokenizer.isCjk(term.charAt(1))) {
+                bigramsByChar.computeIfAbsent(term.charAt(0), key -> new ArrayList<>()).add(list);
+                if (term.charAt(1) != term.charAt(0)) {
+                    bigramsByChar.computeIfAbsent(term.charAt(1), key -> new ArrayList<>()).add(list);
+                }
+            }
+            return list;
+        }
+
+        /**
+         * @brief 作废商品当前的文档号
+         * @param id 商品ID
+         */
+        void retire(String id) {
+            Integer doc = docIds.remove(id);
+            if (doc != null) {
+                documents[doc] = null;
+            }
+        }
+
+        /**
+         * @brief 作废文档过多时取出全部有效商品
+         * @return 按文档号排列的有效商品，不需要重建时返回 null
+         */
+        List<Good> liveIfBloated() {
+            int tombstones = nextDoc - docIds.size();
+            if (tombstones <= MIN_REBUILD_TOMBSTONES || tombstones <= docIds.size()) {
+                return null;
+            }
+            List<Good> live = new ArrayList<>(docIds.size());
+            for (int doc = 0; doc < nextDoc; doc++) {
+                if (documents[doc] != null) {
+                    live.add(documents[doc]);
+                }
+            }
+            return live;
+        }
+    }
+
+    /** @brief 索引读写锁 */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** @brief 当前的索引结构，由读写锁保护 */
+    private Index current = new Index(Collections.<Good>emptyList());
+
+    /**
+     * @brief 注册到商品目录并按当前目录快照建立索引
+     * @param catalog 商品目录
+     * @details 先注册监听器再在写锁内读取快照，之后的目录修改都会在建立完成后依次应用，不会遗漏
+     */
+    public void attach(CatalogRepository catalog) {
+        catalog.addListener(this);
+        lock.writeLock().lock();
+        try {
+            current = new Index(catalog.snapshot().getGoods());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void goodPut(Good good) {
+        List<Good> live;
+        lock.writeLock().lock();
+        try {
+            current.retire(good.getId());
+            current.index(good);
+            live = current.liveIfBloated();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (live != null) {
+            replace(live);
+        }
+    }
+
+    @Override
+    public void goodRemoved(Good good) {
+        List<Good> live;
+        lock.writeLock().lock();
+        try {
+            current.retire(good.getId());
+            live = current.liveIfBloated();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (live != null) {
+            replace(live);
+        }
+    }
+
+    @Override
+    public void catalogReloaded(CatalogSnapshot snapshot) {
+        replace(snapshot.getGoods());
+    }
+
+    /**
+     * @brief 在锁外按给定商品建立新索引，再在写锁内替换当前索引
+     * @param goods 商品集合
+     * @details 目录事件由商品目录在其写锁内依次通知，建立期间不会有其他修改需要应用到新索引；
+     *          查询只在替换的瞬间等待，不必等整个重建完成
+     */
+    private void replace(Collection<Good> goods) {
+        Index rebuilt = new Index(goods);
+        lock.writeLock().lock();
+        try {
+            current = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 获取已索引的商品数
+     * @return 商品数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return current.docIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 检索商品
+     * @param query 查询文本，按与索引相同的规则分词
+     * @param limit 最多返回的商品数
+     * @return 按相关度从高到低排列的商品
+     */
+    public List<Good> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Index index = current;
+            List<TermGroup> groups = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                TermGroup group = index.resolve(term);
+                if (group == null) {
+                    return Collections.emptyList(); // 有一个词没有命中任何商品
+                }
+                groups.add(group);
+            }
+            groups.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            TermGroup first = groups.get(0);
+            Postings single = first.lists.size() == 1 ? first.lists.get(0) : null; // 常见情况，直接遍历倒排表
+            int[] docs = single != null ? single.docs : first.docs();
+            int count = single != null ? single.size : docs.length;
+            PriorityQueue<ScoredGood> top = new PriorityQueue<>(limit + 1);
+            candidates:
+            for (int i = 0; i < count; i++) {
+                int doc = docs[i];
+                Good good = index.documents[doc];
+                if (good == null) {
+                    continue; // 已作废
+                }
+                double score = (single != null ? single.weights[i] : first.weightOf(doc)) * first.idf;
+                for (int j = 1; j < groups.size(); j++) {
+                    TermGroup group = groups.get(j);
+                    int weight = group.weightOf(doc);
+                    if (weight == 0) {
+                        continue candidates;
+                    }
+                    score += weight * group.idf;
+                }
+                if (top.size() == limit) {
+                    ScoredGood lowest = top.peek();
+                    if (score < lowest.score || (score == lowest.score
+                            && CatalogSnapshot.ORDER.compare(good, lowest.good) >= 0)) {
+                        continue; // 进不了前 N 名，不创建对象
+                    }
+                    top.poll();
+                }
+                top.offer(new ScoredGood(good, score));
+            }
+            List<Good> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                result.add(top.poll().good);
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 累加一个字段中各词的加权词频
+     * @param weights 词到加权词频的映射
+     * @param text 字段内容
+     * @param weight 字段权重
+     */
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        for (String token : Tokenizer.tokenize(text)) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    /**
+     * @class ScoredGood
+     * @brief 带相关度得分的商品，按得分升序比较以便用小顶堆保留前 N 名
+     */
+    private static class ScoredGood implements Comparable<ScoredGood> {
+        /** @brief 商品 */
+        final Good good;
+        /** @brief 相关度得分 */
+        final double score;
+
+        /**
+         * @brief 构造函数
+         * @param good 商品
+         * @param score 相关度得分
+         */
+        ScoredGood(Good good, double score) {
+            this.good = good;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredGood other) {
+            int cmp = Double.compare(score, other.score);
+            return cmp != 0 ? cmp : CatalogSnapshot.ORDER.compare(other.good, good); // 得分相同时目录顺序靠前的排名更高
+        }
+    }
+}
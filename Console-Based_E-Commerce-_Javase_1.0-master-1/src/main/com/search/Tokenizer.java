@@ -0,0 +1,67 @@
+/**
+ * @file Tokenizer.java
+ * @brief 分词类，支持中文和英文数字混合的商品文本
+ * @package main.com.search
+ */
+package main.com.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @class Tokenizer
+ * @brief 面向商品名称、描述和类别的分词器
+ * @details 文本被切分为连续的汉字段和字母数字段，其余字符视为分隔符：
+ *          - 汉字段按相邻两字切分为二元词（如"电子产品"切为 电子、子产、产品），只有一个字的汉字段保留单字；
+ *          - 字母数字段整体作为一个词，并转为小写。
+ *          二元切分不需要词典，且查询"电子"、"产品"或"电子产品"都能命中"电子产品"
+ */
+public class Tokenizer {
+    /**
+     * @brief 对文本分词
+     * @param text 文本，可以为 null
+     * @return 按出现顺序排列的词，可能重复
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int j = start; j + 1 < i; j++) {
+                        tokens.add(text.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @brief 判断字符是否为汉字（或其他表意文字）
+     * @param c 字符
+     * @return 是汉字时返回 true
+     */
+    public static boolean isCjk(char c) {
+        return Character.isIdeographic(c);
+    }
+}
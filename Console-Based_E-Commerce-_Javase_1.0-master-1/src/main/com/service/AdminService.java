@@ -7,11 +7,11 @@
 import main.com.model.Admin;
 import main.com.model.Good;
 import main.com.model.User;
-import main.com.util.AdminUtil;
-import main.com.util.TxtUtil;
-import main.com.util.UserUtil;
+import main.com.storage.Storage;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -34,7 +34,7 @@ public class AdminService {
         System.out.print("请输入管理员密码: ");
         String password = scanner.nextLine();
 
-        return AdminUtil.validateAdmin(username, password);
+        return Storage.admins().validate(username, password);
     }
 
     /**
@@ -56,7 +56,7 @@ public class AdminService {
         String category = scanner.nextLine();
 
         Good good = new Good(id, name, description, price, stock, category);
-        TxtUtil.addGoodToTxt(good); // 将商品添加到TXT文件
+        Storage.catalog().add(good); // 将商品添加到TXT文件
         System.out.println("商品添加成功！");
     }
 
@@ -67,7 +67,7 @@ public class AdminService {
     public void modifyGood() {
         System.out.print("请输入要修改的商品ID: ");
         String id = scanner.nextLine();
-        Good good = TxtUtil.getGoodById(id); // 根据ID获取商品
+        Good good = Storage.catalog().findById(id); // 根据ID获取商品
         if (good != null) {
             System.out.print("请输入新的商品名称 (当前: " + good.getName() + "): ");
             String name = scanner.nextLine();
@@ -81,7 +81,7 @@ public class AdminService {
             String category = scanner.nextLine();
 
             good = new Good(id, name, description, price, stock, category);
-            TxtUtil.updateGoodInTxt(good); // 更新商品信息
+            Storage.catalog().update(good); // 更新商品信息
             System.out.println("商品修改成功！");
         } else {
             System.out.println("未找到该商品。");
@@ -95,7 +95,7 @@ public class AdminService {
     public void deleteGood() {
         System.out.print("请输入要删除的商品ID: ");
         String id = scanner.nextLine();
-        TxtUtil.deleteGoodFromTxt(id); // 从TXT文件中删除商品
+        Storage.catalog().delete(id); // 从TXT文件中删除商品
         System.out.println("商品删除成功！");
     }
 
@@ -104,17 +104,7 @@ public class AdminService {
      * @details 根据商品ID从系统中删除商品
      */
     public static void viewGoods() {
-        // 确保商品数据已经加载
-        TxtUtil.loadGoods(); // 重新加载商品列表
-
-        List<Good> goods = TxtUtil.getGoodsList(); // 获取静态商品列表
-        if (goods.isEmpty()) {
-            System.out.println("当前没有商品信息。");
-        } else {
-            for (Good good : goods) {
-                System.out.println(good);
-            }
-        }
+        GoodService.viewGoods(); // 分页显示，只格式化一页
     }
 
     /**
@@ -122,7 +112,7 @@ public class AdminService {
      * @details 读取并显示系统中的所有用户
      */
     public void viewUsers() {
-        List<User> users = UserUtil.readUsersFromTxt(); // 读取所有用户
+        List<User> users = Storage.users().findAll(); // 读取所有用户
         if (users.isEmpty()) {
             System.out.println("没有找到任何用户。");
         } else {
@@ -141,10 +131,98 @@ public class AdminService {
         System.out.print("请输入要删除的用户用户名: ");
         String username = scanner.nextLine();
 
-        if (UserUtil.deleteUserByUsername(username)) {
+        if (Storage.users().delete(username)) {
             System.out.println("用户删除成功！");
         } else {
             System.out.println("未找到该用户或删除失败。");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @brief 销售报表方法
+     * @details 读取全部购买记录建立一份销售分析快照，之后反复选择查看销量排行、类别销售额、
+     *          用户消费排行和每日销售趋势，各报表都基于同一份快照
+     */
+    public void viewSalesReports() {
+        SalesAnalytics analytics;
+        long start = System.nanoTime();
+        try {
+            analytics = SalesAnalytics.load();
+        } catch (IOException e) {
+            System.out.println("读取购买记录失败：" + e.getMessage());
+            return;
+        }
+        System.out.println("已读取 " + analytics.getRecordCount() + " 条购买记录（跳过 " + analytics.getSkipped()
+                + " 条格式错误的记录），耗时 " + (System.nanoTime() - start) / 1000000 + " 毫秒");
+        while (true) {
+            System.out.println("1. 销量排行");
+            System.out.println("2. 各类别销售额");
+            System.out.println("3. 用户消费排行");
+            System.out.println("4. 每日销售趋势");
+            System.out.println("5. 返回");
+            System.out.print("请选择报表: ");
+            String choice = scanner.nextLine().trim();
+            List<SalesAnalytics.ReportRow> rows;
+            switch (choice) {
+                case "1":
+                    rows = analytics.topSellers(readLimit());
+                    break;
+                case "2":
+                    rows = analytics.revenueByCategory();
+                    break;
+                case "3":
+                    rows = analytics.topSpenders(readLimit());
+                    break;
+                case "4":
+                    rows = analytics.salesByDay();
+                    break;
+                case "5":
+                    return;
+                default:
+                    System.out.println("无效的选择，请重新输入。");
+                    continue;
+            }
+            if (rows.isEmpty()) {
+                System.out.println("没有可统计的购买记录。");
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                System.out.println((i + 1) + ". " + rows.get(i));
+            }
+        }
+    }
+
+    /**
+     * @brief 实时销售指标方法
+     * @details 显示进程启动以来的订单数、销量和销售额，最近 1 分钟和 5 分钟的订单数与销量，
+     *          以及销量最高的商品和各类别的销售额；数据来自结算时增量更新的计数器，不读取购买记录文件
+     */
+    public void viewSalesMetrics() {
+        SalesMetrics metrics = SalesMetrics.shared();
+        System.out.println("累计订单数: " + metrics.getOrders() + "，销量: " + metrics.getUnits()
+                + "，销售额: " + String.format("%.2f", metrics.getRevenue()));
+        System.out.println("最近 1 分钟: " + metrics.ordersInLast(60) + " 个订单，" + metrics.unitsInLast(60) + " 件商品");
+        System.out.println("最近 5 分钟: " + metrics.ordersInLast(300) + " 个订单，" + metrics.unitsInLast(300) + " 件商品");
+        Map<String, Long> topGoods = metrics.topGoods(10);
+        if (!topGoods.isEmpty()) {
+            System.out.println("销量最高的商品：");
+            topGoods.forEach((id, units) -> System.out.println("商品ID: " + id + ", 销量: " + units));
+            System.out.println("各类别销售额：");
+            metrics.revenueByCategory().forEach((category, revenue) ->
+                    System.out.println(category + ": " + String.format("%.2f", revenue)));
+        }
+    }
+
+    /**
+     * @brief 读取排行榜显示的条数
+     * @return 输入的正整数，直接回车或输入非法时为 10
+     */
+    private int readLimit() {
+        System.out.print("请输入显示的条数（默认 10）: ");
+        try {
+            int limit = Integer.parseInt(scanner.nextLine().trim());
+            return limit > 0 ? limit : 10;
+        } catch (NumberFormatException e) {
+            return 10;
+        }
+    }
+}
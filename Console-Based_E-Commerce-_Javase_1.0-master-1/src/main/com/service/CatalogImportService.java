@@ -0,0 +1,259 @@
+/**
+ * @file CatalogImportService.java
+ * @brief 商品批量导入导出服务类，提供从 CSV 文件批量导入商品和导出商品目录的操作方法
+ * @package main.com.service
+ */
+package main.com.service;
+
+import main.com.model.Good;
+import main.com.storage.Storage;
+import main.com.storage.StorageConfig;
+import main.com.util.CsvRecordReader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.stream.IntStream;
+
+/**
+ * @class CatalogImportService
+ * @brief 商品批量导入导出服务类
+ * @details 导入文件与 goods.txt 格式相同（id,name,description,price,stock,category，表头可有可无）。
+ *          文件按批流式读取，每批记录并行解析并按 GoodService.validateGoodData 的规则校验，
+ *          校验通过的商品按 ID 去重（后出现的覆盖先出现的），全部读完后通过 CatalogRepository.importAll
+ *          一次性合并进目录并写出一个新快照，不再逐个追加日志和发布快照
+ */
+public class CatalogImportService {
+    /** @brief 每批并行校验的记录数 */
+    private static final int BATCH_SIZE = 8192;
+    /** @brief 报告中最多保留的错误信息条数 */
+    private static final int MAX_ERRORS = 20;
+
+    /** @brief 系统输入扫描器 */
+    private Scanner scanner = new Scanner(System.in);
+
+    /**
+     * @class ImportReport
+     * @brief 一次批量导入的结果
+     */
+    public static class ImportReport {
+        /** @brief 导入（新增或替换）的商品数 */
+        private int imported;
+        /** @brief 被同一文件中后出现的相同 ID 覆盖的记录数 */
+        private int duplicates;
+        /** @brief 校验失败被跳过的记录数 */
+        private int rejected;
+        /** @brief 导入的商品是否以一次快照写入持久化 */
+        private boolean snapshotWritten;
+        /** @brief 前若干条校验失败的原因 */
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * @brief 获取导入的商品数
+         * @return 导入的商品数
+         */
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * @brief 获取重复记录数
+         * @return 被覆盖的重复记录数
+         */
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * @brief 获取被跳过的记录数
+         * @return 校验失败的记录数
+         */
+        public int getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @brief 判断是否以一次快照写入持久化
+         * @return 一次写入新快照时返回 true，退化为逐条记入日志时返回 false
+         */
+        public boolean isSnapshotWritten() {
+            return snapshotWritten;
+        }
+
+        /**
+         * @brief 获取校验失败的原因
+         * @return 最多 MAX_ERRORS 条错误信息
+         */
+        public List<String> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * @brief 记录一条校验失败的记录
+         * @param recordNumber 记录序号，从 1 开始
+         * @param message 失败原因
+         */
+        private void reject(long recordNumber, String message) {
+            rejected++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("第 " + recordNumber + " 条记录：" + message);
+            }
+        }
+    }
+
+    /**
+     * @class ParsedRow
+     * @brief 一条记录的解析结果，商品和错误信息二者有其一
+     */
+    private static class ParsedRow {
+        /** @brief 校验通过的商品 */
+        private final Good good;
+        /** @brief 校验失败的原因 */
+        private final String error;
+
+        /**
+         * @brief 构造函数
+         * @param good 校验通过的商品
+         * @param error 校验失败的原因
+         */
+        private ParsedRow(Good good, String error) {
+            this.good = good;
+            this.error = error;
+        }
+    }
+
+    /**
+     * @brief 从字符流批量导入商品
+     * @param reader 商品文件格式的字符流，由本方法关闭
+     * @return 导入结果
+     * @throws IOException 读取失败时抛出，此时目录不变
+     */
+    public static ImportReport importCsv(Reader reader) throws IOException {
+        ImportReport report = new ImportReport();
+        Map<String, Good> goods = new LinkedHashMap<>();
+        List<String[]> batch = new ArrayList<>(BATCH_SIZE);
+        long recordNumber = 0; // 当前批次第一条记录之前的记录数
+        try (CsvRecordReader record = new CsvRecordReader(reader)) {
+            boolean first = true;
+            while (record.next()) {
+                if (first) {
+                    first = false;
+                    if (record.fieldEquals(0, "id")) {
+                        continue; // 跳过表头
+                    }
+                }
+                String[] fields = new String[record.fieldCount()];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = record.getString(i);
+                }
+                batch.add(fields);
+                if (batch.size() == BATCH_SIZE) {
+                    mergeBatch(batch, recordNumber, goods, report);
+                    recordNumber += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        mergeBatch(batch, recordNumber, goods, report);
+        if (!goods.isEmpty()) {
+            report.snapshotWritten = Storage.catalog().importAll(goods.values());
+        }
+        report.imported = goods.size();
+        return report;
+    }
+
+    /**
+     * @brief 将当前商品目录导出到字符流
+     * @param writer 输出目标，调用方负责关闭
+     * @return 导出的商品数
+     * @throws IOException 写入失败时抛出
+     * @details 导出结果可以直接作为 goods.txt 或再次导入
+     */
+    public static int exportCsv(Writer writer) throws IOException {
+        return Storage.catalog().export(writer);
+    }
+
+    /**
+     * @brief 并行校验一批记录并按顺序合并
+     * @param batch 一批记录的字段
+     * @param recordNumber 本批次第一条记录之前的记录数
+     * @param goods 已校验通过的商品，按 ID 去重
+     * @param report 导入结果
+     */
+    private static void mergeBatch(List<String[]> batch, long recordNumber, Map<String, Good> goods, ImportReport report) {
+        ParsedRow[] rows = IntStream.range(0, batch.size()).parallel()
+                .mapToObj(i -> parse(batch.get(i)))
+                .toArray(ParsedRow[]::new);
+        for (int i = 0; i < rows.length; i++) { // 按文件顺序合并，重复 ID 保留后出现的记录
+            if (rows[i].error != null) {
+                report.reject(recordNumber + i + 1, rows[i].error);
+            } else if (goods.put(rows[i].good.getId(), rows[i].good) != null) {
+                report.duplicates++;
+            }
+        }
+    }
+
+    /**
+     * @brief 解析并校验一条记录
+     * @param fields 记录的字段
+     * @return 解析结果
+     */
+    private static ParsedRow parse(String[] fields) {
+        if (fields.length != 6) {
+            return new ParsedRow(null, "字段数应为 6，实际为 " + fields.length);
+        }
+        try {
+            String id = fields[0].trim();
+            double price = Double.parseDouble(fields[3].trim());
+            int stock = Integer.parseInt(fields[4].trim());
+            GoodService.validateGoodData(id, fields[1], fields[2], price, stock, fields[5]);
+            return new ParsedRow(new Good(id, fields[1], fields[2], price, stock, fields[5]), null);
+        } catch (NumberFormatException e) {
+            return new ParsedRow(null, "价格或库存不是有效的数字");
+        } catch (IllegalArgumentException e) {
+            return new ParsedRow(null, e.getMessage());
+        }
+    }
+
+    /**
+     * @brief 批量导入商品方法
+     * @details 提示输入 CSV 文件路径，导入后显示导入、重复和跳过的记录数
+     */
+    public void importGoods() {
+        System.out.print("请输入要导入的商品文件路径: ");
+        String path = scanner.nextLine().trim();
+        try {
+            ImportReport report = importCsv(Files.newBufferedReader(Paths.get(path), StorageConfig.CHARSET));
+            for (String error : report.getErrors()) {
+                System.out.println(error);
+            }
+            System.out.println("导入完成：导入 " + report.getImported() + " 件商品，重复 " + report.getDuplicates()
+                    + " 条，跳过 " + report.getRejected() + " 条。");
+            if (report.getImported() > 0 && !report.isSnapshotWritten()) {
+                System.out.println("警告：商品快照写入失败，导入的商品已逐条记入日志。");
+            }
+        } catch (IOException e) {
+            System.out.println("导入失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * @brief 导出商品方法
+     * @details 提示输入目标文件路径，将当前商品目录写入该文件
+     */
+    public void exportGoods() {
+        System.out.print("请输入导出文件路径: ");
+        String path = scanner.nextLine().trim();
+        try (Writer writer = Files.newBufferedWriter(Paths.get(path), StorageConfig.CHARSET)) {
+            System.out.println("已导出 " + exportCsv(writer) + " 件商品。");
+        } catch (IOException e) {
+            System.out.println("导出失败：" + e.getMessage());
+        }
+    }
+}
@@ -5,10 +5,15 @@
  */
 package main.com.service;
 
+import main.com.model.CatalogPage;
 import main.com.model.Good;
-import main.com.util.TxtUtil;
+import main.com.search.FacetIndex;
+import main.com.storage.Storage;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**
@@ -17,28 +22,129 @@ import java.util.Scanner;
  * @details 处理商品相关的业务逻辑和用户交互
  */
 public class GoodService {
+    /** @brief 控制台每页显示的商品数 */
+    private static final int PAGE_SIZE = 10;
+    /** @brief 类别和价格二级索引 */
+    private static final FacetIndex facetIndex = new FacetIndex();
+    /** @brief 二级索引是否已建立 */
+    private static volatile boolean facetIndexReady;
     /** @brief 系统输入扫描器 */
     private Scanner scanner = new Scanner(System.in);
 
     /**
-     * @brief 查看所有商品方法
-     * @details 加载并显示系统中的所有商品信息
+     * @brief 查看商品方法
+     * @details 显示当前目录快照中价格最低的一页商品，完整浏览请使用 browseGoods
      * @note 静态方法，可直接调用
      */
     public static void viewGoods() {
-        // 确保商品数据已经加载
-        TxtUtil.loadGoods(); // 重新加载商品列表
+        printPage(Storage.catalog().snapshot().page(null, null, PAGE_SIZE)); // 只格式化一页，不读文件也不复制
+    }
 
-        List<Good> goods = TxtUtil.getGoodsList(); // 获取静态商品列表
-        if (goods.isEmpty()) {
-            System.out.println("当前没有商品信息。");
-        } else {
+    /**
+     * @brief 分页浏览商品方法
+     * @details 可按类别筛选，按价格从低到高逐页显示；每页通过游标在最新的目录快照中二分定位页首，
+     *          翻页期间目录被修改也不会重复或遗漏未变化的商品
+     */
+    public void browseGoods() {
+        System.out.print("请输入要筛选的商品类别（直接回车显示全部）: ");
+        String category = scanner.nextLine().trim();
+        Deque<String> previousCursors = new ArrayDeque<>(); // 之前各页的游标，空串表示第一页
+        String cursor = "";
+        while (true) {
+            CatalogPage page = Storage.catalog().snapshot().page(category, cursor, PAGE_SIZE);
+            printPage(page);
+            if (page.getTotal() == 0) {
+                return;
+            }
+            System.out.print("n 下一页，p 上一页，q 返回: ");
+            String command = scanner.nextLine().trim();
+            if (command.equalsIgnoreCase("n")) {
+                if (page.hasNext()) {
+                    previousCursors.push(cursor);
+                    cursor = page.getNextCursor();
+                } else {
+                    System.out.println("已经是最后一页。");
+                }
+            } else if (command.equalsIgnoreCase("p")) {
+                if (previousCursors.isEmpty()) {
+                    System.out.println("已经是第一页。");
+                } else {
+                    cursor = previousCursors.pop();
+                }
+            } else if (command.equalsIgnoreCase("q")) {
+                return;
+            } else {
+                System.out.println("无效的选择，请重新输入。");
+            }
+        }
+    }
+
+    /**
+     * @brief 获取类别和价格二级索引
+     * @return 二级索引，第一次调用时按当前商品目录建立，之后随目录修改增量更新
+     */
+    public static FacetIndex facets() {
+        if (!facetIndexReady) {
+            synchronized (GoodService.class) {
+                if (!facetIndexReady) {
+                    facetIndex.attach(Storage.catalog());
+                    facetIndexReady = true;
+                }
+            }
+        }
+        return facetIndex;
+    }
+
+    /**
+     * @brief 按类别和价格区间筛选商品方法
+     * @details 先显示各类别的商品数，再按输入的类别和价格区间从低到高显示商品
+     * @throws NumberFormatException 当价格输入非法数字时
+     */
+    public void filterGoods() {
+        Map<String, Integer> counts = facets().facetCounts();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            System.out.println(entry.getKey() + " (" + entry.getValue() + ")");
+        }
+        try {
+            System.out.print("请输入商品类别（直接回车不限类别）: ");
+            String category = scanner.nextLine().trim();
+            System.out.print("请输入最低价格（直接回车不限）: ");
+            String min = scanner.nextLine().trim();
+            System.out.print("请输入最高价格（直接回车不限）: ");
+            String max = scanner.nextLine().trim();
+            double minPrice = min.isEmpty() ? 0 : Double.parseDouble(min);
+            double maxPrice = max.isEmpty() ? Double.MAX_VALUE : Double.parseDouble(max);
+
+            List<Good> goods = facets().query(category, minPrice, maxPrice, true, PAGE_SIZE * 2);
+            if (goods.isEmpty()) {
+                System.out.println("没有符合条件的商品。");
+                return;
+            }
             for (Good good : goods) {
                 System.out.println(good);
             }
+            System.out.println("共 " + facets().count(category, minPrice, maxPrice) + " 件符合条件，按价格从低到高显示前 " + goods.size() + " 件");
+        } catch (NumberFormatException e) {
+            System.out.println("错误：价格输入非法，请输入有效的数字。");
         }
     }
 
+    /**
+     * @brief 显示一页商品
+     * @param page 分页结果
+     */
+    private static void printPage(CatalogPage page) {
+        if (page.getTotal() == 0) {
+            System.out.println("当前没有商品信息。");
+            return;
+        }
+        for (Good good : page.getGoods()) {
+            System.out.println(good);
+        }
+        System.out.println("第 " + (page.getOffset() + 1) + "-" + (page.getOffset() + page.getGoods().size())
+                + " 件，共 " + page.getTotal() + " 件");
+    }
+
     /**
      * @brief 添加商品方法
      * @details 通过控制台交互输入商品信息，并将商品保存到系统
@@ -60,13 +166,15 @@ public class GoodService {
             String category = scanner.nextLine();
 
             // 数据验证
-            validateGoodData(id, name, price, stock);
+            validateGoodData(id, name, description, price, stock, category);
 
             Good good = new Good(id, name, description, price, stock, category);
-            TxtUtil.addGoodToTxt(good); // 将商品添加到TXT文件
+            Storage.catalog().add(good); // 将商品添加到TXT文件
             System.out.println("商品添加成功！");
         } catch (NumberFormatException e) {
             System.out.println("错误：价格或库存输入非法，请输入有效的数字。");
+        } catch (IllegalArgumentException e) {
+            System.out.println("错误：" + e.getMessage());
         }
     }
 
@@ -79,7 +187,7 @@ public class GoodService {
         try {
             System.out.print("请输入要修改的商品ID: ");
             String id = scanner.nextLine();
-            Good good = TxtUtil.getGoodById(id); // 根据ID获取商品
+            Good good = Storage.catalog().findById(id); // 根据ID获取商品
             if (good != null) {
                 System.out.print("请输入新的商品名称 (当前: " + good.getName() + "): ");
                 String name = scanner.nextLine();
@@ -93,16 +201,18 @@ public class GoodService {
                 String category = scanner.nextLine();
 
                 // 数据验证
-                validateGoodData(id, name, price, stock);
+                validateGoodData(id, name, description, price, stock, category);
 
                 good = new Good(id, name, description, price, stock, category);
-                TxtUtil.updateGoodInTxt(good); // 更新商品信息
+                Storage.catalog().update(good); // 更新商品信息
                 System.out.println("商品修改成功！");
             } else {
                 System.out.println("未找到该商品。");
             }
         } catch (NumberFormatException e) {
             System.out.println("错误：价格或库存输入非法，请输入有效的数字。");
+        } catch (IllegalArgumentException e) {
+            System.out.println("错误：" + e.getMessage());
         }
     }
 
@@ -113,7 +223,7 @@ public class GoodService {
     public void deleteGood() {
         System.out.print("请输入要删除的商品ID: ");
         String id = scanner.nextLine();
-        TxtUtil.deleteGoodFromTxt(id); // 从TXT文件中删除商品
+        Storage.catalog().delete(id); // 从TXT文件中删除商品
         System.out.println("商品删除成功！");
     }
 
@@ -121,17 +231,25 @@ public class GoodService {
      * @brief 商品数据验证方法
      * @param id 商品ID
      * @param name 商品名称
+     * @param description 商品描述，可为空
      * @param price 商品价格
      * @param stock 商品库存
+     * @param category 商品类别，可为空
      * @throws IllegalArgumentException 当输入的数据不合法时
+     * @details 商品以逗号分隔、一行一条写入 goods.txt 和商品日志，文本字段中的逗号或换行会让记录错位，
+     *          换行还能伪造出额外的日志记录，因此一律拒绝
      */
-    private void validateGoodData(String id, String name, double price, int stock) {
+    public static void validateGoodData(String id, String name, String description, double price, int stock, String category) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("商品ID不能为空");
         }
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("商品名称不能为空");
         }
+        checkTextField("商品ID", id);
+        checkTextField("商品名称", name);
+        checkTextField("商品描述", description);
+        checkTextField("商品类别", category);
         if (price < 0) {
             throw new IllegalArgumentException("商品价格不能为负数");
         }
@@ -139,4 +257,16 @@ public class GoodService {
             throw new IllegalArgumentException("商品库存不能为负数");
         }
     }
+
+    /**
+     * @brief 检查文本字段不含分隔符
+     * @param label 字段名，用于错误信息
+     * @param value 字段值，可为 null
+     * @throws IllegalArgumentException 字段含有逗号、回车或换行时抛出
+     */
+    private static void checkTextField(String label, String value) {
+        if (value != null && (value.indexOf(',') >= 0 || value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0)) {
+            throw new IllegalArgumentException(label + "不能包含逗号或换行");
+        }
+    }
 }
\ No newline at end of file
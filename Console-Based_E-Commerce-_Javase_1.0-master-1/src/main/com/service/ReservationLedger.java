@@ -0,0 +1,340 @@
+/**
+ * @file ReservationLedger.java
+ * @brief 库存预留台账类，记录购物车对库存的临时占用
+ * @package main.com.service
+ */
+package main.com.service;
+
+import main.com.model.Good;
+import main.com.storage.Storage;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * @class ReservationLedger
+ * @brief 带有效期的内存库存预留
+ * @details 加入购物车只在内存中预留库存，不修改商品库存也不写文件；商品的可用数量为持久库存减去未过期的预留。
+ *          每个预留在最近一次修改后 shop.reservation.ttl.seconds 秒（默认 900 秒）过期，
+ *          后台线程定期释放过期预留，被放弃的购物车不会长期占用库存。只有结算时 commitAll 才扣减持久库存。
+ *          加锁顺序固定为先持有者的预留表、后商品的预留计数，避免死锁。
+ *          预留表的锁是 ReentrantLock：commitAll 持有它等待刷盘，在虚拟线程上等待时不会占住承载的平台线程
+ */
+public class ReservationLedger {
+    /** @brief 全局共享的预留台账 */
+    private static final ReservationLedger shared = new ReservationLedger(
+            TimeUnit.SECONDS.toMillis(Long.getLong("shop.reservation.ttl.seconds", 900)));
+
+    /**
+     * @class Hold
+     * @brief 一个持有者对一种商品的预留
+     */
+    private static class Hold {
+        /** @brief 预留数量 */
+        private int quantity;
+        /** @brief 过期时间（毫秒） */
+        private long expiresAt;
+    }
+
+    /**
+     * @class Holds
+     * @brief 一个持有者的全部预留及其锁
+     */
+    private static class Holds {
+        /** @brief 商品ID到预留的映射，由 lock 保护 */
+        private final Map<String, Hold> byGood = new HashMap<>();
+        /** @brief 预留表的锁 */
+        private final ReentrantLock lock = new ReentrantLock();
+    }
+
+    /**
+     * @class Reserved
+     * @brief 一种商品被预留的总数，同时作为该商品预留和扣减的锁
+     */
+    private static class Reserved {
+        /** @brief 未过期预留的总数 */
+        private int total;
+    }
+
+    /** @brief 持有者（会话ID）到其预留表的映射 */
+    private final Map<String, Holds> holdsByOwner = new ConcurrentHashMap<>();
+    /** @brief 商品ID到预留总数的映射 */
+    private final Map<String, Reserved> reservedByGood = new ConcurrentHashMap<>();
+    /** @brief 预留有效期（毫秒） */
+    private final long ttlMillis;
+    /** @brief 后台释放线程，第一次预留时启动 */
+    private volatile ScheduledExecutorService sweeper;
+
+    /**
+     * @brief 构造函数
+     * @param ttlMillis 预留有效期（毫秒）
+     */
+    public ReservationLedger(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @brief 获取全局共享的预留台账
+     * @return 预留台账
+     */
+    public static ReservationLedger shared() {
+        return shared;
+    }
+
+    /**
+     * @brief 预留库存，已有预留时累加数量并顺延有效期
+     * @param owner 持有者，通常为会话ID
+     * @param good 商品
+     * @param quantity 预留数量，必须为正数
+     * @return 可用数量足够并预留成功时返回 true
+     */
+    public boolean reserve(String owner, Good good, int quantity) {
+        startSweeper();
+        while (true) {
+            Holds holds = holdsByOwner.computeIfAbsent(owner, key -> new Holds());
+            holds.lock.lock();
+            try {
+                if (holdsByOwner.get(owner) != holds) {
+                    continue; // 预留表刚被释放线程或 releaseAll 移除，重新获取
+                }
+                Reserved reserved = reservedOf(good.getId());
+                synchronized (reserved) {
+                    if (durableStock(good) - reserved.total < quantity) {
+                        return false;
+                    }
+                    reserved.total += quantity;
+                }
+                Hold hold = holds.byGood.computeIfAbsent(good.getId(), key -> new Hold());
+                hold.quantity += quantity;
+                hold.expiresAt = System.currentTimeMillis() + ttlMillis;
+                return true;
+            } finally {
+                holds.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @brief 释放部分预留
+     * @param owner 持有者
+     * @param goodId 商品ID
+     * @param quantity 释放数量，超过预留数量时全部释放
+     */
+    public void release(String owner, String goodId, int quantity) {
+        Holds holds = holdsByOwner.get(owner);
+        if (holds == null) {
+            return;
+        }
+        holds.lock.lock();
+        try {
+            Hold hold = holds.byGood.get(goodId);
+            if (hold == null) {
+                return; // 预留已过期
+            }
+            int released = Math.min(quantity, hold.quantity);
+            hold.quantity -= released;
+            if (hold.quantity == 0) {
+                holds.byGood.remove(goodId);
+            }
+            unreserve(goodId, released);
+        } finally {
+            holds.lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 释放持有者的全部预留
+     * @param owner 持有者
+     */
+    public void releaseAll(String owner) {
+        Holds holds = holdsByOwner.get(owner);
+        if (holds == null) {
+            return;
+        }
+        holds.lock.lock();
+        try {
+            holdsByOwner.remove(owner, holds);
+            for (Map.Entry<String, Hold> entry : holds.byGood.entrySet()) {
+                unreserve(entry.getKey(), entry.getValue().quantity);
+            }
+            holds.byGood.clear();
+        } finally {
+            holds.lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 确保持有者对商品至少预留了指定数量，并顺延有效期
+     * @param owner 持有者
+     * @param good 商品
+     * @param quantity 需要的数量
+     * @return 原有预留足够，或过期部分重新预留成功时返回 true
+     * @details 结算前调用；预留已被后台线程释放时按当前可用数量重新预留
+     */
+    public boolean ensure(String owner, Good good, int quantity) {
+        Holds holds = holdsByOwner.get(owner);
+        int held = 0;
+        if (holds != null) {
+            holds.lock.lock();
+            try {
+                Hold hold = holds.byGood.get(good.getId());
+                if (hold != null) {
+                    hold.expiresAt = System.currentTimeMillis() + ttlMillis;
+                    held = hold.quantity;
+                }
+            } finally {
+                holds.lock.unlock();
+            }
+        }
+        return held >= quantity || reserve(owner, good, quantity - held);
+    }
+
+    /**
+     * @brief 将一个订单的全部预留一次性转为持久扣减
+     * @param owner 持有者
+     * @param order 订单中的商品及其数量，调用方需先以 ensure 确认已预留
+     * @param durableCommit 扣减持久库存并写入订单的操作，返回是否成功
+     * @return 订单提交成功时返回 true；任一预留不足或提交失败时返回 false，预留保持不变
+     * @details 持有该持有者的预留表锁完成提交，同一持有者的并发结算互斥；提交期间不持有商品的预留计数锁，
+     *          其他持有者的预留和结算不被阻塞，可以与本次提交合并刷盘。提交成功后才减少预留，
+     *          中间其他线程看到的可用数量只会偏少而不会虚增
+     */
+    public boolean commitAll(String owner, Map<Good, Integer> order, BooleanSupplier durableCommit) {
+        Holds holds = holdsByOwner.get(owner);
+        if (holds == null) {
+            return false;
+        }
+        holds.lock.lock();
+        try {
+            for (Map.Entry<Good, Integer> item : order.entrySet()) {
+                Hold hold = holds.byGood.get(item.getKey().getId());
+                if (hold == null || hold.quantity < item.getValue()) {
+                    return false;
+                }
+            }
+            if (!durableCommit.getAsBoolean()) {
+                return false;
+            }
+            for (Map.Entry<Good, Integer> item : order.entrySet()) {
+                String goodId = item.getKey().getId();
+                Hold hold = holds.byGood.get(goodId);
+                hold.quantity -= item.getValue();
+                if (hold.quantity == 0) {
+                    holds.byGood.remove(goodId);
+                }
+                unreserve(goodId, item.getValue());
+            }
+            return true;
+        } finally {
+            holds.lock.unlock();
+        }
+    }
+
+    /**
+     * @brief 获取商品的可用数量
+     * @param good 商品
+     * @return 持久库存减去未过期的预留
+     */
+    public int available(Good good) {
+        Reserved reserved = reservedByGood.get(good.getId());
+        if (reserved == null) {
+            return durableStock(good);
+        }
+        synchronized (reserved) {
+            return durableStock(good) - reserved.total;
+        }
+    }
+
+    /**
+     * @brief 释放所有过期的预留
+     * @return 释放的预留条数
+     */
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        int released = 0;
+        for (Iterator<Map.Entry<String, Holds>> owners = holdsByOwner.entrySet().iterator(); owners.hasNext(); ) {
+            Holds holds = owners.next().getValue();
+            holds.lock.lock();
+            try {
+                for (Iterator<Map.Entry<String, Hold>> iterator = holds.byGood.entrySet().iterator(); iterator.hasNext(); ) {
+                    Map.Entry<String, Hold> entry = iterator.next();
+                    if (entry.getValue().expiresAt <= now) {
+                        unreserve(entry.getKey(), entry.getValue().quantity);
+                        iterator.remove();
+                        released++;
+                    }
+                }
+                if (holds.byGood.isEmpty()) {
+                    owners.remove(); // reserve 发现预留表被移除时会重新获取
+                }
+            } finally {
+                holds.lock.unlock();
+            }
+        }
+        return released;
+    }
+
+    /**
+     * @brief 获取商品的预留计数，不存在时创建
+     * @param goodId 商品ID
+     * @return 预留计数
+     */
+    private Reserved reservedOf(String goodId) {
+        return reservedByGood.computeIfAbsent(goodId, key -> new Reserved());
+    }
+
+    /**
+     * @brief 减少商品的预留总数
+     * @param goodId 商品ID
+     * @param quantity 数量
+     */
+    private void unreserve(String goodId, int quantity) {
+        Reserved reserved = reservedOf(goodId);
+        synchronized (reserved) {
+            reserved.total -= quantity;
+        }
+    }
+
+    /**
+     * @brief 获取商品的持久库存
+     * @param good 商品
+     * @return 当前目录中该商品的库存；商品已下架时返回调用方持有对象的库存
+     */
+    private static int durableStock(Good good) {
+        Good current = Storage.catalog().findById(good.getId());
+        return (current != null ? current : good).getStock();
+    }
+
+    /**
+     * @brief 启动后台释放线程，重复调用无效
+     */
+    private void startSweeper() {
+        if (sweeper == null) {
+            synchronized (this) {
+                if (sweeper == null) {
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "reservation-sweeper");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    long period = Math.max(1000, ttlMillis / 4);
+                    executor.scheduleWithFixedDelay(() -> {
+                        try {
+                            sweep();
+                        } catch (RuntimeException e) {
+                            e.printStackTrace();
+                        }
+                    }, period, period, TimeUnit.MILLISECONDS);
+                    sweeper = executor;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,680 @@
+/**
+ * @file SalesAnalytics.java
+ * @brief 销售分析类，按列存储购买记录并并行统计销量、销售额和消费排行
+ * @package main.com.service
+ */
+package main.com.service;
+
+import main.com.model.Good;
+import main.com.storage.Storage;
+import main.com.util.CsvRecordReader;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * @class SalesAnalytics
+ * @brief 购买记录的列式快照和销售报表
+ * @details load 通过 PurchaseRepository.scan 分块并行解析全部购买记录，每块得到用户编号、商品编号、数量和时间四个基本类型数组，
+ *          商品ID按加载时的商品目录预先编码，各块并发只读地查找，不在目录中的商品ID和用户名在块内字典编码后再合并为全局编号，
+ *          每条记录只占 20 字节，不为每条记录创建对象。
+ *          各报表把数据块分给公共线程池的各个线程，每个线程把自己负责的块累加进一个按编号下标的基本类型数组，最后逐元素相加。
+ *          购买记录不含成交价，销售额按加载时商品目录中的当前价格计算，已下架商品的销售额计为 0、类别记为"已下架"。
+ *          旧版本写入的没有时间戳的记录计入销量和销售额，但不出现在按日统计中
+ */
+public class SalesAnalytics {
+    /** @brief 一天的毫秒数 */
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    /** @brief 已下架商品的类别名 */
+    private static final String REMOVED_CATEGORY = "已下架";
+    /** @brief 数据块的初始容量，记录更多时按倍数扩容 */
+    private static final int BLOCK_CAPACITY = 1 << 14;
+
+    /** @brief 数据块，编号已换算为全局编号 */
+    private final List<Block> blocks;
+    /** @brief 用户编号到用户名 */
+    private final String[] usernames;
+    /** @brief 商品编号到商品ID */
+    private final String[] goodIds;
+    /** @brief 商品编号到当前价格 */
+    private final double[] prices;
+    /** @brief 商品编号到类别编号 */
+    private final int[] goodCategories;
+    /** @brief 类别编号到类别名 */
+    private final String[] categories;
+    /** @brief 有效记录数 */
+    private final long recordCount;
+    /** @brief 格式错误被跳过的记录数 */
+    private final long skipped;
+    /** @brief 最早的购买日（距 1970-01-01 的天数），没有带时间戳的记录时为 Long.MAX_VALUE */
+    private final long firstDay;
+    /** @brief 最晚的购买日，没有带时间戳的记录时为 Long.MIN_VALUE */
+    private final long lastDay;
+    /** @brief 本地时区相对 UTC 的毫秒偏移，加载时确定 */
+    private final long zoneOffsetMillis;
+
+    /**
+     * @class ReportRow
+     * @brief 报表中的一行
+     */
+    public static class ReportRow {
+        /** @brief 行的名称：商品ID、类别、用户名或日期 */
+        private final String key;
+        /** @brief 销量 */
+        private final long quantity;
+        /** @brief 销售额 */
+        private final double revenue;
+
+        /**
+         * @brief 构造函数
+         * @param key 行的名称
+         * @param quantity 销量
+         * @param revenue 销售额
+         */
+        private ReportRow(String key, long quantity, double revenue) {
+            this.key = key;
+            this.quantity = quantity;
+            this.revenue = revenue;
+        }
+
+        /**
+         * @brief 获取行的名称
+         * @return 商品ID、类别、用户名或日期
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @brief 获取销量
+         * @return 购买数量之和
+         */
+        public long getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * @brief 获取销售额
+         * @return 按当前价格计算的销售额
+         */
+        public double getRevenue() {
+            return revenue;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s  销量: %d  销售额: %.2f", key, quantity, revenue);
+        }
+    }
+
+    /**
+     * @class Totals
+     * @brief 按编号下标的销量和销售额
+     */
+    private static class Totals {
+        /** @brief 销量 */
+        private final long[] units;
+        /** @brief 销售额 */
+        private final double[] revenue;
+
+        /**
+         * @brief 构造函数
+         * @param size 编号数
+         */
+        private Totals(int size) {
+            units = new long[size];
+            revenue = new double[size];
+        }
+
+        /**
+         * @brief 累加一条记录
+         * @param code 编号
+         * @param quantity 购买数量
+         * @param price 商品单价
+         */
+        private void add(int code, int quantity, double price) {
+            units[code] += quantity;
+            revenue[code] += quantity * price;
+        }
+
+        /**
+         * @brief 逐元素并入另一个结果
+         * @param other 另一个结果
+         * @return 本对象
+         */
+        private Totals merge(Totals other) {
+            for (int i = 0; i < units.length; i++) {
+                units[i] += other.units[i];
+                revenue[i] += other.revenue[i];
+            }
+            return this;
+        }
+
+        /**
+         * @brief 转换为报表中的一行
+         * @param key 行的名称
+         * @param code 编号
+         * @return 报表行
+         */
+        private ReportRow row(String key, int code) {
+            return new ReportRow(key, units[code], revenue[code]);
+        }
+    }
+
+    /**
+     * @class Dictionary
+     * @brief 字符串到连续编号的字典
+     * @details 开放寻址散列表，每个槽的高 32 位保存键的散列值、低 32 位保存编号加一，散列值不同时不必访问键；
+     *          键和散列值另按编号存放在数组中。按记录字段查找时比较缓冲区中的字符，只有新键才创建字符串，
+     *          比 HashMap 少了节点和装箱对象
+     */
+    private static class Dictionary {
+        /** @brief 散列槽，0 表示空槽 */
+        private long[] slots;
+        /** @brief 编号到散列值 */
+        private int[] hashes;
+        /** @brief 编号到键 */
+        private String[] keys;
+        /** @brief 键的个数 */
+        private int size;
+
+        /**
+         * @brief 构造函数
+         * @param expected 预计的键数，装入这么多键之前不需要扩容
+         */
+        private Dictionary(int expected) {
+            int capacity = 1024;
+            while (capacity < expected * 2) {
+                capacity <<= 1;
+            }
+            slots = new long[capacity];
+            hashes = new int[capacity / 2];
+            keys = new String[capacity / 2];
+        }
+
+        /**
+         * @brief 查找记录中一个字段的编号，不登记新键
+         * @param record 当前记录
+         * @param index 字段序号
+         * @return 字段内容的编号，不存在时返回 -1
+         * @details 不修改字典，多个线程可以同时查找
+         */
+        private int find(CsvRecordReader record, int index) {
+            int hash = record.fieldHash(index);
+            int mask = slots.length - 1;
+            for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                long entry = slots[slot];
+                int code = (int) entry - 1;
+                if (entry == 0 || ((int) (entry >>> 32) == hash && record.fieldEquals(index, keys[code]))) {
+                    return code;
+                }
+            }
+        }
+
+        /**
+         * @brief 查找或登记记录中一个字段的编号
+         * @param record 当前记录
+         * @param index 字段序号
+         * @return 字段内容的编号
+         */
+        private int code(CsvRecordReader record, int index) {
+            int hash = record.fieldHash(index);
+            int mask = slots.length - 1;
+            for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                long entry = slots[slot];
+                if (entry == 0) {
+                    return insert(slot, hash, record.getString(index));
+                }
+                int code = (int) entry - 1;
+                if ((int) (entry >>> 32) == hash && record.fieldEquals(index, keys[code])) {
+                    return code;
+                }
+            }
+        }
+
+        /**
+         * @brief 查找或登记一个键的编号
+         * @param key 键
+         * @param hash 键的散列值
+         * @return 键的编号
+         */
+        private int code(String key, int hash) {
+            int mask = slots.length - 1;
+            for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                long entry = slots[slot];
+                if (entry == 0) {
+                    return insert(slot, hash, key);
+                }
+                int code = (int) entry - 1;
+                if ((int) (entry >>> 32) == hash && keys[code].equals(key)) {
+                    return code;
+                }
+            }
+        }
+
+        /**
+         * @brief 把另一个字典的键并入本字典
+         * @param other 块内字典
+         * @return 另一个字典的编号到本字典编号的换算表
+         */
+        private int[] merge(Dictionary other) {
+            int[] map = new int[other.size];
+            for (int i = 0; i < other.size; i++) {
+                map[i] = code(other.keys[i], other.hashes[i]);
+            }
+            return map;
+        }
+
+        /**
+         * @brief 获取编号到键的数组
+         * @return 下标为编号的键数组
+         */
+        private String[] keys() {
+            return Arrays.copyOf(keys, size);
+        }
+
+        /**
+         * @brief 在空槽中登记新键
+         * @param slot 空槽位置
+         * @param hash 键的散列值
+         * @param key 键
+         * @return 新键的编号
+         */
+        private int insert(int slot, int hash, String key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                hashes = Arrays.copyOf(hashes, size * 2);
+            }
+            keys[size] = key;
+            hashes[size] = hash;
+            slots[slot] = entry(hash, size);
+            size++;
+            if (size * 2 > slots.length) { // 装载因子不超过 0.5
+                long[] grown = new long[slots.length * 2];
+                int mask = grown.length - 1;
+                for (int code = 0; code < size; code++) {
+                    int i = spread(hashes[code]) & mask;
+                    while (grown[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    grown[i] = entry(hashes[code], code);
+                }
+                slots = grown;
+            }
+            return size - 1;
+        }
+
+        /**
+         * @brief 组成一个槽的内容
+         * @param hash 键的散列值
+         * @param code 键的编号
+         * @return 槽的内容，不为 0
+         */
+        private static long entry(int hash, int code) {
+            return ((long) hash << 32) | (code + 1);
+        }
+
+        /**
+         * @brief 混合散列值的各位，减少线性探测的聚集
+         * @param hash 散列值
+         * @return 混合后的值（MurmurHash3 的 fmix32）
+         */
+        private static int spread(int hash) {
+            hash ^= hash >>> 16;
+            hash *= 0x85EBCA6B;
+            hash ^= hash >>> 13;
+            hash *= 0xC2B2AE35;
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * @class Block
+     * @brief 一个文件块中的记录，按列存放
+     */
+    private static class Block {
+        /** @brief 每条记录的用户编号，解析时为块内编号 */
+        private int[] users;
+        /** @brief 每条记录的商品编号，解析时不在商品目录中的商品为 -1 - 块内编号 */
+        private int[] goods;
+        /** @brief 每条记录的购买数量 */
+        private int[] quantities;
+        /** @brief 每条记录的购买时间（毫秒时间戳），旧记录为 0 */
+        private long[] times;
+        /** @brief 记录数 */
+        private int size;
+        /** @brief 格式错误的记录数 */
+        private int skipped;
+        /** @brief 块内用户名字典，并入全局字典后释放 */
+        private Dictionary userCodes = new Dictionary(0);
+        /** @brief 块内不在商品目录中的商品ID字典，并入全局字典后释放 */
+        private Dictionary goodCodes = new Dictionary(0);
+
+        /**
+         * @brief 构造函数
+         * @param capacity 预计的记录数
+         */
+        private Block(int capacity) {
+            users = new int[capacity];
+            goods = new int[capacity];
+            quantities = new int[capacity];
+            times = new long[capacity];
+        }
+
+        /**
+         * @brief 追加一条记录
+         * @param user 块内用户编号
+         * @param good 块内商品编号
+         * @param quantity 购买数量
+         * @param time 购买时间
+         */
+        private void add(int user, int good, int quantity, long time) {
+            if (size == users.length) {
+                int capacity = Math.max(16, size * 2);
+                users = Arrays.copyOf(users, capacity);
+                goods = Arrays.copyOf(goods, capacity);
+                quantities = Arrays.copyOf(quantities, capacity);
+                times = Arrays.copyOf(times, capacity);
+            }
+            users[size] = user;
+            goods[size] = good;
+            quantities[size] = quantity;
+            times[size] = time;
+            size++;
+        }
+
+        /**
+         * @brief 把块内编号换算为全局编号
+         * @param userMap 块内用户编号到全局编号
+         * @param goodMap 块内商品编号到全局编号，目录中的商品已是全局编号
+         */
+        private void remap(int[] userMap, int[] goodMap) {
+            for (int i = 0; i < size; i++) {
+                users[i] = userMap[users[i]];
+                if (goods[i] < 0) {
+                    goods[i] = goodMap[-1 - goods[i]];
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief 构造函数，合并各块的字典并关联商品目录
+     * @param blocks 解析得到的数据块
+     * @param catalog 加载时的商品列表
+     * @param goodIndex 商品ID字典，前 catalog.size() 个编号为目录中的商品
+     */
+    private SalesAnalytics(List<Block> blocks, List<Good> catalog, Dictionary goodIndex) {
+        this.blocks = blocks;
+        int catalogSize = goodIndex.size;
+        Dictionary userIndex = new Dictionary(0);
+        List<int[]> userMaps = new ArrayList<>(blocks.size());
+        List<int[]> goodMaps = new ArrayList<>(blocks.size());
+        long records = 0;
+        long invalid = 0;
+        for (Block block : blocks) { // 字典合并只与各块的不同键数有关，顺序进行
+            userMaps.add(userIndex.merge(block.userCodes));
+            goodMaps.add(goodIndex.merge(block.goodCodes));
+            block.userCodes = null;
+            block.goodCodes = null;
+            records += block.size;
+            invalid += block.skipped;
+        }
+        IntStream.range(0, blocks.size()).parallel()
+                .forEach(i -> blocks.get(i).remap(userMaps.get(i), goodMaps.get(i)));
+        usernames = userIndex.keys();
+        goodIds = goodIndex.keys();
+
+        prices = new double[goodIds.length];
+        goodCategories = new int[goodIds.length];
+        Map<String, Integer> categoryIndex = new HashMap<>();
+        for (int i = 0; i < catalogSize; i++) {
+            Good good = catalog.get(i);
+            prices[i] = good.getPrice();
+            goodCategories[i] = categoryIndex.computeIfAbsent(good.getCategory(), key -> categoryIndex.size());
+        }
+        for (int i = catalogSize; i < goodIds.length; i++) { // 已下架的商品
+            goodCategories[i] = categoryIndex.computeIfAbsent(REMOVED_CATEGORY, key -> categoryIndex.size());
+        }
+        categories = new String[categoryIndex.size()];
+        categoryIndex.forEach((category, code) -> categories[code] = category);
+
+        recordCount = records;
+        skipped = invalid;
+        zoneOffsetMillis = ZoneId.systemDefault().getRules().getOffset(Instant.now()).getTotalSeconds() * 1000L;
+        long[] range = aggregate(() -> new long[]{Long.MAX_VALUE, Long.MIN_VALUE}, (acc, block) -> {
+            for (int i = 0; i < block.size; i++) {
+                if (block.times[i] > 0) {
+                    long day = Math.floorDiv(block.times[i] + zoneOffsetMillis, DAY_MILLIS);
+                    acc[0] = Math.min(acc[0], day);
+                    acc[1] = Math.max(acc[1], day);
+                }
+            }
+        }, (a, b) -> new long[]{Math.min(a[0], b[0]), Math.max(a[1], b[1])});
+        firstDay = range[0];
+        lastDay = range[1];
+    }
+
+    /**
+     * @brief 读取全部购买记录并建立列式快照
+     * @return 销售分析快照，之后的购买不计入
+     * @throws IOException 读取购买记录失败时抛出
+     */
+    public static SalesAnalytics load() throws IOException {
+        List<Good> catalog = new ArrayList<>(Storage.catalog().findAll());
+        Dictionary goodIndex = new Dictionary(catalog.size());
+        for (Iterator<Good> it = catalog.iterator(); it.hasNext(); ) {
+            String id = it.next().getId();
+            int size = goodIndex.size;
+            if (goodIndex.code(id, id.hashCode()) < size) {
+                it.remove(); // 重复的商品ID，保持编号与列表下标一致
+            }
+        }
+        List<Block> blocks = Storage.purchases().scan(() -> new Block(BLOCK_CAPACITY),
+                (block, record) -> parseRecord(block, record, goodIndex));
+        return new SalesAnalytics(blocks, catalog, goodIndex);
+    }
+
+    /**
+     * @brief 把一条购买记录追加到所在分区的数据块
+     * @param block 分区的数据块
+     * @param record 当前记录
+     * @param catalogIndex 商品目录的商品ID字典，只读
+     */
+    private static void parseRecord(Block block, CsvRecordReader record, Dictionary catalogIndex) {
+        if (record.fieldCount() < 3) {
+            block.skipped++;
+            return;
+        }
+        int quantity;
+        long time;
+        try {
+            quantity = record.getInt(2);
+            time = record.fieldCount() >= 5 ? record.getLong(4) : 0;
+        } catch (NumberFormatException e) {
+            block.skipped++;
+            return;
+        }
+        int user = block.userCodes.code(record, 0);
+        int good = catalogIndex.find(record, 1);
+        if (good < 0) {
+            good = -1 - block.goodCodes.code(record, 1);
+        }
+        block.add(user, good, quantity, time);
+    }
+
+    /**
+     * @brief 获取快照中的有效记录数
+     * @return 记录数
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @brief 获取格式错误被跳过的记录数
+     * @return 记录数
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @brief 销量排行
+     * @param n 返回的商品数
+     * @return 销量最高的 n 种商品，按销量从高到低排列
+     */
+    public List<ReportRow> topSellers(int n) {
+        return top(goodIds, totalsByGood(), n, false);
+    }
+
+    /**
+     * @brief 各类别的销量和销售额
+     * @return 全部类别，按销售额从高到低排列
+     */
+    public List<ReportRow> revenueByCategory() {
+        Totals goods = totalsByGood();
+        Totals totals = new Totals(categories.length);
+        for (int i = 0; i < goodIds.length; i++) {
+            totals.units[goodCategories[i]] += goods.units[i];
+            totals.revenue[goodCategories[i]] += goods.revenue[i];
+        }
+        return top(categories, totals, categories.length, true);
+    }
+
+    /**
+     * @brief 用户消费排行
+     * @param n 返回的用户数
+     * @return 消费金额最高的 n 个用户，按金额从高到低排列
+     */
+    public List<ReportRow> topSpenders(int n) {
+        Totals totals = aggregate(() -> new Totals(usernames.length), (acc, block) -> {
+            for (int i = 0; i < block.size; i++) {
+                acc.add(block.users[i], block.quantities[i], prices[block.goods[i]]);
+            }
+        });
+        return top(usernames, totals, n, true);
+    }
+
+    /**
+     * @brief 每日销量和销售额
+     * @return 有销售的日期，按日期先后排列；没有带时间戳的记录时为空列表
+     */
+    public List<ReportRow> salesByDay() {
+        if (firstDay > lastDay) {
+            return new ArrayList<>();
+        }
+        int days = (int) (lastDay - firstDay + 1);
+        Totals totals = aggregate(() -> new Totals(days), (acc, block) -> {
+            for (int i = 0; i < block.size; i++) {
+                if (block.times[i] > 0) {
+                    int day = (int) (Math.floorDiv(block.times[i] + zoneOffsetMillis, DAY_MILLIS) - firstDay);
+                    acc.add(day, block.quantities[i], prices[block.goods[i]]);
+                }
+            }
+        });
+        List<ReportRow> rows = new ArrayList<>();
+        for (int i = 0; i < days; i++) {
+            if (totals.units[i] > 0) {
+                rows.add(totals.row(LocalDate.ofEpochDay(firstDay + i).toString(), i));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @brief 统计每种商品的销量和销售额
+     * @return 商品编号下标的统计结果
+     */
+    private Totals totalsByGood() {
+        return aggregate(() -> new Totals(goodIds.length), (acc, block) -> {
+            for (int i = 0; i < block.size; i++) {
+                acc.add(block.goods[i], block.quantities[i], prices[block.goods[i]]);
+            }
+        });
+    }
+
+    /**
+     * @brief 在公共线程池中并行累加全部数据块
+     * @param supplier 创建一个空的统计结果
+     * @param accumulator 把一个数据块累加进结果
+     * @return 全部数据块的统计结果
+     */
+    private Totals aggregate(Supplier<Totals> supplier, BiConsumer<Totals, Block> accumulator) {
+        return aggregate(supplier, accumulator, Totals::merge);
+    }
+
+    /**
+     * @brief 在公共线程池中并行累加全部数据块
+     * @param supplier 创建一个空的累加结果
+     * @param accumulator 把一个数据块累加进结果
+     * @param combiner 合并两个结果
+     * @param <A> 累加结果类型
+     * @return 全部数据块的累加结果
+     * @details 数据块按序号轮流分给与线程池并行度相同数量的分区，每个分区只创建一个累加结果，
+     *          商品或用户很多时临时数组的总大小不随块数增长
+     */
+    private <A> A aggregate(Supplier<A> supplier, BiConsumer<A, Block> accumulator, BinaryOperator<A> combiner) {
+        int partitions = Math.max(1, Math.min(blocks.size(), ForkJoinPool.getCommonPoolParallelism()));
+        return IntStream.range(0, partitions).parallel()
+                .mapToObj(partition -> {
+                    A result = supplier.get();
+                    for (int i = partition; i < blocks.size(); i += partitions) {
+                        accumulator.accept(result, blocks.get(i));
+                    }
+                    return result;
+                })
+                .reduce(combiner)
+                .orElseGet(supplier);
+    }
+
+    /**
+     * @brief 选出排名最前的若干行
+     * @param keys 编号到名称
+     * @param totals 编号下标的销量和销售额
+     * @param n 返回的行数
+     * @param byRevenue 为 true 时按销售额排名，否则按销量排名
+     * @return 排名最前的 n 行，从高到低排列；销量为 0 的编号不参加排名
+     * @details 用大小为 n 的最小堆选出前 n 名，耗时 O(m log n)，不对全部编号排序
+     */
+    private static List<ReportRow> top(String[] keys, Totals totals, int n, boolean byRevenue) {
+        long[] units = totals.units;
+        double[] revenue = totals.revenue;
+        Comparator<Integer> order = byRevenue
+                ? Comparator.<Integer>comparingDouble(i -> revenue[i]).thenComparingLong(i -> units[i])
+                : Comparator.<Integer>comparingLong(i -> units[i]).thenComparingDouble(i -> revenue[i]);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, n), order);
+        for (int i = 0; i < keys.length && n > 0; i++) {
+            if (units[i] == 0) {
+                continue;
+            }
+            if (heap.size() < n) {
+                heap.add(i);
+            } else if (order.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        ReportRow[] rows = new ReportRow[heap.size()];
+        for (int i = rows.length - 1; i >= 0; i--) {
+            int code = heap.poll();
+            rows[i] = totals.row(keys[code], code);
+        }
+        return Arrays.asList(rows);
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * @file SalesMetrics.java
+ * @brief 实时销售指标类，在每次结算时增量更新销量、销售额和订单速率
+ * @package main.com.service
+ */
+package main.com.service;
+
+import main.com.model.Good;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @class SalesMetrics
+ * @brief 进程启动以来的实时销售指标
+ * @details 每个订单提交后由 UserService.placeOrder 调用 recordOrder 更新，不重新扫描 purchases.txt：
+ *          累计值使用分段的 LongAdder，高并发结算时各线程写不同的单元，不争用同一个计数器；
+ *          销售额以分为单位计数，按下单时的商品价格计算，不含折扣。
+ *          最近若干秒的订单数和销量由按秒分桶的环形数组给出，每个桶把秒序号和计数打包在一个 long 中以 CAS 更新，无锁；
+ *          环长 WINDOW_SECONDS 秒，更早的桶被新的秒覆盖。指标只保存在内存中，重启后从零开始，历史数据请使用 SalesAnalytics
+ */
+public class SalesMetrics {
+    /** @brief 环形数组覆盖的秒数 */
+    public static final int WINDOW_SECONDS = 300;
+
+    /** @brief 全局共享的销售指标 */
+    private static final SalesMetrics shared = new SalesMetrics();
+
+    /** @brief 累计订单数 */
+    private final LongAdder orders = new LongAdder();
+    /** @brief 累计销量 */
+    private final LongAdder units = new LongAdder();
+    /** @brief 累计销售额（分） */
+    private final LongAdder revenueCents = new LongAdder();
+    /** @brief 商品ID到累计销量 */
+    private final Map<String, LongAdder> unitsByGood = new ConcurrentHashMap<>();
+    /** @brief 类别到累计销售额（分） */
+    private final Map<String, LongAdder> revenueCentsByCategory = new ConcurrentHashMap<>();
+    /** @brief 每秒订单数 */
+    private final BucketRing ordersPerSecond = new BucketRing(WINDOW_SECONDS);
+    /** @brief 每秒销量 */
+    private final BucketRing unitsPerSecond = new BucketRing(WINDOW_SECONDS);
+    /** @brief 计时起点（System.nanoTime），秒序号从这里开始计算，不受系统时钟调整影响 */
+    private final long origin = System.nanoTime();
+
+    /**
+     * @class BucketRing
+     * @brief 按秒分桶的无锁环形计数器
+     * @details 每个槽的高 32 位是秒序号、低 32 位是该秒的计数。写入时序号相同则累加，槽中是更早的秒则以新的秒重置，
+     *          两种情况都以一次 CAS 完成，不会出现清零和累加交错而丢失计数；读取时只统计序号落在窗口内的槽
+     */
+    private static class BucketRing {
+        /** @brief 槽 */
+        private final AtomicLongArray slots;
+
+        /**
+         * @brief 构造函数
+         * @param length 槽数，即能回溯的秒数
+         */
+        private BucketRing(int length) {
+            slots = new AtomicLongArray(length);
+        }
+
+        /**
+         * @brief 给指定的秒加上计数
+         * @param second 秒序号
+         * @param delta 增量
+         */
+        private void add(long second, long delta) {
+            int slot = (int) (second % slots.length());
+            while (true) {
+                long current = slots.get(slot);
+                long bucket = current >>> 32;
+                long next;
+                if (bucket == second) {
+                    next = current + delta;
+                } else if (bucket < second) {
+                    next = (second << 32) | delta;
+                } else {
+                    return; // 线程在写入前停顿太久，槽已属于更晚的秒，这一秒早已移出窗口
+                }
+                if (slots.compareAndSet(slot, current, next)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @brief 统计截至指定秒的最近若干秒的计数
+         * @param second 当前秒序号
+         * @param seconds 回溯的秒数，不超过槽数
+         * @return 计数之和
+         */
+        private long sum(long second, int seconds) {
+            long total = 0;
+            for (long s = second; s > second - seconds && s >= 0; s--) {
+                long value = slots.get((int) (s % slots.length()));
+                if (value >>> 32 == s) {
+                    total += value & 0xFFFFFFFFL;
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * @brief 获取全局共享的销售指标
+     * @return 销售指标
+     */
+    public static SalesMetrics shared() {
+        return shared;
+    }
+
+    /**
+     * @brief 记录一个已提交的订单
+     * @param order 订单中的商品及其购买数量
+     */
+    public void recordOrder(Map<Good, Integer> order) {
+        long second = currentSecond();
+        long orderUnits = 0;
+        for (Map.Entry<Good, Integer> line : order.entrySet()) {
+            Good good = line.getKey();
+            int quantity = line.getValue();
+            long cents = Math.round(good.getPrice() * 100) * quantity;
+            counter(unitsByGood, good.getId()).add(quantity);
+            counter(revenueCentsByCategory, good.getCategory()).add(cents);
+            revenueCents.add(cents);
+            orderUnits += quantity;
+        }
+        orders.increment();
+        units.add(orderUnits);
+        ordersPerSecond.add(second, 1);
+        unitsPerSecond.add(second, orderUnits);
+    }
+
+    /**
+     * @brief 获取累计订单数
+     * @return 进程启动以来提交的订单数
+     */
+    public long getOrders() {
+        return orders.sum();
+    }
+
+    /**
+     * @brief 获取累计销量
+     * @return 进程启动以来售出的商品件数
+     */
+    public long getUnits() {
+        return units.sum();
+    }
+
+    /**
+     * @brief 获取累计销售额
+     * @return 进程启动以来的销售额（元）
+     */
+    public double getRevenue() {
+        return revenueCents.sum() / 100.0;
+    }
+
+    /**
+     * @brief 获取最近若干秒的订单数
+     * @param seconds 回溯的秒数，超过 WINDOW_SECONDS 时按 WINDOW_SECONDS 计算
+     * @return 包括当前这一秒在内的最近 seconds 秒提交的订单数
+     */
+    public long ordersInLast(int seconds) {
+        return ordersPerSecond.sum(currentSecond(), Math.min(seconds, WINDOW_SECONDS));
+    }
+
+    /**
+     * @brief 获取最近若干秒的销量
+     * @param seconds 回溯的秒数，超过 WINDOW_SECONDS 时按 WINDOW_SECONDS 计算
+     * @return 包括当前这一秒在内的最近 seconds 秒售出的商品件数
+     */
+    public long unitsInLast(int seconds) {
+        return unitsPerSecond.sum(currentSecond(), Math.min(seconds, WINDOW_SECONDS));
+    }
+
+    /**
+     * @brief 获取销量最高的商品
+     * @param n 返回的商品数
+     * @return 商品ID到累计销量，按销量从高到低排列
+     */
+    public Map<String, Long> topGoods(int n) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        unitsByGood.forEach((id, adder) -> entries.add(new AbstractMap.SimpleEntry<>(id, adder.sum())));
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(n, entries.size()))) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    /**
+     * @brief 获取各类别的累计销售额
+     * @return 类别到销售额（元），按销售额从高到低排列
+     */
+    public Map<String, Double> revenueByCategory() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        revenueCentsByCategory.forEach((category, adder) -> entries.add(new AbstractMap.SimpleEntry<>(category, adder.sum())));
+        entries.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        Map<String, Double> revenue = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            revenue.put(entry.getKey(), entry.getValue() / 100.0);
+        }
+        return revenue;
+    }
+
+    /**
+     * @brief 获取当前的秒序号
+     * @return 距计时起点的秒数
+     */
+    private long currentSecond() {
+        return (System.nanoTime() - origin) / 1000000000L;
+    }
+
+    /**
+     * @brief 获取或创建一个键的计数器
+     * @param counters 计数器映射
+     * @param key 键
+     * @return 计数器
+     */
+    private static LongAdder counter(Map<String, LongAdder> counters, String key) {
+        LongAdder adder = counters.get(key); // 已有键不进入 computeIfAbsent 的加锁路径
+        return adder != null ? adder : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * @file SearchService.java
+ * @brief 商品搜索服务类，提供按关键词搜索商品的操作方法
+ * @package main.com.service
+ */
+package main.com.service;
+
+import main.com.model.Good;
+import main.com.search.SearchIndex;
+import main.com.storage.Storage;
+
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * @class SearchService
+ * @brief 商品搜索服务类，基于倒排索引按名称、描述和类别检索商品
+ * @details 索引在第一次搜索时按当前商品目录建立，之后随商品的新增、修改和删除增量更新
+ */
+public class SearchService {
+    /** @brief 控制台最多显示的搜索结果数 */
+    private static final int RESULT_LIMIT = 20;
+    /** @brief 商品倒排索引 */
+    private static final SearchIndex index = new SearchIndex();
+    /** @brief 索引是否已建立 */
+    private static volatile boolean indexReady;
+
+    /** @brief 系统输入扫描器 */
+    private Scanner scanner = new Scanner(System.in);
+
+    /**
+     * @brief 按关键词搜索商品
+     * @param query 关键词，多个关键词之间可用空格分隔
+     * @param limit 最多返回的商品数
+     * @return 按相关度从高到低排列的商品
+     */
+    public static List<Good> search(String query, int limit) {
+        if (!indexReady) {
+            synchronized (SearchService.class) {
+                if (!indexReady) {
+                    index.attach(Storage.catalog());
+                    indexReady = true;
+                }
+            }
+        }
+        return index.search(query, limit);
+    }
+
+    /**
+     * @brief 搜索商品方法
+     * @details 通过控制台输入关键词，显示相关度最高的若干商品
+     */
+    public void searchGoods() {
+        System.out.print("请输入搜索关键词: ");
+        String query = scanner.nextLine().trim();
+        List<Good> goods = search(query, RESULT_LIMIT);
+        if (goods.isEmpty()) {
+            System.out.println("没有找到相关商品。");
+            return;
+        }
+        for (Good good : goods) {
+            System.out.println(good);
+        }
+        System.out.println("共显示 " + goods.size() + " 件相关商品");
+    }
+}
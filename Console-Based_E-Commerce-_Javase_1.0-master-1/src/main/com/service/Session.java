@@ -0,0 +1,86 @@
+/**
+ * @file Session.java
+ * @brief 会话类，保存一个已登录用户的身份和购物车
+ * @package main.com.service
+ */
+package main.com.service;
+
+import main.com.model.Cart;
+
+/**
+ * @class Session
+ * @brief 用户会话
+ * @details 由 SessionManager 创建和回收。每个会话有独立的购物车，互不影响
+ */
+public class Session {
+    /** @brief 会话ID，不可猜测 */
+    private final String id;
+    /** @brief 登录用户名 */
+    private final String username;
+    /** @brief 是否为管理员会话 */
+    private final boolean admin;
+    /** @brief 会话的购物车 */
+    private final Cart cart = new Cart();
+    /** @brief 最近一次访问时间（毫秒） */
+    private volatile long lastAccessed;
+
+    /**
+     * @brief 构造函数
+     * @param id 会话ID
+     * @param username 登录用户名
+     * @param admin 是否为管理员会话
+     */
+    Session(String id, String username, boolean admin) {
+        this.id = id;
+        this.username = username;
+        this.admin = admin;
+        this.lastAccessed = System.currentTimeMillis();
+    }
+
+    /**
+     * @brief 获取会话ID
+     * @return 会话ID
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @brief 获取登录用户名
+     * @return 用户名
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @brief 判断是否为管理员会话
+     * @return 管理员登录时返回 true
+     */
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    /**
+     * @brief 获取购物车
+     * @return 会话的购物车
+     */
+    public Cart getCart() {
+        return cart;
+    }
+
+    /**
+     * @brief 获取最近一次访问时间
+     * @return 毫秒时间戳
+     */
+    public long getLastAccessed() {
+        return lastAccessed;
+    }
+
+    /**
+     * @brief 记录一次访问，推迟空闲过期
+     */
+    void touch() {
+        lastAccessed = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * @file SessionManager.java
+ * @brief 会话管理类，负责创建、查找和回收用户会话
+ * @package main.com.service
+ */
+package main.com.service;
+
+import main.com.model.Cart;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class SessionManager
+ * @brief 多用户会话管理器
+ * @details 会话保存在 ConcurrentHashMap 中，任意数量的线程可同时登录、访问和退出。
+ *          空闲超过 shop.session.idle.seconds（默认 1800 秒）的会话由后台线程每分钟回收一次，
+ *          回收时释放购物车的库存预留；会话数不超过 shop.session.max（默认 10000），
+ *          达到上限时先回收空闲会话，仍然已满则拒绝新的登录。会话结束时购物车以紧凑编码按身份（普通用户或管理员）和用户名保存，
+ *          同一身份的同一用户下次登录时恢复（最多保存 shop.cart.saved.max 个用户，默认 10000）；
+ *          同一用户的多个会话先后结束时购物车合并保存，不会互相覆盖。
+ *          配合购物车的容量上限，所有会话占用的内存总量有上限
+ */
+public class SessionManager {
+    /** @brief 后台回收的间隔（秒） */
+    private static final long SWEEP_SECONDS = 60;
+    /** @brief 全局共享的会话管理器 */
+    private static final SessionManager shared = new SessionManager(
+            Integer.getInteger("shop.session.max", 10000),
+            TimeUnit.SECONDS.toMillis(Long.getLong("shop.session.idle.seconds", 1800)));
+
+    /** @brief 会话ID到会话的映射 */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    /** @brief 最多保存的已结束会话购物车数 */
+    private static final int MAX_SAVED_CARTS = Integer.getInteger("shop.cart.saved.max", 10000);
+
+    /** @brief 身份和用户名（见 savedCartKey）到已结束会话购物车编码的映射，按访问顺序排列，超过上限时淘汰最久未用的 */
+    private final Map<String, String> savedCarts = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_SAVED_CARTS;
+        }
+    });
+    /** @brief 最大会话数 */
+    private final int maxSessions;
+    /** @brief 空闲超时（毫秒） */
+    private final long idleTimeoutMillis;
+    /** @brief 后台回收线程，第一次创建会话时启动 */
+    private volatile ScheduledExecutorService sweeper;
+
+    /**
+     * @brief 构造函数
+     * @param maxSessions 最大会话数
+     * @param idleTimeoutMillis 空闲超时（毫秒）
+     */
+    public SessionManager(int maxSessions, long idleTimeoutMillis) {
+        this.maxSessions = maxSessions;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @brief 获取全局共享的会话管理器
+     * @return 会话管理器
+     */
+    public static SessionManager shared() {
+        return shared;
+    }
+
+    /**
+     * @brief 为已通过验证的用户创建会话
+     * @param username 用户名
+     * @return 新会话
+     * @throws IllegalStateException 会话数已达上限且没有可回收的空闲会话时抛出
+     */
+    public Session open(String username) {
+        return open(username, false);
+    }
+
+    /**
+     * @brief 为已通过验证的用户或管理员创建会话
+     * @param username 用户名
+     * @param admin 是否为管理员会话
+     * @return 新会话
+     * @throws IllegalStateException 会话数已达上限且没有可回收的空闲会话时抛出
+     */
+    public Session open(String username, boolean admin) {
+        startSweeper();
+        if (sessions.size() >= maxSessions && evictIdle() == 0 && sessions.size() >= maxSessions) {
+            throw new IllegalStateException("在线会话数已达上限，请稍后再试");
+        }
+        Session session = new Session(UUID.randomUUID().toString(), username, admin); // 随机 UUID 由 SecureRandom 生成
+        sessions.put(session.getId(), session);
+        String savedCart = savedCarts.remove(savedCartKey(username, admin));
+        if (savedCart != null) {
+            UserService.restoreCart(session, savedCart); // 恢复上次未结算的购物车
+        }
+        return session;
+    }
+
+    /**
+     * @brief 根据会话ID查找会话并记录一次访问
+     * @param id 会话ID
+     * @return 会话，不存在或已过期时返回 null
+     */
+    public Session get(String id) {
+        if (id == null) {
+            return null;
+        }
+        Session session = sessions.get(id);
+        if (session == null) {
+            return null;
+        }
+        if (isIdle(session, System.currentTimeMillis())) {
+            close(id);
+            return null;
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * @brief 结束会话并释放其购物车的库存预留
+     * @param id 会话ID
+     * @return 会话存在时返回 true
+     */
+    public boolean close(String id) {
+        Session session = id == null ? null : sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        saveAndRelease(session);
+        return true;
+    }
+
+    /**
+     * @brief 回收所有空闲会话
+     * @return 回收的会话数
+     */
+    public int evictIdle() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Iterator<Session> iterator = sessions.values().iterator(); iterator.hasNext(); ) {
+            Session session = iterator.next();
+            if (isIdle(session, now) && sessions.remove(session.getId(), session)) {
+                saveAndRelease(session);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @brief 获取当前会话数
+     * @return 会话数
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @brief 保存已结束会话的购物车编码并释放库存预留
+     * @param session 已从会话表中移除的会话
+     */
+    private void saveAndRelease(Session session) {
+        Cart cart = session.getCart();
+        cart.getLock().lock();
+        try {
+            String encoded = cart.encode();
+            cart.clear();
+            ReservationLedger.shared().releaseAll(session.getId());
+            if (!encoded.isEmpty()) {
+                savedCarts.merge(savedCartKey(session.getUsername(), session.isAdmin()), encoded, Cart::merge); // 同一用户的其他会话已保存的购物车一并保留
+            }
+        } finally {
+            cart.getLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 获取保存购物车所用的键
+     * @param username 用户名
+     * @param admin 是否为管理员会话
+     * @return 带身份前缀的用户名，管理员和同名的普通用户互不影响
+     */
+    private static String savedCartKey(String username, boolean admin) {
+        return (admin ? "admin:" : "user:") + username;
+    }
+
+    /**
+     * @brief 判断会话是否空闲超时
+     * @param session 会话
+     * @param now 当前时间（毫秒）
+     * @return 超时返回 true
+     */
+    private boolean isIdle(Session session, long now) {
+        return now - session.getLastAccessed() > idleTimeoutMillis;
+    }
+
+    /**
+     * @brief 启动后台回收线程，重复调用无效
+     */
+    private void startSweeper() {
+        if (sweeper == null) {
+            synchronized (this) {
+                if (sweeper == null) {
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "session-sweeper");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.scheduleWithFixedDelay(() -> {
+                        try {
+                            evictIdle();
+                        } catch (RuntimeException e) {
+                            e.printStackTrace();
+                        }
+                    }, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+                    sweeper = executor;
+                }
+            }
+        }
+    }
+}
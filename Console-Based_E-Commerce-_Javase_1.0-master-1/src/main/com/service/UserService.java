@@ -5,35 +5,34 @@
  */
 package main.com.service;
 
+import main.com.model.Cart;
+import main.com.model.CartItem;
 import main.com.model.Good;
 import main.com.model.User;
-import main.com.util.TxtUtil;
-import main.com.util.UserUtil;
+import main.com.storage.Storage;
 
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @class UserService
  * @brief 处理用户操作的服务类
- * @details 提供用户注册、登录、购物车、结算等功能
+ * @details 提供用户注册、登录、购物车、结算等功能。登录用户的身份和购物车保存在 SessionManager
+ *          创建的会话中，服务对象本身只持有当前会话的引用
  */
 public class UserService {
+    /** @brief 订单号前缀，取类加载时的时间戳（36 进制），区分不同的进程 */
+    private static final String ORDER_ID_PREFIX = Long.toString(System.currentTimeMillis(), 36) + "-";
+    /** @brief 进程内订单序号 */
+    private static final AtomicLong orderSequence = new AtomicLong();
 
     /** @brief 系统输入扫描器 */
     private Scanner scanner = new Scanner(System.in);
-    /** @brief 当前登录用户的用户名 */
-    private String loggedInUsername;
-    /** @brief 用户购物车 */
-    private List<CartItem> cart;
-
-    /**
-     * @brief 构造函数，初始化购物车
-     */
-    public UserService() {
-        cart = new ArrayList<>(); // 初始化购物车
-    }
+    /** @brief 当前登录用户的会话，未登录时为 null */
+    private Session session;
 
     /**
      * @brief 根据商品ID从购物车获取商品对象
@@ -41,41 +40,38 @@ public class UserService {
      * @return 匹配的购物车商品对象，如果未找到则返回 null
      */
     public CartItem getGoodCtId(String id) {
-        for (CartItem cartItem : cart) {
-            if (cartItem.getGood().getId().equals(id)) {
-                return cartItem;
-            }
-        }
-        return null;
+        return session == null ? null : session.getCart().find(id);
     }
 
     /**
      * @brief 用户注册方法
-     * @details 提示用户输入注册信息并保存到文件
+     * @details 提示用户输入注册信息并保存到文件；用户名、邮箱和电话以明文保存供登录和找回密码使用，
+     *          密码由存储层校验后散列保存
      */
     public void register() {
         System.out.print("请输入用户名: ");
         String username = scanner.nextLine();
-        username = User.encryptToMD5(username);
         System.out.print("请输入密码: ");
         String password = scanner.nextLine();
-        password = User.encryptToMD5(password);
         System.out.print("请输入电子邮件: ");
         String email = scanner.nextLine();
-        email = User.encryptToMD5(email);
         System.out.print("请输入电话号码: ");
         String phone = scanner.nextLine();
-        phone = User.encryptToMD5(phone);
 
         User user = new User(username, password, email, phone);
-        UserUtil.addUserToTxt(user);
+        try {
+            Storage.users().add(user);
+        } catch (IllegalArgumentException e) {
+            System.out.println("注册失败：" + e.getMessage());
+            return;
+        }
         System.out.println("注册成功！");
     }
 
     /**
      * @brief 用户登录方法
      * @return 登录是否成功
-     * @details 验证用户名和密码，成功则保存当前登录用户
+     * @details 验证用户名和密码，成功则为该用户创建新会话；之前的会话被关闭并释放其购物车的库存预留
      */
     public boolean login() {
         System.out.print("请输入用户名: ");
@@ -83,19 +79,50 @@ public class UserService {
         System.out.print("请输入密码: ");
         String password = scanner.nextLine();
 
-        if (UserUtil.validateUser(username, password)) {
-            loggedInUsername = username; // 保存登录的用户名
+        if (Storage.users().validate(username, password)) {
+            logout();
+            try {
+                session = SessionManager.shared().open(username); // 创建会话保存登录的用户名和购物车
+            } catch (IllegalStateException e) {
+                System.out.println(e.getMessage());
+                return false;
+            }
             return true; // 登录成功
         }
         return false; // 登录失败
     }
 
+    /**
+     * @brief 用户退出方法
+     * @details 关闭当前会话，释放购物车中未结算商品的库存预留
+     */
+    public void logout() {
+        if (session != null) {
+            SessionManager.shared().close(session.getId());
+            session = null;
+        }
+    }
+
     /**
      * @brief 获取当前登录用户名
-     * @return 当前登录的用户名
+     * @return 当前登录的用户名，未登录时返回 null
      */
     public String getLoggedInUsername() {
-        return loggedInUsername; // 获取当前登录的用户名
+        return session == null ? null : session.getUsername(); // 获取当前登录的用户名
+    }
+
+    /**
+     * @brief 获取当前会话的购物车
+     * @return 购物车，未登录或会话已过期时提示并返回 null
+     * @details 每次操作都经由 SessionManager 查找会话，以记录访问时间并识别已被回收的会话
+     */
+    private Cart cart() {
+        if (session == null || SessionManager.shared().get(session.getId()) == null) {
+            session = null;
+            System.out.println("会话已过期，请重新登录。");
+            return null;
+        }
+        return session.getCart();
     }
 
     /**
@@ -104,7 +131,7 @@ public class UserService {
      * @details 从文件中读取并显示用户购买的商品
      */
     public static void viewPurchasedGoods(String username) {
-        List<String> purchasedGoods = TxtUtil.getPurchasedGoodsByUser(username);
+        List<String> purchasedGoods = Storage.purchases().findByUser(username);
         if (purchasedGoods.isEmpty()) {
             System.out.println("您尚未购买任何商品。");
         } else {
@@ -119,26 +146,17 @@ public class UserService {
      * @brief 将商品添加到购物车
      * @param goodId   商品ID
      * @param quantity 购买数量
-     * @details 检查库存并将商品添加到购物车
+     * @details 原子地检查并扣减库存，扣减成功后将商品添加到购物车
      */
     public void addGoodToCart(String goodId, int quantity) {
-        Good good = TxtUtil.getGoodById(goodId);
-
-        if (good != null) {
-            if (quantity > 0) { // 检查数量有效性
-                int availableStock = good.getStock(); // 获取可用库存
-                if (availableStock >= quantity) { // 检查库存是否足够
-                    cart.add(new CartItem(good, quantity)); // 添加商品到购物车
-                    good.reduceStock(quantity); // 减少库存数量并更新文件
-                    System.out.println("成功将 " + quantity + " 件 " + good.getName() + " 添加到购物车。");
-                } else {
-                    System.out.println("库存不足，当前可用数量: " + availableStock);
-                }
-            } else {
-                System.out.println("购买数量必须大于0。");
-            }
-        } else {
-            System.out.println("未找到该商品！请检查商品ID。");
+        if (cart() == null) {
+            return;
+        }
+        try {
+            CartItem item = addToCart(session, goodId, quantity);
+            System.out.println("成功将 " + quantity + " 件 " + item.getName() + " 添加到购物车，购物车中共 " + item.getQuantity() + " 件。");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         }
     }
 
@@ -149,33 +167,22 @@ public class UserService {
      * @details 检查库存并将商品返回到库存
      */
     public void modifyGoodOfCart(String goodId, int quantity) {
-        CartItem goodCart = getGoodCtId(goodId);
-
-        if (goodCart != null) {
-            if (quantity >= 0) { // 检查数量有效性
-                int cartQuantity = 0;
-                for (CartItem item : cart) {
-                    if (item.getGood().getId().equals(goodId)) {
-                        cartQuantity = item.quantity;
-                    }
-                }
-                if (quantity == 0) { // 数量为零则将商品从购物车中删除
-                    cart.remove(goodCart); // 将商品从购物车中删除
-                    System.out.println("成功将 " + goodCart.getGood().getName() + " 从购物车中删除。");
-                } else if (quantity < cartQuantity) {
-                    goodCart.reduceStock(cartQuantity - quantity); // 减少所选商品数量并更新购物车
-                    goodCart.getGood().addStock(cartQuantity - quantity); // 增加库存数量并更新文件
-                } else if (quantity > cartQuantity) {
-                    goodCart.addStock(quantity - cartQuantity); // 增加所选商品数量并更新购物车
-                    goodCart.getGood().reduceStock(quantity - cartQuantity); // 减少库存并更新文件
-                } else {
-                    System.out.println("商品数量与原定数量相同！");
-                }
-            } else {
-                System.out.println("修改数量必须大于等于0。");
+        Cart cart = cart();
+        if (cart == null) {
+            return;
+        }
+        CartItem goodCart = cart.find(goodId);
+        if (goodCart != null && quantity == goodCart.getQuantity()) {
+            System.out.println("商品数量与原定数量相同！");
+            return;
+        }
+        try {
+            updateCart(session, goodId, quantity);
+            if (quantity == 0) {
+                System.out.println("成功将 " + goodCart.getGood().getName() + " 从购物车中删除。");
             }
-        } else {
-            System.out.println("请先添加商品至购物车！");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         }
     }
 
@@ -184,11 +191,15 @@ public class UserService {
      * @details 显示购物车中所有商品及其数量
      */
     public void viewCart() {
+        Cart cart = cart();
+        if (cart == null) {
+            return;
+        }
         if (cart.isEmpty()) {
             System.out.println("购物车为空。");
         } else {
             System.out.println("购物车中的商品：");
-            for (CartItem item : cart) {
+            for (CartItem item : cart.getItems()) {
                 System.out.println(item); // "Id:'" + item.getId() + "' - " + item.getName() + " - 数量: " +
                                           // item.getQuantity()
             }
@@ -200,44 +211,213 @@ public class UserService {
      * @details 计算总价、应用折扣、确认购买并记录购买信息
      */
     public void checkout() {
+        Cart cart = cart();
+        if (cart == null) {
+            return;
+        }
         if (cart.isEmpty()) {
             System.out.println("购物车为空，无法结算。");
             return;
         }
         System.out.println("购物车中的商品：");
-        double totalPrice = 0; // 初始化总价格
-        for (CartItem item : cart) {
+        for (CartItem item : cart.getItems()) {
             double itemTotalPrice = item.getGood().getPrice() * item.getQuantity(); // 每个商品的总价格
-            totalPrice += itemTotalPrice; // 累加到总价格
             System.out.println(
                     item.getGood().getName() + " - 数量: " + item.getQuantity() + ", 小计: " + itemTotalPrice + "元");
         }
+        double totalPrice = cartTotal(cart);
         System.out.println("总价格: " + totalPrice + "元"); // 显示总价格
-        double discountedPrice;
+        double discountRate = discountRate(totalPrice);
         if (totalPrice < 1000) {
-            double discountRate = 0.7 + (Math.random() * 0.2); // 随机生成 0.7 到 0.9 的折扣率
-            discountedPrice = totalPrice * discountRate;
             System.out.printf("您享受的随机折扣率为: %.2f%% \n", discountRate * 100);
         } else {
-            int discountCount = (int) (totalPrice / 1000);
-            double discountRate = 1 - (0.02 * discountCount); // 每超过1000元减2%
-            discountedPrice = totalPrice * discountRate;
             System.out.printf("您享受的折扣率为: %.2f%% \n", discountRate * 100);
         }
-        System.out.printf("折后总价格: %.2f元\n", discountedPrice); // 显示折扣后的总价格
+        System.out.printf("折后总价格: %.2f元\n", totalPrice * discountRate); // 显示折扣后的总价格
         System.out.print("您确认要结算吗？(y/n): ");
         String confirm = scanner.nextLine();
         if (confirm.equalsIgnoreCase("y")) {
-            for (CartItem item : cart) {
-                TxtUtil.addPurchasedGoodForUser(loggedInUsername, item.getGood(), item.getQuantity());
+            if (cart() == null) {
+                return; // 等待确认期间会话已过期，购物车的库存预留已释放
+            }
+            try {
+                if (placeOrder(session)) { // 整个订单作为一个记录组写入
+                    System.out.println("结算成功！感谢您的购买。");
+                } else {
+                    System.out.println("结算失败，订单未提交，请稍后重试。");
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
             }
-            System.out.println("结算成功！感谢您的购买。");
-            cart.clear(); // 结算后清空购物车
         } else {
             System.out.println("结算已取消。");
         }
     }
 
+    /**
+     * @brief 将商品加入会话的购物车
+     * @param session  用户会话
+     * @param goodId   商品ID
+     * @param quantity 购买数量
+     * @return 加入或合并后的购物车项目
+     * @throws IllegalArgumentException 商品不存在、数量非法、库存不足或购物车已满时抛出，消息可直接显示给用户
+     * @details 控制台和 HTTP 前端共用的购物车操作，不读写控制台。购物车中已有该商品时合并数量。
+     *          只在 ReservationLedger 中预留库存，不修改持久库存也不写文件；预留和购物车修改在购物车的锁内完成，
+     *          同一会话的并发请求不会重复计算库存
+     */
+    public static CartItem addToCart(Session session, String goodId, int quantity) {
+        Cart cart = session.getCart();
+        Good good = Storage.catalog().findById(goodId);
+        if (good == null) {
+            throw new IllegalArgumentException("未找到该商品！请检查商品ID。");
+        }
+        if (quantity <= 0) { // 检查数量有效性
+            throw new IllegalArgumentException("购买数量必须大于0。");
+        }
+        cart.getLock().lock();
+        try {
+            if (!cart.canAdd(goodId)) {
+                throw new IllegalArgumentException("购物车已满，最多可放入 " + Cart.MAX_ITEMS + " 种商品。");
+            }
+            if (!ReservationLedger.shared().reserve(session.getId(), good, quantity)) { // 检查可用数量与预留是一个原子操作，并发下不会超卖
+                throw new IllegalArgumentException("库存不足，当前可用数量: " + ReservationLedger.shared().available(good));
+            }
+            return cart.add(good, quantity); // 添加商品到购物车，已有该商品时合并数量
+        } finally {
+            cart.getLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 修改会话购物车中商品的数量
+     * @param session  用户会话
+     * @param goodId   商品ID
+     * @param quantity 新的数量，为 0 时从购物车中删除
+     * @throws IllegalArgumentException 商品不在购物车中、数量非法或库存不足时抛出
+     * @details 数量减少的部分（包括删除的商品）释放预留，增加的部分先原子地追加预留
+     */
+    public static void updateCart(Session session, String goodId, int quantity) {
+        Cart cart = session.getCart();
+        if (quantity < 0) { // 检查数量有效性
+            throw new IllegalArgumentException("修改数量必须大于等于0。");
+        }
+        cart.getLock().lock();
+        try {
+            CartItem goodCart = cart.find(goodId);
+            if (goodCart == null) {
+                throw new IllegalArgumentException("请先添加商品至购物车！");
+            }
+            ReservationLedger ledger = ReservationLedger.shared();
+            int cartQuantity = goodCart.getQuantity();
+            if (quantity == 0) { // 数量为零则将商品从购物车中删除
+                cart.remove(goodId); // 将商品从购物车中删除
+                ledger.release(session.getId(), goodId, cartQuantity); // 释放预留
+            } else if (quantity < cartQuantity) {
+                goodCart.reduceStock(cartQuantity - quantity); // 减少所选商品数量并更新购物车
+                ledger.release(session.getId(), goodId, cartQuantity - quantity); // 释放多余的预留
+            } else if (quantity > cartQuantity) {
+                if (!ledger.reserve(session.getId(), goodCart.getGood(), quantity - cartQuantity)) { // 先原子地追加预留
+                    throw new IllegalArgumentException("库存不足，当前可用数量: " + ledger.available(goodCart.getGood()));
+                }
+                goodCart.addStock(quantity - cartQuantity); // 增加所选商品数量并更新购物车
+            }
+        } finally {
+            cart.getLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 按编码文本恢复会话的购物车
+     * @param session 用户会话
+     * @param encoded Cart.encode 生成的文本
+     * @return 成功恢复的商品种类数
+     * @details 按当前目录重新查找商品并预留库存，已删除或库存不足的商品被跳过
+     */
+    public static int restoreCart(Session session, String encoded) {
+        int restored = 0;
+        for (Map.Entry<String, Integer> line : Cart.decode(encoded).entrySet()) {
+            try {
+                addToCart(session, line.getKey(), line.getValue());
+                restored++;
+            } catch (IllegalArgumentException e) {
+                // 商品已删除或库存不足，跳过
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * @brief 计算购物车总价
+     * @param cart 购物车
+     * @return 折扣前的总价格
+     */
+    public static double cartTotal(Cart cart) {
+        double totalPrice = 0; // 初始化总价格
+        for (CartItem item : cart.getItems()) {
+            totalPrice += item.getGood().getPrice() * item.getQuantity(); // 累加每个商品的总价格
+        }
+        return totalPrice;
+    }
+
+    /**
+     * @brief 计算折扣率
+     * @param totalPrice 折扣前的总价格
+     * @return 折扣率，不满 1000 元时为 0.7 到 0.9 之间的随机值，否则每满 1000 元减 2%
+     */
+    public static double discountRate(double totalPrice) {
+        if (totalPrice < 1000) {
+            return 0.7 + (Math.random() * 0.2); // 随机生成 0.7 到 0.9 的折扣率
+        }
+        int discountCount = (int) (totalPrice / 1000);
+        return 1 - (0.02 * discountCount); // 每超过1000元减2%
+    }
+
+    /**
+     * @brief 将会话购物车中的商品下单
+     * @param session 用户会话
+     * @return 订单提交成功时返回 true，购物车随即清空；提交失败时返回 false，库存、预留和购物车均保持不变
+     * @throws IllegalArgumentException 商品已下架，或预留已过期且可用数量不足时抛出，此时不扣减任何库存
+     * @details 先确认每种商品的预留仍然有效（过期的重新预留），然后以一个订单号原子地提交整个订单：
+     *          全部商品的库存扣减和购买记录要么都生效，要么都不生效，进程在提交途中崩溃后启动时自动补全；
+     *          提交成功后计入 SalesMetrics 的实时销售指标
+     */
+    public static boolean placeOrder(Session session) {
+        Cart cart = session.getCart();
+        ReservationLedger ledger = ReservationLedger.shared();
+        cart.getLock().lock();
+        try {
+            Map<Good, Integer> order = new LinkedHashMap<>();
+            for (Map.Entry<Good, Integer> line : cart.toOrder().entrySet()) {
+                Good good = Storage.catalog().findById(line.getKey().getId()); // 使用目录中的当前对象
+                if (good == null) {
+                    throw new IllegalArgumentException("商品 " + line.getKey().getName() + " 已下架，请从购物车中移除。");
+                }
+                if (!ledger.ensure(session.getId(), good, line.getValue())) {
+                    throw new IllegalArgumentException("商品 " + good.getName() + " 库存不足，当前可用数量: " + ledger.available(good));
+                }
+                order.put(good, line.getValue());
+            }
+            String orderId = newOrderId();
+            if (ledger.commitAll(session.getId(), order,
+                    () -> Storage.purchases().placeOrder(orderId, session.getUsername(), order))) {
+                SalesMetrics.shared().recordOrder(order); // 更新实时销售指标
+                cart.clear(); // 结算后清空购物车
+                return true;
+            }
+            return false;
+        } finally {
+            cart.getLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 生成订单号
+     * @return 由启动时间和进程内序号组成的订单号，同一数据目录下不重复
+     */
+    private static String newOrderId() {
+        return ORDER_ID_PREFIX + Long.toString(orderSequence.incrementAndGet(), 36);
+    }
+
     /**
      * @brief 找回密码方法
      * @details 通过验证用户信息来重置密码
@@ -246,7 +426,7 @@ public class UserService {
         System.out.print("请输入用户名: ");
         String username = scanner.nextLine();
         // 获取用户的信息
-        User user = UserUtil.getUserByUsername(username);
+        User user = Storage.users().findByUsername(username);
         if (user == null) {
             System.out.println("未找到该用户。");
             return;
@@ -262,101 +442,15 @@ public class UserService {
             System.out.print("请输入您的新密码: ");
             String newPassword = scanner.nextLine();
             user.setPassword(newPassword);
-            UserUtil.updateUserPassword(user);
+            try {
+                Storage.users().updatePassword(user);
+            } catch (IllegalArgumentException e) {
+                System.out.println("重置失败：" + e.getMessage());
+                return;
+            }
             System.out.println("您的密码已成功重置！");
         } else {
             System.out.println("身份验证失败，请检查您输入的信息。");
         }
     }
-
-    /**
-     * @class CartItem
-     * @brief 购物车内部类，用于存储购物车中的商品和数量
-     * @details 封装商品对象和购买数量
-     */
-    private class CartItem {
-        /** @brief 购物车中的商品 */
-        private Good good;
-        /** @brief 商品数量 */
-        private int quantity;
-
-        /**
-         * @brief 购物车项目构造函数
-         * @param good     商品对象
-         * @param quantity 购买数量
-         */
-        public CartItem(Good good, int quantity) {
-            this.good = good;
-            this.quantity = quantity;
-        }
-
-        /**
-         * @brief 获取商品对象
-         * @return 商品对象
-         */
-        public Good getGood() {
-            return good;
-        }
-
-        /**
-         * @brief 获取商品数量
-         * @return 商品数量
-         */
-        public int getQuantity() {
-            return quantity;
-        }
-
-        /**
-         * @brief 获取商品ID
-         * @return 商品ID
-         */
-        public String getId() {
-            return good.getId();
-        }
-
-        /**
-         * @brief 获取商品名称
-         * @return 商品名称
-         */
-        public String getName() {
-            return good.getName();
-        }
-
-        /**
-         * @brief 从购物车中减少商品数量
-         * @param quantity 要减少的商品数量
-         * @details 检查购物车商品数量是否充足，如果充足则减少商品数量
-         */
-        public void reduceStock(int quantity) {
-            if (quantity <= this.quantity) {
-                this.quantity -= quantity; // 减少购物车中商品数量
-            } else {
-                System.out.println("购物车中剩余商品数量不足，无法减少该数量。");
-            }
-        }
-
-        /**
-         * @brief 从购物车中增加商品数量
-         * @param quantity 要增加的商品数量
-         * @details 增加商品数量
-         */
-        public void addStock(int quantity) {
-            if (quantity >= this.quantity) {
-                this.quantity += quantity; // 增加购物车中商品数量
-            }
-        }
-
-        /**
-         * @brief 重写toString方法，提供商品信息的字符串表示
-         * @return 商品信息的字符串描述
-         */
-        @Override
-        public String toString() {
-            return "商品{" +
-                    "id='" + getId() + '\'' +
-                    ", 名称='" + getName() + '\'' +
-                    ", 数量='" + getQuantity() + '\'' +
-                    '}';
-        }
-    }
-}
\ No newline at end of file
+}
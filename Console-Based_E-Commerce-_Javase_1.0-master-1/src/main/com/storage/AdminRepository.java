@@ -0,0 +1,37 @@
+/**
+ * @file AdminRepository.java
+ * @brief 管理员存储接口
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import main.com.model.Admin;
+
+import java.util.List;
+
+/**
+ * @interface AdminRepository
+ * @brief 管理员信息的存储接口
+ */
+public interface AdminRepository {
+    /**
+     * @brief 获取全部管理员
+     * @return 管理员列表
+     */
+    List<Admin> findAll();
+
+    /**
+     * @brief 验证管理员用户名和密码
+     * @param username 用户名
+     * @param password 密码
+     * @return 验证通过返回 true
+     */
+    boolean validate(String username, String password);
+
+    /**
+     * @brief 删除管理员
+     * @param username 用户名
+     * @return 删除成功返回 true
+     */
+    boolean delete(String username);
+}
@@ -0,0 +1,35 @@
+/**
+ * @file CatalogListener.java
+ * @brief 商品目录变更监听接口
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import main.com.model.CatalogSnapshot;
+import main.com.model.Good;
+
+/**
+ * @interface CatalogListener
+ * @brief 商品目录变更监听器，供搜索索引等派生结构增量维护
+ * @details 回调在目录写者发布新快照之后、释放写锁之前同步执行，因此各监听器收到的事件顺序与目录修改顺序一致；
+ *          回调应当尽快返回，不得再修改商品目录。库存变化不触发回调
+ */
+public interface CatalogListener {
+    /**
+     * @brief 商品被新增或修改
+     * @param good 新增或修改后的商品对象
+     */
+    void goodPut(Good good);
+
+    /**
+     * @brief 商品被删除
+     * @param good 被删除的商品对象
+     */
+    void goodRemoved(Good good);
+
+    /**
+     * @brief 商品目录被整体重新加载
+     * @param snapshot 重新加载后的目录快照
+     */
+    void catalogReloaded(CatalogSnapshot snapshot);
+}
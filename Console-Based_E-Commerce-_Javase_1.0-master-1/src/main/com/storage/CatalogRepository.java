@@ -0,0 +1,91 @@
+/**
+ * @file CatalogRepository.java
+ * @brief 商品目录存储接口
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import main.com.model.CatalogSnapshot;
+import main.com.model.Good;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @interface CatalogRepository
+ * @brief 商品目录的存储接口
+ * @details 实现类负责商品的持久化和内存缓存，所有方法都需要支持多个会话并发调用
+ */
+public interface CatalogRepository {
+    /**
+     * @brief 系统启动时初始化商品目录
+     * @return 启动时恢复的未完成订单数，即上次运行中已提交但购买记录未写完的订单
+     */
+    int initialize();
+
+    /**
+     * @brief 从存储重新加载商品目录
+     */
+    void reload();
+
+    /**
+     * @brief 获取当前的目录快照
+     * @return 不可变的目录快照，读者无需复制或加锁即可遍历
+     */
+    CatalogSnapshot snapshot();
+
+    /**
+     * @brief 获取全部商品
+     * @return 当前目录快照中的只读商品列表，按 CatalogSnapshot.ORDER 排列
+     */
+    List<Good> findAll();
+
+    /**
+     * @brief 根据商品ID获取商品
+     * @param id 商品ID
+     * @return 商品对象，不存在时返回 null
+     */
+    Good findById(String id);
+
+    /**
+     * @brief 添加商品
+     * @param good 新商品
+     */
+    void add(Good good);
+
+    /**
+     * @brief 修改商品
+     * @param good 修改后的商品，按ID替换原商品
+     */
+    void update(Good good);
+
+    /**
+     * @brief 批量新增或替换商品
+     * @param goods 要导入的商品，ID 不重复
+     * @return 导入的商品以一次批量写入持久化时返回 true；实现退化为逐条持久化时返回 false，商品同样已导入
+     * @details 实现应只发布一次新的目录快照
+     */
+    boolean importAll(Collection<Good> goods);
+
+    /**
+     * @brief 以商品文件格式导出全部商品
+     * @param writer 输出目标，调用方负责关闭
+     * @return 导出的商品数
+     * @throws IOException 写入失败时抛出
+     */
+    int export(Writer writer) throws IOException;
+
+    /**
+     * @brief 删除商品
+     * @param id 商品ID
+     */
+    void delete(String id);
+
+    /**
+     * @brief 注册商品目录变更监听器
+     * @param listener 监听器
+     */
+    void addListener(CatalogListener listener);
+}
@@ -0,0 +1,182 @@
+/**
+ * @file FileStorageProvider.java
+ * @brief 基于文本文件的存储实现
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import main.com.model.Admin;
+import main.com.model.CatalogSnapshot;
+import main.com.model.Good;
+import main.com.model.User;
+import main.com.util.AdminUtil;
+import main.com.util.CsvRecordReader;
+import main.com.util.TxtUtil;
+import main.com.util.UserUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * @class FileStorageProvider
+ * @brief 内置的文本文件存储实现，名称为 file
+ * @details 各存储接口直接委托给 TxtUtil、UserUtil 和 AdminUtil，数据文件位于 StorageConfig 配置的数据目录下
+ */
+public class FileStorageProvider implements StorageProvider {
+    /** @brief 商品目录存储 */
+    private final CatalogRepository catalog = new CatalogRepository() {
+        @Override
+        public int initialize() {
+            return TxtUtil.initialize();
+        }
+
+        @Override
+        public void reload() {
+            TxtUtil.loadGoods();
+        }
+
+        @Override
+        public CatalogSnapshot snapshot() {
+            return TxtUtil.getCatalogSnapshot();
+        }
+
+        @Override
+        public List<Good> findAll() {
+            return TxtUtil.getGoodsList();
+        }
+
+        @Override
+        public Good findById(String id) {
+            return TxtUtil.getGoodById(id);
+        }
+
+        @Override
+        public void add(Good good) {
+            TxtUtil.addGoodToTxt(good);
+        }
+
+        @Override
+        public void update(Good good) {
+            TxtUtil.updateGoodInTxt(good);
+        }
+
+        @Override
+        public boolean importAll(Collection<Good> goods) {
+            return TxtUtil.importGoods(goods);
+        }
+
+        @Override
+        public int export(Writer writer) throws IOException {
+            return TxtUtil.exportGoods(writer);
+        }
+
+        @Override
+        public void delete(String id) {
+            TxtUtil.deleteGoodFromTxt(id);
+        }
+
+        @Override
+        public void addListener(CatalogListener listener) {
+            TxtUtil.addCatalogListener(listener);
+        }
+    };
+
+    /** @brief 用户存储 */
+    private final UserRepository users = new UserRepository() {
+        @Override
+        public void add(User user) {
+            UserUtil.addUserToTxt(user);
+        }
+
+        @Override
+        public boolean validate(String username, String password) {
+            return UserUtil.validateUser(username, password);
+        }
+
+        @Override
+        public User findByUsername(String username) {
+            return UserUtil.getUserByUsername(username);
+        }
+
+        @Override
+        public List<User> findAll() {
+            return UserUtil.readUsersFromTxt();
+        }
+
+        @Override
+        public void updatePassword(User user) {
+            UserUtil.updateUserPassword(user);
+        }
+
+        @Override
+        public boolean delete(String username) {
+            return UserUtil.deleteUserByUsername(username);
+        }
+    };
+
+    /** @brief 管理员存储 */
+    private final AdminRepository admins = new AdminRepository() {
+        @Override
+        public List<Admin> findAll() {
+            return AdminUtil.readAdminsFromTxt();
+        }
+
+        @Override
+        public boolean validate(String username, String password) {
+            return AdminUtil.validateAdmin(username, password);
+        }
+
+        @Override
+        public boolean delete(String username) {
+            return AdminUtil.deleteAdminByUsername(username);
+        }
+    };
+
+    /** @brief 购买记录存储 */
+    private final PurchaseRepository purchases = new PurchaseRepository() {
+        @Override
+        public boolean placeOrder(String orderId, String username, Map<Good, Integer> items) {
+            return TxtUtil.commitOrder(orderId, username, items);
+        }
+
+        @Override
+        public List<String> findByUser(String username) {
+            return TxtUtil.getPurchasedGoodsByUser(username);
+        }
+
+        @Override
+        public <T> List<T> scan(Supplier<T> partition, BiConsumer<T, CsvRecordReader> accumulator) throws IOException {
+            return TxtUtil.scanPurchases(partition, accumulator);
+        }
+    };
+
+    @Override
+    public String name() {
+        return StorageConfig.DEFAULT_PROVIDER;
+    }
+
+    @Override
+    public CatalogRepository catalog() {
+        return catalog;
+    }
+
+    @Override
+    public UserRepository users() {
+        return users;
+    }
+
+    @Override
+    public AdminRepository admins() {
+        return admins;
+    }
+
+    @Override
+    public PurchaseRepository purchases() {
+        return purchases;
+    }
+}
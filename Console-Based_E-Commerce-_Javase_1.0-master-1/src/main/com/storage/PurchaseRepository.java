@@ -0,0 +1,48 @@
+/**
+ * @file PurchaseRepository.java
+ * @brief 购买记录存储接口
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import main.com.model.Good;
+import main.com.util.CsvRecordReader;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * @interface PurchaseRepository
+ * @brief 用户购买记录的存储接口
+ */
+public interface PurchaseRepository {
+    /**
+     * @brief 原子地提交一个订单：扣减全部商品的库存并记录购买
+     * @param orderId 订单号，全局唯一
+     * @param username 用户名
+     * @param items 商品及其购买数量
+     * @return 提交成功返回 true；任一商品已下架或库存不足、或写入失败时返回 false，库存和购买记录均不变
+     */
+    boolean placeOrder(String orderId, String username, Map<Good, Integer> items);
+
+    /**
+     * @brief 获取用户的购买记录
+     * @param username 用户名
+     * @return 购买记录的描述列表
+     */
+    List<String> findByUser(String username);
+
+    /**
+     * @brief 并行扫描全部购买记录
+     * @param partition 为每个分区创建累加结果，分区的划分由实现决定
+     * @param accumulator 把一条完整的记录累加到所在分区的结果中，记录为 用户名,商品ID,数量[,订单号[,时间戳]]；
+     *                    不同分区在不同线程中并发调用，同一分区内按记录顺序调用
+     * @param <T> 每个分区的累加结果类型
+     * @return 各分区的累加结果，按记录顺序排列
+     * @throws IOException 读取失败时抛出
+     */
+    <T> List<T> scan(Supplier<T> partition, BiConsumer<T, CsvRecordReader> accumulator) throws IOException;
+}
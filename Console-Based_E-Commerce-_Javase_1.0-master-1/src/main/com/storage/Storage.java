@@ -0,0 +1,69 @@
+/**
+ * @file Storage.java
+ * @brief 存储入口类，按配置选择存储实现
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import java.util.ServiceLoader;
+
+/**
+ * @class Storage
+ * @brief 存储入口，服务层通过本类访问各类数据
+ * @details 首次使用时按 StorageConfig.providerName() 选择存储实现：file 为内置的文本文件实现，
+ *          其他名称通过 ServiceLoader 查找
+ */
+public class Storage {
+    /** @brief 当前使用的存储实现 */
+    private static final StorageProvider provider = loadProvider();
+
+    /**
+     * @brief 按配置加载存储实现
+     * @return 存储实现
+     * @throws IllegalStateException 找不到配置的存储实现时抛出
+     */
+    private static StorageProvider loadProvider() {
+        String name = StorageConfig.providerName();
+        if (StorageConfig.DEFAULT_PROVIDER.equals(name)) {
+            return new FileStorageProvider();
+        }
+        for (StorageProvider candidate : ServiceLoader.load(StorageProvider.class)) {
+            if (candidate.name().equals(name)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("未找到名为 " + name + " 的存储实现");
+    }
+
+    /**
+     * @brief 获取商品目录存储
+     * @return 商品目录存储
+     */
+    public static CatalogRepository catalog() {
+        return provider.catalog();
+    }
+
+    /**
+     * @brief 获取用户存储
+     * @return 用户存储
+     */
+    public static UserRepository users() {
+        return provider.users();
+    }
+
+    /**
+     * @brief 获取管理员存储
+     * @return 管理员存储
+     */
+    public static AdminRepository admins() {
+        return provider.admins();
+    }
+
+    /**
+     * @brief 获取购买记录存储
+     * @return 购买记录存储
+     */
+    public static PurchaseRepository purchases() {
+        return provider.purchases();
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * @file StorageConfig.java
+ * @brief 存储配置类，解析数据目录和存储实现名称
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @class StorageConfig
+ * @brief 存储配置，集中管理各数据文件的位置
+ * @details 数据目录依次取系统属性 shop.data.dir、环境变量 SHOP_DATA_DIR，默认为工作目录下的 src/main/resources；
+ *          单个文件仍可通过各自的 shop.*.file 系统属性单独指定
+ */
+public class StorageConfig {
+    /** @brief 默认数据目录（相对于工作目录） */
+    private static final String DEFAULT_DATA_DIR = "src" + File.separator + "main" + File.separator + "resources";
+    /** @brief 默认存储实现名称 */
+    public static final String DEFAULT_PROVIDER = "file";
+    /** @brief 全部文本数据文件（商品、用户、管理员、购买记录、日志和导入导出的 CSV）的编码，不随平台默认编码变化 */
+    public static final Charset CHARSET = StandardCharsets.UTF_8;
+
+    /**
+     * @brief 获取数据目录
+     * @return 数据目录
+     */
+    public static File dataDir() {
+        return new File(setting("shop.data.dir", "SHOP_DATA_DIR", DEFAULT_DATA_DIR));
+    }
+
+    /**
+     * @brief 获取数据文件路径
+     * @param property 单独指定该文件路径的系统属性名
+     * @param fileName 数据目录下的默认文件名
+     * @return 系统属性已设置时返回其值，否则返回数据目录下的文件路径
+     */
+    public static String dataFile(String property, String fileName) {
+        String path = System.getProperty(property);
+        return path != null ? path : new File(dataDir(), fileName).getPath();
+    }
+
+    /**
+     * @brief 获取存储实现名称
+     * @return 依次取系统属性 shop.storage、环境变量 SHOP_STORAGE，默认为 file
+     */
+    public static String providerName() {
+        return setting("shop.storage", "SHOP_STORAGE", DEFAULT_PROVIDER);
+    }
+
+    /**
+     * @brief 读取配置项
+     * @param property 系统属性名
+     * @param env 环境变量名
+     * @param defaultValue 默认值
+     * @return 配置值，系统属性优先于环境变量
+     */
+    private static String setting(String property, String env, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(env);
+        }
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * @file StorageProvider.java
+ * @brief 存储实现的服务提供者接口
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+/**
+ * @interface StorageProvider
+ * @brief 存储实现的服务提供者接口（SPI）
+ * @details 其他存储实现只需实现本接口，并在 META-INF/services/main.com.storage.StorageProvider 中登记，
+ *          再通过 shop.storage 系统属性或 SHOP_STORAGE 环境变量选择其名称即可，服务层代码无需修改
+ */
+public interface StorageProvider {
+    /**
+     * @brief 获取存储实现名称
+     * @return 名称，与 shop.storage 配置值对应
+     */
+    String name();
+
+    /**
+     * @brief 获取商品目录存储
+     * @return 商品目录存储
+     */
+    CatalogRepository catalog();
+
+    /**
+     * @brief 获取用户存储
+     * @return 用户存储
+     */
+    UserRepository users();
+
+    /**
+     * @brief 获取管理员存储
+     * @return 管理员存储
+     */
+    AdminRepository admins();
+
+    /**
+     * @brief 获取购买记录存储
+     * @return 购买记录存储
+     */
+    PurchaseRepository purchases();
+}
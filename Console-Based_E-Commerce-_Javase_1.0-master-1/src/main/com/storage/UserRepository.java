@@ -0,0 +1,58 @@
+/**
+ * @file UserRepository.java
+ * @brief 用户存储接口
+ * @package main.com.storage
+ */
+package main.com.storage;
+
+import main.com.model.User;
+
+import java.util.List;
+
+/**
+ * @interface UserRepository
+ * @brief 用户信息的存储接口
+ */
+public interface UserRepository {
+    /**
+     * @brief 添加用户
+     * @param user 新用户，密码为明文，由存储实现校验并散列
+     * @throws IllegalArgumentException 当用户输入不合法时
+     */
+    void add(User user);
+
+    /**
+     * @brief 验证用户名和密码
+     * @param username 用户名
+     * @param password 密码
+     * @return 验证通过返回 true
+     */
+    boolean validate(String username, String password);
+
+    /**
+     * @brief 根据用户名获取用户
+     * @param username 用户名
+     * @return 用户对象的副本，不存在时返回 null
+     */
+    User findByUsername(String username);
+
+    /**
+     * @brief 获取全部用户
+     * @return 用户列表
+     */
+    List<User> findAll();
+
+    /**
+     * @brief 修改用户密码
+     * @param user 带有新的明文密码的用户对象，由存储实现校验并散列
+     * @throws IllegalArgumentException 当用户输入不合法时
+     */
+    void updatePassword(User user);
+
+    /**
+     * @brief 删除用户
+     * @param username 用户名
+     * @return 删除成功返回 true
+     */
+    boolean delete(String username);
+}
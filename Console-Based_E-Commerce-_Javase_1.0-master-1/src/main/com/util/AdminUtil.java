@@ -6,6 +6,7 @@
 package main.com.util;
 
 import main.com.model.Admin;
+import main.com.storage.StorageConfig;
 
 import java.io.*;
 import java.util.ArrayList;
@@ -17,23 +18,22 @@ import java.util.List;
  * @details 提供从文本文件读取、验证和管理管理员信息的静态方法
  */
 public class AdminUtil {
-    /** @brief 管理员信息文件的绝对路径 */
-    private static final String ADMIN_FILE_PATH = "C:\\Users\\liu69\\Desktop\\Console-Based_E-Commerce-_Javase_1.0-master-1\\src\\main\\resources\\Admin.txt";
+    /** @brief 管理员信息文件路径，默认位于数据目录下，可通过系统属性 shop.admins.file 覆盖 */
+    private static final String ADMIN_FILE_PATH = StorageConfig.dataFile("shop.admins.file", "Admin.txt");
 
     /**
      * @brief 从文本文件读取管理员信息
      * @return 包含所有管理员信息的列表
-     * @details 读取 Admin.txt 文件，解析每行管理员信息并创建 Admin 对象
+     * @details 读取 Admin.txt 文件，跳过表头后解析每行管理员信息并创建 Admin 对象
      */
     public static List<Admin> readAdminsFromTxt() {
         List<Admin> adminList = new ArrayList<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(ADMIN_FILE_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(","); // 根据逗号分隔字段
-                String username = values[0];
-                String password = values[1];
+        try (CsvRecordReader record = new CsvRecordReader(new InputStreamReader(new FileInputStream(ADMIN_FILE_PATH), StorageConfig.CHARSET))) {
+            record.next(); // 跳过表头
+            while (record.next()) { // 根据逗号分隔字段
+                String username = record.getString(0);
+                String password = record.getString(1);
 
                 Admin admin = new Admin(username, password);
                 adminList.add(admin);
@@ -72,7 +72,7 @@ public class AdminUtil {
         List<Admin> admins = readAdminsFromTxt(); // 读取当前所有管理员
         boolean found = false;
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(ADMIN_FILE_PATH))) {
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(ADMIN_FILE_PATH), StorageConfig.CHARSET))) {
             // 写入表头（可选）
             bw.write("username,password");
             bw.newLine();
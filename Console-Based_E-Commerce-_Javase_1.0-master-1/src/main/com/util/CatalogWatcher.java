@@ -0,0 +1,145 @@
+/**
+ * @file CatalogWatcher.java
+ * @brief 商品文件监视类，在商品文件被外部修改时触发重新加载
+ * @package main.com.util
+ */
+package main.com.util;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * @class CatalogWatcher
+ * @brief 基于 WatchService 的商品文件监视器
+ * @details 后台守护线程监视商品文件所在目录，商品文件被创建、替换或修改后稍作等待（合并连续的写入事件），
+ *          再调用回调。回调自行通过 stampOf 比较修改时间、大小和文件标识判断文件是否真的变化，
+ *          因此本进程自己压缩快照产生的事件不会引起重新加载。平台不支持 WatchService 时退化为定时轮询
+ */
+public class CatalogWatcher implements Runnable {
+    /** @brief 收到事件后等待后续事件的时间（毫秒） */
+    private static final long DEBOUNCE_MILLIS = 200;
+    /** @brief 退化为轮询时的轮询间隔（毫秒） */
+    private static final long POLL_MILLIS = 2000;
+
+    /** @brief 被监视的文件 */
+    private final Path file;
+    /** @brief 文件可能发生变化时执行的回调 */
+    private final Runnable onChange;
+    /** @brief 监视线程 */
+    private Thread thread;
+
+    /**
+     * @brief 构造函数
+     * @param path 被监视的文件路径
+     * @param onChange 文件可能发生变化时执行的回调，在监视线程中执行
+     */
+    public CatalogWatcher(String path, Runnable onChange) {
+        this.file = Paths.get(path).toAbsolutePath();
+        this.onChange = onChange;
+    }
+
+    /**
+     * @brief 启动监视线程，重复调用无效
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this, "catalog-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * @brief 停止监视线程
+     */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * @brief 监视线程主循环
+     */
+    @Override
+    public void run() {
+        try {
+            try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+                file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean relevant = isRelevant(key);
+                    key.reset();
+                    if (relevant) {
+                        Thread.sleep(DEBOUNCE_MILLIS);
+                        for (WatchKey pending = watchService.poll(); pending != null; pending = watchService.poll()) {
+                            pending.pollEvents(); // 合并等待期间的事件
+                            pending.reset();
+                        }
+                        fire();
+                    }
+                }
+            } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+                e.printStackTrace();
+            }
+            while (true) { // 无法使用 WatchService 时定时轮询
+                Thread.sleep(POLL_MILLIS);
+                fire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @brief 判断事件是否与被监视的文件有关
+     * @param key 监视键
+     * @return 有关时返回 true
+     */
+    private boolean isRelevant(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                relevant = true;
+            }
+        }
+        return relevant;
+    }
+
+    /**
+     * @brief 执行回调，回调出错不终止监视线程
+     */
+    private void fire() {
+        try {
+            onChange.run();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @brief 获取文件的版本标记
+     * @param path 文件路径
+     * @return 由修改时间、大小和文件标识组成的标记，文件不存在时返回 null
+     * @details 文件被替换（如重命名覆盖）时文件标识变化，被原地修改时修改时间或大小变化
+     */
+    public static String stampOf(String path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            return attributes.lastModifiedTime().toMillis() + ":" + attributes.size() + ":" + attributes.fileKey();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * @file ChunkedFileLoader.java
+ * @brief 分块并行文件加载类，将大文本文件按行边界切分后在 fork/join 线程池中并行解析
+ * @package main.com.util
+ */
+package main.com.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @class ChunkedFileLoader
+ * @brief 按换行符对齐的字节范围并行解析文本文件
+ * @details 先把文件切成若干字节范围，每个范围的终点向后移到下一个换行符之后，保证没有一行跨越两个范围；
+ *          再由公共 fork/join 线程池递归二分范围并行读取和解析，结果按文件顺序返回，调用方顺序合并即可。
+ *          块大小为文件大小除以线程池并行度的 4 倍，限制在 1MB 到 shop.load.chunk.bytes（默认 16MB）之间，
+ *          小于 1MB 的文件直接在调用线程中作为一个块解析，线程池只有一个线程时在调用线程中逐块解析。行边界只按字节 '\n' 判断，适用于 UTF-8 等兼容 ASCII 的编码
+ */
+public class ChunkedFileLoader {
+    /** @brief 最小块大小（字节） */
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    /** @brief 最大块大小（字节） */
+    private static final long MAX_CHUNK_BYTES = Long.getLong("shop.load.chunk.bytes", 16 << 20);
+    /** @brief 查找换行符时每次读取的字节数 */
+    private static final int SCAN_BYTES = 8192;
+
+    /**
+     * @interface ChunkParser
+     * @brief 块解析器
+     * @param <T> 每个块的解析结果类型
+     */
+    @FunctionalInterface
+    public interface ChunkParser<T> {
+        /**
+         * @brief 解析一个块
+         * @param chunk 块的全部字节，从行首开始、到换行符之后（或文件末尾）结束
+         * @param offset 块在文件中的起始偏移量
+         * @return 该块的解析结果
+         * @throws IOException 解析失败时抛出
+         * @details 在线程池的工作线程中并发调用，实现不得修改共享状态
+         */
+        T parse(ByteBuffer chunk, long offset) throws IOException;
+    }
+
+    /**
+     * @brief 并行解析整个文件
+     * @param path 文件路径
+     * @param parser 块解析器
+     * @param <T> 每个块的解析结果类型
+     * @return 各块的解析结果，按文件顺序排列
+     * @throws IOException 文件不存在或读取失败时抛出
+     */
+    public static <T> List<T> load(String path, ChunkParser<T> parser) throws IOException {
+        return load(path, 0, parser);
+    }
+
+    /**
+     * @brief 从指定偏移量开始并行解析文件
+     * @param path 文件路径
+     * @param start 开始解析的偏移量，必须位于行首
+     * @param parser 块解析器
+     * @param <T> 每个块的解析结果类型
+     * @return 各块的解析结果，按文件顺序排列
+     * @throws IOException 文件不存在或读取失败时抛出
+     */
+    public static <T> List<T> load(String path, long start, ChunkParser<T> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long[] bounds = split(channel, start, channel.size());
+            int chunks = bounds.length - 1;
+            Object[] results = new Object[chunks];
+            if (chunks == 1 || ForkJoinPool.getCommonPoolParallelism() <= 1) {
+                for (int i = 0; i < chunks; i++) { // 单处理器上顺序解析，避免线程切换
+                    results[i] = parser.parse(read(channel, bounds[i], bounds[i + 1]), bounds[i]);
+                }
+            } else if (chunks > 1) {
+                try {
+                    ForkJoinPool.commonPool().invoke(new ParseTask<>(channel, bounds, parser, results, 0, chunks));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            List<T> list = new ArrayList<>(chunks);
+            for (Object result : results) {
+                @SuppressWarnings("unchecked")
+                T t = (T) result;
+                list.add(t);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * @brief 创建读取一个块的记录读取器
+     * @param chunk 块的字节
+     * @param charset 文件编码
+     * @return 记录读取器
+     */
+    public static CsvRecordReader reader(ByteBuffer chunk, Charset charset) {
+        return new CsvRecordReader(new InputStreamReader(
+                new ByteArrayInputStream(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining()), charset));
+    }
+
+    /**
+     * @brief 计算按换行符对齐的块边界
+     * @param channel 文件通道
+     * @param start 起始偏移量
+     * @param size 文件大小
+     * @return 边界数组，第 i 个块为 [bounds[i], bounds[i + 1])；没有内容时只含起始偏移量
+     * @throws IOException 读取失败时抛出
+     */
+    private static long[] split(FileChannel channel, long start, long size) throws IOException {
+        long length = size - start;
+        if (length <= 0) {
+            return new long[]{start};
+        }
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long chunkBytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, length / (parallelism * 4L)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long position = start;
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BYTES);
+        while (size - position > chunkBytes) {
+            long boundary = nextLineStart(channel, position + chunkBytes, size, scan);
+            if (boundary >= size) {
+                break;
+            }
+            bounds.add(boundary);
+            position = boundary;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @brief 查找指定位置之后的第一个行首
+     * @param channel 文件通道
+     * @param from 开始查找的位置
+     * @param size 文件大小
+     * @param scan 读取缓冲区
+     * @return 第一个换行符之后的位置，没有换行符时返回文件大小
+     * @throws IOException 读取失败时抛出
+     */
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer scan) throws IOException {
+        long position = from;
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * @brief 读取一个字节范围
+     * @param channel 文件通道，按位置读取，可被多个线程同时使用
+     * @param from 起始位置
+     * @param to 结束位置（不含）
+     * @return 包含该范围全部字节的堆缓冲区
+     * @throws IOException 读取失败时抛出
+     * @details 不使用内存映射，读取结束后文件可以立即被替换或删除
+     */
+    private static ByteBuffer read(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, from + buffer.position()) < 0) {
+                break; // 文件在读取期间被截断
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @class ParseTask
+     * @brief 递归二分块范围的并行解析任务
+     * @param <T> 每个块的解析结果类型
+     */
+    private static class ParseTask<T> extends RecursiveAction {
+        /** @brief 序列化版本号 */
+        private static final long serialVersionUID = 1L;
+
+        /** @brief 文件通道 */
+        private final FileChannel channel;
+        /** @brief 块边界 */
+        private final long[] bounds;
+        /** @brief 块解析器 */
+        private final ChunkParser<T> parser;
+        /** @brief 各块的解析结果 */
+        private final Object[] results;
+        /** @brief 本任务负责的第一个块 */
+        private final int from;
+        /** @brief 本任务负责的最后一个块之后 */
+        private final int to;
+
+        /**
+         * @brief 构造函数
+         * @param channel 文件通道
+         * @param bounds 块边界
+         * @param parser 块解析器
+         * @param results 各块的解析结果
+         * @param from 第一个块
+         * @param to 最后一个块之后
+         */
+        private ParseTask(FileChannel channel, long[] bounds, ChunkParser<T> parser, Object[] results, int from, int to) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.parser = parser;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    results[from] = parser.parse(read(channel, bounds[from], bounds[from + 1]), bounds[from]);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ParseTask<>(channel, bounds, parser, results, from, middle),
+                    new ParseTask<>(channel, bounds, parser, results, middle, to));
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * @file CsvRecordReader.java
+ * @brief 流式逗号分隔记录解析类，供商品、用户、管理员和购买记录文件共用
+ * @package main.com.util
+ */
+package main.com.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * @class CsvRecordReader
+ * @brief 直接在字符缓冲区上切分字段的记录读取器
+ * @details 替代 BufferedReader.readLine() + String.split(",")：每行只记录各字段在缓冲区中的起止位置，
+ *          不创建行字符串和字段数组；字段只有在调用 getString 时才会生成字符串，数值字段直接从字符解析。
+ *          与 split 不同，末尾的空字段也会被计入字段数；空行会被跳过
+ */
+public class CsvRecordReader implements Closeable {
+    /** @brief 默认缓冲区大小（字符数） */
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    /** @brief 10 的幂，用于快速解析小数 */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /** @brief 可以精确表示为 double 的最大整数尾数 */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** @brief 字符来源 */
+    private final Reader reader;
+    /** @brief 字符缓冲区，单行超过缓冲区大小时自动扩容 */
+    private char[] buffer;
+    /** @brief 缓冲区中有效字符的结束位置 */
+    private int limit;
+    /** @brief 下一条记录的起始位置 */
+    private int position;
+    /** @brief 是否已读到输入末尾 */
+    private boolean eof;
+    /** @brief 当前记录在缓冲区中的起始位置 */
+    private int recordStart;
+    /** @brief 当前记录在缓冲区中的结束位置（不含换行符） */
+    private int recordEnd;
+    /** @brief 当前记录各字段的起始位置 */
+    private int[] fieldStarts = new int[8];
+    /** @brief 当前记录各字段的结束位置（不含） */
+    private int[] fieldEnds = new int[8];
+    /** @brief 当前记录的字段数 */
+    private int fieldCount;
+
+    /**
+     * @brief 构造函数
+     * @param reader 字符来源，关闭本读取器时一并关闭
+     */
+    public CsvRecordReader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @brief 构造函数
+     * @param reader 字符来源，关闭本读取器时一并关闭
+     * @param bufferSize 初始缓冲区大小（字符数）
+     */
+    public CsvRecordReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[Math.max(16, bufferSize)];
+    }
+
+    /**
+     * @brief 前进到下一条非空记录
+     * @return 存在下一条记录时返回 true，到达输入末尾时返回 false
+     * @throws IOException 读取失败时抛出
+     * @details 支持 \n 和 \r\n 两种换行符；最后一行可以没有换行符
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            int end = position;
+            while (true) {
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                if (end < limit || eof) {
+                    break;
+                }
+                end -= fill();
+            }
+            if (position >= limit) {
+                fieldCount = 0;
+                return false;
+            }
+            int start = position;
+            position = end < limit ? end + 1 : limit;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (end > start) {
+                split(start, end);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @brief 从输入读取更多字符
+     * @return 已有数据向缓冲区开头移动的距离
+     * @throws IOException 读取失败时抛出
+     */
+    private int fill() throws IOException {
+        int shift = position;
+        if (shift > 0) {
+            System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+            limit -= shift;
+            position = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+        return shift;
+    }
+
+    /**
+     * @brief 记录当前行各字段的起止位置
+     * @param start 行起始位置
+     * @param end 行结束位置（不含换行符）
+     */
+    private void split(int start, int end) {
+        recordStart = start;
+        recordEnd = end;
+        fieldCount = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == ',') {
+                if (fieldCount == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                }
+                fieldStarts[fieldCount] = fieldStart;
+                fieldEnds[fieldCount] = i;
+                fieldCount++;
+                fieldStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * @brief 获取当前记录的原始文本
+     * @return 当前记录所在行（不含换行符），主要用于错误提示
+     */
+    public String currentRecord() {
+        return new String(buffer, recordStart, recordEnd - recordStart);
+    }
+
+    /**
+     * @brief 获取当前记录的字段数
+     * @return 字段数
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @brief 以字符串形式获取字段
+     * @param index 字段序号，从 0 开始
+     * @return 字段内容
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        return new String(buffer, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+
+    /**
+     * @brief 判断字段内容是否等于给定字符串，不创建字段字符串
+     * @param index 字段序号，从 0 开始
+     * @param value 要比较的字符串
+     * @return 相等时返回 true
+     */
+    public boolean fieldEquals(int index, String value) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int length = fieldEnds[index] - start;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @brief 计算字段内容的散列值，不创建字段字符串
+     * @param index 字段序号，从 0 开始
+     * @return 与 getString(index).hashCode() 相同的值
+     */
+    public int fieldHash(int index) {
+        checkIndex(index);
+        int hash = 0;
+        for (int i = fieldStarts[index]; i < fieldEnds[index]; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return hash;
+    }
+
+    /**
+     * @brief 以整数形式获取字段
+     * @param index 字段序号，从 0 开始
+     * @return 字段的整数值
+     * @throws NumberFormatException 字段不是合法整数时抛出
+     */
+    public int getInt(int index) {
+        long value = getLong(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("整数超出范围: " + getString(index));
+        }
+        return (int) value;
+    }
+
+    /**
+     * @brief 以长整数形式获取字段
+     * @param index 字段序号，从 0 开始
+     * @return 字段的长整数值
+     * @throws NumberFormatException 字段不是合法整数时抛出
+     */
+    public long getLong(int index) {
+        checkIndex(index);
+        int i = fieldStarts[index];
+        int end = fieldEnds[index];
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == end || end - i > 18) {
+            return Long.parseLong(getString(index)); // 空字段或位数过多，交给标准实现处理（含报错）
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("非法整数: " + getString(index));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @brief 以浮点数形式获取字段
+     * @param index 字段序号，从 0 开始
+     * @return 字段的浮点数值
+     * @throws NumberFormatException 字段不是合法数字时抛出
+     * @details 形如 "899.0" 的普通小数直接由整数尾数除以 10 的幂得到，结果与 Double.parseDouble 一致；
+     *          含指数、首尾空白或有效位数过多的情况退回 Double.parseDouble
+     */
+    public double getDouble(int index) {
+        checkIndex(index);
+        int i = fieldStarts[index];
+        int end = fieldEnds[index];
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char c = buffer[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.parseDouble(getString(index));
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return Double.parseDouble(getString(index)); // 指数、空白等不常见格式
+            }
+        }
+        if (digits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(getString(index));
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * @brief 检查字段序号是否有效
+     * @param index 字段序号
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("字段序号超出范围: " + index + "，字段数: " + fieldCount);
+        }
+    }
+
+    /**
+     * @brief 关闭读取器
+     * @throws IOException 关闭失败时抛出
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * @file GoodsJournal.java
+ * @brief 商品变更日志类，以追加方式记录库存和商品编辑操作
+ * @package main.com.util
+ */
+package main.com.util;
+
+import main.com.storage.StorageConfig;
+
+import java.io.*;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * @class GoodsJournal
+ * @brief 商品预写日志（write-ahead log），记录 goods.txt 快照之后的所有变更
+ * @details 每次库存变化或商品编辑只向日志末尾追加一行记录，不再重写整个商品文件；
+ *          启动时先读取快照再按顺序重放日志，日志过长时由 TxtUtil 压缩进快照后清空。
+ *          订单记录通过 appendDurably 写入并 fsync，并发结算的订单合并为一次 fsync
+ */
+public class GoodsJournal {
+    /** @brief 库存增减记录：S,商品ID,变化量，只由旧版本写入，重放时仍然支持 */
+    public static final String STOCK = "S";
+    /** @brief 新增或修改商品记录：U,商品ID,名称,描述,价格,库存,类别 */
+    public static final String UPSERT = "U";
+    /** @brief 删除商品记录：D,商品ID */
+    public static final String DELETE = "D";
+    /** @brief 订单记录，订单的提交点：O,订单号,用户名,商品ID,数量,商品ID,数量...,校验和 */
+    public static final String ORDER = "O";
+    /** @brief 订单购买记录已写入：P,订单号 */
+    public static final String PURCHASED = "P";
+    /** @brief 订单已撤销，重放时恢复其扣减的库存：A,订单号 */
+    public static final String ABORT = "A";
+
+    /** @brief 日志文件路径 */
+    private final String path;
+    /** @brief 保持打开的追加写入流，避免每条记录都重新打开文件 */
+    private BufferedWriter writer;
+    /** @brief 写入流底层的文件流，用于 fsync */
+    private FileOutputStream stream;
+    /** @brief 自上次压缩以来的记录条数 */
+    private int recordCount;
+    /** @brief 已写入操作系统的记录序号 */
+    private long writtenSeq;
+    /** @brief 已 fsync 的记录序号，由 syncLock 保护 */
+    private long syncedSeq;
+    /** @brief fsync 锁，持有者为当前的刷盘线程，其余线程在其后等待；虚拟线程在 ReentrantLock 上等待时不占住平台线程 */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    /**
+     * @brief 构造函数
+     * @param path 日志文件路径
+     */
+    public GoodsJournal(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @brief 计算记录字段的校验和
+     * @param fields 记录中校验和之前的各个字段
+     * @return 各字段以逗号连接后的 CRC32，十六进制表示
+     * @details 写在记录的最后一列，重放时据此识别写入中断而被截短的记录
+     */
+    public static String checksum(String... fields) {
+        CRC32 crc = new CRC32();
+        crc.update(String.join(",", fields).getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * @brief 追加一条日志记录
+     * @param fields 记录的各个字段，第一个字段为记录类型
+     * @details 记录以逗号连接后写入一行并立即刷新，代价为一次小的顺序追加
+     */
+    public synchronized void append(String... fields) {
+        try {
+            write(fields);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @brief 追加一条日志记录并等待其落盘
+     * @param fields 记录的各个字段，第一个字段为记录类型
+     * @return 写入并 fsync 成功时返回 true
+     * @details 组提交：记录先写入操作系统，再竞争 fsync 锁；拿到锁的线程一次 fsync 所有已写入的记录，
+     *          在其后等待的线程发现自己的记录已被覆盖即直接返回，并发结算时多个订单只需一次 fsync
+     */
+    public boolean appendDurably(String... fields) {
+        long ticket;
+        synchronized (this) {
+            try {
+                write(fields);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+            ticket = writtenSeq;
+        }
+        syncLock.lock();
+        try {
+            if (syncedSeq >= ticket) {
+                return true; // 已被其他线程的 fsync 覆盖
+            }
+            long target;
+            FileChannel channel;
+            synchronized (this) {
+                target = writtenSeq;
+                channel = stream == null ? null : stream.getChannel();
+            }
+            try {
+                force(channel);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return false;
+            }
+            syncedSeq = target;
+            return true;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * @brief 把已写入操作系统的记录 fsync 到磁盘
+     * @param channel 取得 target 时追加写入流的通道，流已关闭时为 null
+     * @throws IOException fsync 失败时抛出
+     * @details 其他线程写入失败、重放或清空日志时会关闭追加写入流，而此前写入的记录可能尚未落盘，
+     *          因此流已关闭时重新打开日志文件再 fsync，不能直接视为已落盘
+     */
+    private void force(FileChannel channel) throws IOException {
+        if (channel != null) {
+            try {
+                channel.force(false);
+                return;
+            } catch (ClosedChannelException e) {
+                // 取得通道之后流被其他线程关闭，改为重新打开文件
+            }
+        }
+        try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE)) {
+            file.force(false);
+        }
+    }
+
+    /**
+     * @brief 写入一行记录并刷新到操作系统
+     * @param fields 记录的各个字段
+     * @throws IOException 写入失败时抛出，此时已写入的部分字节被截掉
+     * @details 写入中途失败时文件可能留下半行，之后追加的记录会接在其后成为一条无法解析的记录，
+     *          因此把文件截回写入前的长度
+     */
+    private void write(String... fields) throws IOException {
+        if (writer == null) {
+            stream = new FileOutputStream(path, true);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StorageConfig.CHARSET));
+        }
+        long start = stream.getChannel().size(); // 每条记录写入后都已刷新，文件长度即写入前的位置
+        try {
+            writer.write(String.join(",", fields));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            truncateTo(start);
+            throw e;
+        }
+        recordCount++;
+        writtenSeq++;
+    }
+
+    /**
+     * @brief 把日志文件截到指定长度
+     * @param length 截断后的长度
+     * @return 截断成功时返回 true
+     * @details 先关闭追加写入流，关闭时可能刷出缓冲区中残留的字节，因此之后再截断；文件不存在时创建空文件
+     */
+    private boolean truncateTo(long length) {
+        closeWriter();
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            channel.truncate(length);
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * @brief 按写入顺序重放日志
+     * @param handler 处理每条记录的回调，回调中通过记录读取器按需取出字段
+     * @return 成功重放的记录条数
+     * @details 日志文件不存在时视为空日志；无法解析的记录（如写入中断的最后一行）会被跳过
+     */
+    public synchronized int replay(Consumer<CsvRecordReader> handler) {
+        closeWriter();
+        int count = 0;
+        File file = new File(path);
+        if (file.exists()) {
+            try (CsvRecordReader record = new CsvRecordReader(new InputStreamReader(new FileInputStream(file), StorageConfig.CHARSET))) {
+                while (record.next()) {
+                    try {
+                        handler.accept(record);
+                        count++;
+                    } catch (RuntimeException e) {
+                        System.err.println("跳过无法解析的商品日志记录：" + record.currentRecord());
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        recordCount = count;
+        return count;
+    }
+
+    /**
+     * @brief 获取自上次压缩以来的记录条数
+     * @return 日志记录条数
+     */
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    /**
+     * @brief 清空日志
+     * @details 在日志内容已经压缩进商品快照后调用
+     */
+    public synchronized void truncate() {
+        if (truncateTo(0)) {
+            recordCount = 0;
+        }
+    }
+
+    /**
+     * @brief 关闭追加写入流
+     */
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            writer = null;
+            stream = null;
+        }
+    }
+}
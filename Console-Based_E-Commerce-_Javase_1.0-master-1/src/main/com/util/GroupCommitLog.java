@@ -0,0 +1,297 @@
+/**
+ * @file GroupCommitLog.java
+ * @brief 组提交日志写入类，合并多个并发写入请求后一次性落盘
+ * @package main.com.util
+ */
+package main.com.util;
+
+import main.com.storage.StorageConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class GroupCommitLog
+ * @brief 追加式日志文件的组提交写入器
+ * @details 文件通道只打开一次并保持打开；由一个后台写线程收集所有等待中的记录组，
+ *          合并为一次 write 调用写入，再按刷盘策略决定是否 fsync。每个记录组的字节在文件中连续存放，
+ *          不会与其他记录组交错。调用方在记录组落盘（按策略）后才返回
+ */
+public class GroupCommitLog {
+
+    /**
+     * @enum FsyncPolicy
+     * @brief 刷盘策略
+     */
+    public enum FsyncPolicy {
+        /** @brief 从不主动 fsync，由操作系统决定何时落盘，吞吐量最高 */
+        NEVER,
+        /** @brief 每次组提交后 fsync，调用返回时记录已持久化 */
+        EVERY_COMMIT,
+        /** @brief 按固定时间间隔 fsync，崩溃时最多丢失一个间隔内的记录 */
+        PERIODIC;
+
+        /**
+         * @brief 根据配置字符串解析刷盘策略
+         * @param value 配置值，不区分大小写
+         * @param defaultPolicy 配置为空或无法识别时使用的策略
+         * @return 刷盘策略
+         */
+        public static FsyncPolicy parse(String value, FsyncPolicy defaultPolicy) {
+            if (value == null || value.trim().isEmpty()) {
+                return defaultPolicy;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("未知的刷盘策略: " + value + "，使用默认策略 " + defaultPolicy);
+                return defaultPolicy;
+            }
+        }
+    }
+
+    /** @brief PERIODIC 策略下的默认刷盘间隔（毫秒） */
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 1000;
+
+    /** @brief 日志文件路径 */
+    private final Path path;
+    /** @brief 刷盘策略 */
+    private final FsyncPolicy policy;
+    /** @brief PERIODIC 策略下的刷盘间隔（毫秒） */
+    private final long fsyncIntervalMillis;
+    /** @brief 等待写入的记录组队列 */
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    /** @brief 后台写线程，首次写入时启动 */
+    private Thread writerThread;
+    /** @brief 以追加模式打开的文件通道，只由写线程访问 */
+    private FileChannel channel;
+    /** @brief 下一个记录组在文件中的起始偏移量 */
+    private long position;
+    /** @brief 是否有尚未 fsync 的数据 */
+    private boolean dirty;
+    /** @brief 上次 fsync 的时间 */
+    private long lastForceMillis;
+
+    /**
+     * @brief 构造函数
+     * @param path 日志文件路径
+     * @param policy 刷盘策略
+     */
+    public GroupCommitLog(String path, FsyncPolicy policy) {
+        this(path, policy, DEFAULT_FSYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @brief 构造函数
+     * @param path 日志文件路径
+     * @param policy 刷盘策略
+     * @param fsyncIntervalMillis PERIODIC 策略下的刷盘间隔（毫秒）
+     */
+    public GroupCommitLog(String path, FsyncPolicy policy, long fsyncIntervalMillis) {
+        this.path = Paths.get(path);
+        this.policy = policy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    /**
+     * @brief 追加一个记录组
+     * @param records 记录组内容，可包含多行，整体连续写入
+     * @return 记录组在文件中的起始偏移量
+     * @throws IOException 写入或刷盘失败时抛出
+     * @details 阻塞直到包含该记录组的批次按刷盘策略提交完成
+     */
+    public long append(String records) throws IOException {
+        return append(records.getBytes(StorageConfig.CHARSET));
+    }
+
+    /**
+     * @brief 追加一个已编码的记录组
+     * @param records 按 StorageConfig.CHARSET 编码后的记录组
+     * @return 记录组在文件中的起始偏移量
+     * @throws IOException 写入或刷盘失败时抛出
+     */
+    public long append(byte[] records) throws IOException {
+        PendingWrite write = new PendingWrite(records);
+        startWriterIfNeeded();
+        queue.add(write);
+        try {
+            return write.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待日志写入时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * @brief 启动后台写线程
+     */
+    private synchronized void startWriterIfNeeded() {
+        if (writerThread == null) {
+            writerThread = new Thread(this::runWriter, "group-commit-" + path.getFileName());
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * @brief 写线程主循环
+     * @details 取出队列中所有等待的记录组作为一个批次提交；PERIODIC 策略下空闲时也会按间隔刷盘
+     */
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (true) {
+            try {
+                PendingWrite first = dirty && policy == FsyncPolicy.PERIODIC
+                        ? queue.poll(fsyncIntervalMillis, TimeUnit.MILLISECONDS)
+                        : queue.take();
+                if (first == null) {
+                    forceIfDue();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                commit(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @brief 提交一个批次
+     * @param batch 本批次的记录组
+     * @details 所有记录组合并到一个缓冲区，一次写入文件通道。写入或刷盘失败时整个批次都以失败返回，
+     *          并把文件截回批次开始前的长度，已写入一部分的记录不会留在文件中
+     */
+    private void commit(List<PendingWrite> batch) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                position = channel.size();
+            }
+        } catch (IOException e) {
+            fail(batch, e);
+            return;
+        }
+        try {
+            int total = 0;
+            for (PendingWrite write : batch) {
+                total += write.bytes.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(total);
+            for (PendingWrite write : batch) {
+                write.offset = position + buffer.position();
+                buffer.put(write.bytes);
+            }
+            buffer.flip();
+            dirty = true;
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (policy == FsyncPolicy.EVERY_COMMIT) {
+                force();
+            } else {
+                forceIfDue();
+            }
+            position += total;
+            for (PendingWrite write : batch) {
+                write.result.complete(write.offset);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(position);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            fail(batch, e);
+        }
+    }
+
+    /**
+     * @brief 以失败结束一个批次
+     * @param batch 本批次的记录组
+     * @param error 失败原因
+     * @details 随后关闭文件通道，下一批次重新打开文件并从文件末尾继续
+     */
+    private void fail(List<PendingWrite> batch, IOException error) {
+        for (PendingWrite write : batch) {
+            write.result.completeExceptionally(error);
+        }
+        closeChannel();
+    }
+
+    /**
+     * @brief PERIODIC 策略下达到刷盘间隔时执行 fsync
+     */
+    private void forceIfDue() {
+        if (dirty && policy == FsyncPolicy.PERIODIC
+                && System.currentTimeMillis() - lastForceMillis >= fsyncIntervalMillis) {
+            try {
+                force();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @brief 将已写入的数据刷到磁盘
+     * @throws IOException 刷盘失败时抛出
+     */
+    private void force() throws IOException {
+        channel.force(false);
+        dirty = false;
+        lastForceMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @brief 关闭文件通道
+     */
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * @class PendingWrite
+     * @brief 等待提交的记录组
+     */
+    private static class PendingWrite {
+        /** @brief 编码后的记录组 */
+        private final byte[] bytes;
+        /** @brief 提交结果，完成时为记录组的起始偏移量 */
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        /** @brief 记录组在文件中的起始偏移量 */
+        private long offset;
+
+        /**
+         * @brief 构造函数
+         * @param bytes 编码后的记录组
+         */
+        private PendingWrite(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
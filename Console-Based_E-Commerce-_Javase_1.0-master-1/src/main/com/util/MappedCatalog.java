@@ -0,0 +1,221 @@
+/**
+ * @file MappedCatalog.java
+ * @brief 内存映射二进制商品目录类，提供定长记录格式的商品快照存储
+ * @package main.com.util
+ */
+package main.com.util;
+
+import main.com.model.Good;
+import main.com.storage.StorageConfig;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @class MappedCatalog
+ * @brief 以内存映射方式访问的二进制商品目录
+ * @details 文件格式（小端无关，统一使用 ByteBuffer 默认的大端序）：
+ *          - 文件头（32 字节）：魔数、版本、记录数、记录长度、字符串区偏移量、字符串区长度；
+ *          - 定长记录区：每条记录依次为价格(double)、库存(int)，以及 ID、名称、描述、类别四个字符串
+ *            在字符串区中的偏移量和字节长度（各 int），即字符串偏移表；
+ *          - 字符串区：UTF-8 编码的变长字符串。
+ *          启动时无需解析文本即可直接读取各列。文件是只读快照，之后的库存变化记入商品变更日志，压缩时整体重写
+ */
+public class MappedCatalog {
+    /** @brief 文件魔数 "GDS1" */
+    private static final int MAGIC = 0x47445331;
+    /** @brief 文件格式版本 */
+    private static final int VERSION = 1;
+    /** @brief 文件头长度 */
+    private static final int HEADER_SIZE = 32;
+    /** @brief 单条记录长度：价格 8 + 库存 4 + 4 个字符串引用各 8 */
+    private static final int RECORD_SIZE = 8 + 4 + 4 * 8;
+    /** @brief 库存字段在记录中的偏移量 */
+    private static final int STOCK_OFFSET = 8;
+
+    /** @brief 文件的内存映射 */
+    private final MappedByteBuffer buffer;
+    /** @brief 记录数 */
+    private final int recordCount;
+    /** @brief 字符串区在文件中的偏移量 */
+    private final long stringsOffset;
+
+    /**
+     * @brief 构造函数
+     * @param buffer 文件的内存映射
+     * @details 校验文件头
+     */
+    private MappedCatalog(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getInt(12) != RECORD_SIZE) {
+            throw new IOException("不是有效的二进制商品目录文件");
+        }
+        this.recordCount = buffer.getInt(8);
+        this.stringsOffset = buffer.getLong(16);
+        if (HEADER_SIZE + (long) recordCount * RECORD_SIZE > stringsOffset
+                || stringsOffset + buffer.getLong(24) > buffer.capacity()) {
+            throw new IOException("二进制商品目录文件已损坏");
+        }
+    }
+
+    /**
+     * @brief 以只读方式映射二进制商品目录文件
+     * @param path 文件路径
+     * @return 映射后的商品目录
+     * @throws IOException 文件不存在、格式错误或映射失败时抛出
+     */
+    public static MappedCatalog open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return new MappedCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @brief 将商品列表写为二进制商品目录文件
+     * @param path 目标文件路径
+     * @param goods 商品列表，按列表顺序写入
+     * @throws IOException 写入失败时抛出
+     * @details 先写入临时文件再原子替换目标文件
+     */
+    public static void write(String path, List<Good> goods) throws IOException {
+        ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        ByteBuffer records = ByteBuffer.allocate(goods.size() * RECORD_SIZE);
+        for (Good good : goods) {
+            records.putDouble(good.getPrice());
+            records.putInt(good.getStock());
+            for (String value : new String[]{good.getId(), good.getName(), good.getDescription(), good.getCategory()}) {
+                byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+                records.putInt(strings.size());
+                records.putInt(bytes.length);
+                strings.write(bytes);
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(goods.size()).putInt(RECORD_SIZE)
+                .putLong(HEADER_SIZE + (long) records.capacity()).putLong(strings.size());
+
+        Path target = Paths.get(path);
+        Path temp = Paths.get(path + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            header.flip();
+            records.flip();
+            ByteBuffer heap = ByteBuffer.wrap(strings.toByteArray());
+            for (ByteBuffer part : new ByteBuffer[]{header, records, heap}) {
+                while (part.hasRemaining()) {
+                    channel.write(part);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @brief 读取全部商品
+     * @return 按文件中记录顺序排列的商品列表
+     */
+    public List<Good> readAll() {
+        List<Good> goods = new ArrayList<>(recordCount);
+        for (int slot = 0; slot < recordCount; slot++) {
+            int base = HEADER_SIZE + slot * RECORD_SIZE;
+            goods.add(new Good(readString(slot, 0), readString(slot, 1), readString(slot, 2),
+                    buffer.getDouble(base), buffer.getInt(base + STOCK_OFFSET), readString(slot, 3)));
+        }
+        return goods;
+    }
+
+    /**
+     * @brief 获取记录数
+     * @return 记录数
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * @brief 读取记录中的字符串字段
+     * @param slot 记录序号
+     * @param field 字段序号：0 ID，1 名称，2 描述，3 类别
+     * @return 字段内容
+     */
+    private String readString(int slot, int field) {
+        int reference = HEADER_SIZE + slot * RECORD_SIZE + 12 + field * 8;
+        int offset = buffer.getInt(reference);
+        int length = buffer.getInt(reference + 4);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) (stringsOffset + offset));
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief 将 goods.txt 格式的文本文件导入为二进制商品目录
+     * @param txtPath 文本商品文件路径
+     * @param binPath 二进制商品目录文件路径
+     * @return 导入的商品数
+     * @throws IOException 读写失败时抛出
+     */
+    public static int importFromTxt(String txtPath, String binPath) throws IOException {
+        List<Good> goods = new ArrayList<>();
+        try (CsvRecordReader record = new CsvRecordReader(new InputStreamReader(new FileInputStream(txtPath), StorageConfig.CHARSET))) {
+            record.next(); // 跳过表头
+            while (record.next()) {
+                goods.add(new Good(record.getString(0), record.getString(1), record.getString(2),
+                        record.getDouble(3), record.getInt(4), record.getString(5)));
+            }
+        }
+        write(binPath, goods);
+        return goods.size();
+    }
+
+    /**
+     * @brief 将二进制商品目录导出为 goods.txt 格式的文本文件
+     * @param binPath 二进制商品目录文件路径
+     * @param txtPath 文本商品文件路径
+     * @return 导出的商品数
+     * @throws IOException 读写失败时抛出
+     */
+    public static int exportToTxt(String binPath, String txtPath) throws IOException {
+        List<Good> goods = open(binPath).readAll();
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(txtPath), StorageConfig.CHARSET))) {
+            bw.write("id,name,description,price,stock,category");
+            bw.newLine();
+            for (Good good : goods) {
+                bw.write(good.getId() + "," + good.getName() + "," + good.getDescription() + "," + good.getPrice() + "," + good.getStock() + "," + good.getCategory());
+                bw.newLine();
+            }
+        }
+        return goods.size();
+    }
+
+    /**
+     * @brief 命令行转换入口
+     * @param args import|export goods.txt路径 goods.bin路径
+     * @throws IOException 读写失败时抛出
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.out.println("用法：java main.com.util.MappedCatalog import|export <goods.txt> <goods.bin>");
+            return;
+        }
+        if (args[0].equals("import")) {
+            System.out.println("已导入 " + importFromTxt(args[1], args[2]) + " 个商品");
+        } else {
+            System.out.println("已导出 " + exportToTxt(args[2], args[1]) + " 个商品");
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * @file PasswordHasher.java
+ * @brief 密码散列类，提供加盐的慢速散列和带缓存的校验
+ * @package main.com.util
+ */
+package main.com.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @class PasswordHasher
+ * @brief 基于 PBKDF2-HMAC-SHA256 的密码散列
+ * @details 散列值格式为 pbkdf2-sha256$迭代次数$盐$散列，盐和散列以 Base64 编码，不含逗号，可直接写入用户文件。
+ *          迭代次数由系统属性 shop.password.iterations 调整（默认 100000），修改后旧散列在下次登录时重新计算。
+ *          每个线程复用自己的 Mac 实例，热路径上不再重复查找算法提供者和分配对象。
+ *          校验成功的结果记入有界的 LRU 缓存（shop.password.cache.max，默认 10000 条）：
+ *          缓存以散列值为键，保存以进程内随机密钥计算的密码 HMAC，不保存明文；重复登录只需一次 HMAC
+ */
+public class PasswordHasher {
+    /** @brief 散列值前缀 */
+    private static final String PREFIX = "pbkdf2-sha256$";
+    /** @brief 散列算法 */
+    private static final String ALGORITHM = "HmacSHA256";
+    /** @brief 盐的字节数 */
+    private static final int SALT_BYTES = 16;
+    /** @brief 散列的字节数，等于 SHA-256 的输出长度，PBKDF2 只需计算一个块 */
+    private static final int HASH_BYTES = 32;
+    /** @brief 新散列使用的迭代次数 */
+    private static final int ITERATIONS = Integer.getInteger("shop.password.iterations", 100000);
+    /** @brief 校验缓存的最大条数 */
+    private static final int CACHE_MAX = Integer.getInteger("shop.password.cache.max", 10000);
+
+    /** @brief 盐的随机数来源 */
+    private static final SecureRandom random = new SecureRandom();
+    /** @brief 每个线程的 HMAC 实例 */
+    private static final ThreadLocal<Mac> macs = ThreadLocal.withInitial(PasswordHasher::newMac);
+    /** @brief 校验缓存使用的进程内随机密钥 */
+    private static final SecretKeySpec cacheKey;
+    /** @brief 每个线程以 cacheKey 初始化的 HMAC 实例 */
+    private static final ThreadLocal<Mac> cacheMacs;
+    /** @brief 校验缓存，散列值到密码的 HMAC，按访问顺序淘汰 */
+    private static final Map<String, byte[]> verified = Collections.synchronizedMap(new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+            return size() > CACHE_MAX;
+        }
+    });
+
+    static {
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        cacheKey = new SecretKeySpec(key, ALGORITHM);
+        cacheMacs = ThreadLocal.withInitial(() -> {
+            Mac mac = newMac();
+            try {
+                mac.init(cacheKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+            return mac;
+        });
+    }
+
+    /**
+     * @brief 计算密码的散列值
+     * @param password 明文密码，不能为空
+     * @return 包含算法、迭代次数和随机盐的散列值
+     */
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + ITERATIONS + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(pbkdf2(password, salt, ITERATIONS));
+    }
+
+    /**
+     * @brief 校验密码
+     * @param stored 用户文件中保存的散列值
+     * @param password 用户输入的明文密码
+     * @return 密码正确时返回 true；散列值格式不正确时返回 false
+     * @details 先查校验缓存，命中时只需一次 HMAC；未命中时按散列值中的参数重新计算
+     */
+    public static boolean verify(String stored, String password) {
+        if (!isHashed(stored) || password == null || password.isEmpty()) {
+            return false;
+        }
+        byte[] tag = cacheMacs.get().doFinal(password.getBytes(StandardCharsets.UTF_8));
+        byte[] cached = verified.get(stored);
+        if (cached != null && MessageDigest.isEqual(cached, tag)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            if (!MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations))) {
+                return false;
+            }
+        } catch (IllegalArgumentException e) {
+            return false; // 迭代次数或 Base64 编码不合法
+        }
+        verified.put(stored, tag);
+        return true;
+    }
+
+    /**
+     * @brief 判断保存的密码是否为本类生成的散列值
+     * @param stored 用户文件中保存的密码
+     * @return 是散列值时返回 true，旧数据中的明文或 MD5 返回 false
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    /**
+     * @brief 判断散列值是否需要按当前参数重新计算
+     * @param stored 用户文件中保存的密码
+     * @return 不是散列值，或迭代次数低于当前设置时返回 true
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        int end = stored.indexOf('$', PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(stored.substring(PREFIX.length(), end)) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @brief 计算 PBKDF2-HMAC-SHA256 的第一个块
+     * @param password 明文密码
+     * @param salt 盐
+     * @param iterations 迭代次数
+     * @return 32 字节的散列
+     * @details 使用当前线程的 Mac 实例，循环中复用同一个缓冲区，不分配新对象
+     */
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("迭代次数必须大于0");
+        }
+        Mac mac = macs.get();
+        try {
+            mac.init(new SecretKeySpec(password.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            mac.update(salt);
+            mac.update(new byte[]{0, 0, 0, 1}); // 块序号，大端
+            byte[] u = new byte[HASH_BYTES];
+            byte[] result = new byte[HASH_BYTES];
+            mac.doFinal(u, 0);
+            System.arraycopy(u, 0, result, 0, HASH_BYTES);
+            for (int i = 1; i < iterations; i++) {
+                mac.update(u);
+                mac.doFinal(u, 0);
+                for (int j = 0; j < HASH_BYTES; j++) {
+                    result[j] ^= u[j];
+                }
+            }
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @brief 创建 HMAC-SHA256 实例
+     * @return 未初始化的 Mac 实例
+     */
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e); // 每个 Java 平台都必须支持 HmacSHA256
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/**
+ * @file PurchaseIndex.java
+ * @brief 购买记录二级索引类，按用户名索引购买记录在文件中的位置
+ * @package main.com.util
+ */
+package main.com.util;
+
+import main.com.storage.StorageConfig;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * @class PurchaseIndex
+ * @brief 用户名到购买记录段（偏移量、长度）的持久化索引
+ * @details 每写入一个订单记录组就向索引文件追加一行"用户名,偏移量,长度"，查询某个用户的购买记录时
+ *          只按偏移量读取该用户自己的记录段，耗时与该用户的历史订单数成正比，与全局日志大小无关。
+ *          启动时若发现购买记录文件中有尚未索引的尾部（如旧版本写入或索引追加前崩溃），会扫描补齐
+ */
+public class PurchaseIndex {
+    /** @brief 购买记录文件路径 */
+    private final String logPath;
+    /** @brief 索引文件路径 */
+    private final String indexPath;
+    /** @brief 用户名到记录段列表的映射 */
+    private final Map<String, Segments> segmentsByUser = new ConcurrentHashMap<>();
+    /** @brief 索引文件追加写入流 */
+    private BufferedWriter indexWriter;
+    /** @brief 索引是否已加载 */
+    private volatile boolean loaded;
+
+    /**
+     * @brief 构造函数
+     * @param logPath 购买记录文件路径
+     * @param indexPath 索引文件路径
+     */
+    public PurchaseIndex(String logPath, String indexPath) {
+        this.logPath = logPath;
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * @brief 登记一个新写入的记录段
+     * @param username 用户名
+     * @param offset 记录段在购买记录文件中的起始偏移量
+     * @param length 记录段的字节长度
+     */
+    public synchronized void record(String username, long offset, int length) {
+        loadIfNeeded();
+        appendEntry(username, offset, length);
+    }
+
+    /**
+     * @brief 遍历指定用户的全部购买记录
+     * @param username 用户名
+     * @param action 处理每条记录的回调，按写入先后调用
+     * @details 只读取索引中该用户的记录段，不扫描整个购买记录文件
+     */
+    public void forEachRecord(String username, Consumer<CsvRecordReader> action) {
+        loadIfNeeded();
+        Segments segments = segmentsByUser.get(username);
+        if (segments == null) {
+            return;
+        }
+        long[][] snapshot = segments.snapshot();
+        try (FileChannel channel = FileChannel.open(Paths.get(logPath), StandardOpenOption.READ)) {
+            for (int i = 0; i < snapshot[0].length; i++) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) snapshot[1][i]);
+                long position = snapshot[0][i];
+                while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+                    // 读取完整的记录段
+                }
+                CsvRecordReader record = new CsvRecordReader(new InputStreamReader(
+                        new ByteArrayInputStream(buffer.array(), 0, buffer.position()), StorageConfig.CHARSET), buffer.position());
+                while (record.next()) {
+                    if (record.fieldEquals(0, username)) {
+                        action.accept(record);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @brief 首次使用时加载索引文件并补齐未索引的尾部
+     * @details 必须在向购买记录文件追加新记录之前调用，避免补齐扫描与新记录的登记重复
+     */
+    public void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            TreeMap<Long, Integer> indexed = new TreeMap<>();
+            List<String[]> entries = new ArrayList<>();
+            File indexFile = new File(indexPath);
+            if (indexFile.exists()) {
+                try (CsvRecordReader record = new CsvRecordReader(new InputStreamReader(new FileInputStream(indexFile), StorageConfig.CHARSET))) {
+                    while (record.next()) {
+                        if (record.fieldCount() != 3) {
+                            continue; // 写入中断的残缺行
+                        }
+                        try {
+                            long offset = record.getLong(1);
+                            int length = record.getInt(2);
+                            indexed.put(offset, length);
+                            entries.add(new String[]{record.getString(0), String.valueOf(offset), String.valueOf(length)});
+                        } catch (NumberFormatException e) {
+                            // 跳过残缺行
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+
+            // 从文件开头起连续覆盖的范围之后才可能存在未索引的记录
+            long coveredEnd = 0;
+            for (Map.Entry<Long, Integer> entry : indexed.entrySet()) {
+                if (entry.getKey() > coveredEnd) {
+                    break;
+                }
+                coveredEnd = Math.max(coveredEnd, entry.getKey() + entry.getValue());
+            }
+            long logLength = new File(logPath).length();
+            if (coveredEnd > logLength || (!indexed.isEmpty() && indexed.lastKey() >= logLength)) {
+                // 购买记录文件被截断或替换，索引已失效，重建
+                indexed.clear();
+                entries.clear();
+                coveredEnd = 0;
+                closeWriter();
+                new File(indexPath).delete();
+            }
+            for (String[] entry : entries) {
+                segmentsFor(entry[0]).add(Long.parseLong(entry[1]), Integer.parseInt(entry[2]));
+            }
+            if (coveredEnd < logLength) {
+                catchUp(coveredEnd, indexed);
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * @brief 扫描购买记录文件尾部，为尚未索引的记录补建索引
+     * @param start 开始扫描的偏移量
+     * @param indexed 已索引的记录段（偏移量到长度）
+     * @details 由 ChunkedFileLoader 把尾部切成按行对齐的块并行扫描，每块得到若干"同一用户的连续行"，
+     *          再按文件顺序把首尾相接的同一用户记录段合并后登记；落在已索引记录段内的行会被跳过
+     */
+    private void catchUp(long start, TreeMap<Long, Integer> indexed) {
+        List<List<Run>> chunks;
+        try {
+            chunks = ChunkedFileLoader.load(logPath, start, (chunk, offset) -> scanRuns(chunk, offset, indexed));
+        } catch (NoSuchFileException e) {
+            return; // 购买记录文件尚不存在，无需补齐
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Run pending = null;
+        for (List<Run> runs : chunks) {
+            for (Run run : runs) {
+                if (pending != null && pending.username.equals(run.username) && pending.offset + pending.length == run.offset) {
+                    pending.length += run.length; // 跨越块边界的同一记录段
+                    continue;
+                }
+                if (pending != null) {
+                    appendEntry(pending.username, pending.offset, pending.length);
+                }
+                pending = run;
+            }
+        }
+        if (pending != null) {
+            appendEntry(pending.username, pending.offset, pending.length);
+        }
+    }
+
+    /**
+     * @brief 扫描一个块中未索引的行，把同一用户的连续行合并为记录段
+     * @param chunk 块的字节
+     * @param offset 块在文件中的起始偏移量
+     * @param indexed 已索引的记录段，只读
+     * @return 块中的记录段，按文件顺序排列
+     * @details 最后一行没有换行符时可能仍在写入，暂不索引
+     */
+    private List<Run> scanRuns(ByteBuffer chunk, long offset, TreeMap<Long, Integer> indexed) {
+        List<Run> runs = new ArrayList<>();
+        byte[] bytes = chunk.array();
+        int base = chunk.arrayOffset() + chunk.position();
+        int end = base + chunk.remaining();
+        int lineStart = base;
+        Run run = null;
+        for (int i = base; i < end; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            long lineOffset = offset + (lineStart - base);
+            int length = i + 1 - lineStart;
+            Map.Entry<Long, Integer> covering = indexed.floorEntry(lineOffset);
+            boolean alreadyIndexed = covering != null && lineOffset < covering.getKey() + covering.getValue();
+            String user = null;
+            if (!alreadyIndexed) {
+                int comma = lineStart;
+                while (comma < i && bytes[comma] != ',') {
+                    comma++;
+                }
+                if (comma > lineStart && comma < i) {
+                    user = new String(bytes, lineStart, comma - lineStart, StorageConfig.CHARSET);
+                }
+            }
+            if (run != null && !run.username.equals(user)) {
+                run = null;
+            }
+            if (user != null) {
+                if (run == null) {
+                    run = new Run(user, lineOffset);
+                    runs.add(run);
+                }
+                run.length += length;
+            }
+            lineStart = i + 1;
+        }
+        return runs;
+    }
+
+    /**
+     * @brief 向索引文件追加一条记录并更新内存索引
+     * @param username 用户名
+     * @param offset 记录段起始偏移量
+     * @param length 记录段字节长度
+     */
+    private void appendEntry(String username, long offset, int length) {
+        try {
+            if (indexWriter == null) {
+                indexWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(indexPath, true), StorageConfig.CHARSET));
+            }
+            indexWriter.write(username + "," + offset + "," + length);
+            indexWriter.newLine();
+            indexWriter.flush();
+        } catch (IOException e) {
+            e.printStackTrace(); // 索引写入失败不影响内存索引，下次启动时会扫描补齐
+        }
+        segmentsFor(username).add(offset, length);
+    }
+
+    /**
+     * @brief 获取用户的记录段列表，不存在时创建
+     * @param username 用户名
+     * @return 记录段列表
+     */
+    private Segments segmentsFor(String username) {
+        return segmentsByUser.computeIfAbsent(username, key -> new Segments());
+    }
+
+    /**
+     * @brief 关闭索引文件写入流
+     */
+    private void closeWriter() {
+        if (indexWriter != null) {
+            try {
+                indexWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            indexWriter = null;
+        }
+    }
+
+    /**
+     * @class Segments
+     * @brief 单个用户的记录段列表，使用基本类型数组存储
+     */
+    private static class Segments {
+        /** @brief 记录段起始偏移量 */
+        private long[] offsets = new long[4];
+        /** @brief 记录段字节长度 */
+        private long[] lengths = new long[4];
+        /** @brief 记录段数量 */
+        private int size;
+
+        /**
+         * @brief 添加一个记录段
+         * @param offset 起始偏移量
+         * @param length 字节长度
+         */
+        synchronized void add(long offset, int length) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+        }
+
+        /**
+         * @brief 获取按偏移量排序的记录段快照
+         * @return 二维数组，[0] 为偏移量，[1] 为长度
+         */
+        synchronized long[][] snapshot() {
+            long[][] result = {Arrays.copyOf(offsets, size), Arrays.copyOf(lengths, size)};
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = result[0][i - 1] <= result[0][i];
+            }
+            if (!sorted) { // 并发结算时索引追加顺序可能与文件顺序不同
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> Long.compare(result[0][a], result[0][b]));
+                long[][] ordered = new long[2][size];
+                for (int i = 0; i < size; i++) {
+                    ordered[0][i] = result[0][order[i]];
+                    ordered[1][i] = result[1][order[i]];
+                }
+                return ordered;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @class Run
+     * @brief 扫描时发现的同一用户的连续记录
+     */
+    private static class Run {
+        /** @brief 用户名 */
+        private final String username;
+        /** @brief 起始偏移量 */
+        private final long offset;
+        /** @brief 字节长度 */
+        private int length;
+
+        /**
+         * @brief 构造函数
+         * @param username 用户名
+         * @param offset 起始偏移量
+         */
+        private Run(String username, long offset) {
+            this.username = username;
+            this.offset = offset;
+        }
+    }
+}
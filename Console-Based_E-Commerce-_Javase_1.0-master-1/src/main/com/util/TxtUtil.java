@@ -5,192 +5,908 @@
  */
 package main.com.util;
 
+import main.com.model.CatalogSnapshot;
 import main.com.model.Good;
+import main.com.storage.CatalogListener;
+import main.com.storage.StorageConfig;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * @class TxtUtil
  * @brief 文本文件工具类，处理商品和购买记录的读取、写入和管理
- * @details 提供商品文件和购买记录文件的各种操作方法
+ * @details 提供商品文件和购买记录文件的各种操作方法。
+ *          并发约定：库存扣减持有读锁（多个会话可并行 CAS），商品加载、编辑和日志压缩持有写锁；
+ *          浏览商品不加锁，直接读取当前发布的不可变目录快照；goods.txt 被外部修改时由 CatalogWatcher
+ *          触发按行比较的增量重新加载。
+ *          商品快照默认存放在 goods.txt 中；系统属性 shop.goods.storage=mapped 时改用内存映射的二进制商品目录
+ *          （见 MappedCatalog），启动时无需解析文本。
+ *          结算通过 commitOrder 完成：订单中全部商品的库存扣减作为一条 O 记录写入日志并 fsync，这是订单的提交点；
+ *          随后写入带订单号的购买记录并追加 P 标记。启动时对有 O 无 P 的订单补写缺失的购买记录
  */
 public class TxtUtil {
-    /** @brief 商品文件路径 */
-    private static final String GOODS_FILE_PATH = "C:\\Users\\liu69\\Desktop\\Console-Based_E-Commerce-_Javase_1.0-master-1\\src\\main\\resources\\goods.txt";
-    /** @brief 购买记录文件路径 */
-    private static final String PURCHASES_FILE_PATH = "C:\\Users\\liu69\\Desktop\\Console-Based_E-Commerce-_Javase_1.0-master-1\\src\\main\\resources\\purchases.txt"; // 用户购买记录文件路径
-    /** @brief 商品列表，用于缓存已加载的商品 */
-    private static List<Good> goodsList = new ArrayList<>();
+    /** @brief 商品文件路径，默认位于数据目录下，可通过系统属性 shop.goods.file 覆盖 */
+    private static final String GOODS_FILE_PATH = StorageConfig.dataFile("shop.goods.file", "goods.txt");
+    /** @brief 商品变更日志文件路径，默认位于数据目录下，可通过系统属性 shop.goods.journal.file 覆盖 */
+    private static final String GOODS_JOURNAL_FILE_PATH = StorageConfig.dataFile("shop.goods.journal.file", "goods_journal.txt");
+    /** @brief 二进制商品目录文件路径，默认位于数据目录下，可通过系统属性 shop.goods.mapped.file 覆盖 */
+    private static final String GOODS_MAPPED_FILE_PATH = StorageConfig.dataFile("shop.goods.mapped.file", "goods.bin");
+    /** @brief 是否使用内存映射的二进制商品目录作为商品快照 */
+    private static final boolean MAPPED_STORAGE = "mapped".equalsIgnoreCase(System.getProperty("shop.goods.storage"));
+    /** @brief 购买记录文件路径，默认位于数据目录下，可通过系统属性 shop.purchases.file 覆盖 */
+    private static final String PURCHASES_FILE_PATH = StorageConfig.dataFile("shop.purchases.file", "purchases.txt"); // 用户购买记录文件路径
+    /** @brief 购买记录按用户名的索引文件路径，默认位于数据目录下，可通过系统属性 shop.purchases.index.file 覆盖 */
+    private static final String PURCHASES_INDEX_FILE_PATH = StorageConfig.dataFile("shop.purchases.index.file", "purchases_index.txt");
+    /** @brief 商品文件表头 */
+    private static final String GOODS_HEADER = "id,name,description,price,stock,category";
+    /** @brief 增量重新加载时变化的商品超过该数量，则通知监听器整体重新加载而不是逐个通知 */
+    private static final int RELOAD_NOTIFY_LIMIT = 1000;
+    /** @brief 日志记录达到该条数后压缩进商品快照 */
+    private static final int JOURNAL_COMPACT_THRESHOLD = 1000;
+    /** @brief 商品变更日志 */
+    private static final GoodsJournal journal = new GoodsJournal(GOODS_JOURNAL_FILE_PATH);
+    /** @brief 购买记录组提交写入器，刷盘策略由系统属性 shop.purchases.fsync 配置（never/every_commit/periodic） */
+    private static final GroupCommitLog purchaseLog = new GroupCommitLog(PURCHASES_FILE_PATH,
+            GroupCommitLog.FsyncPolicy.parse(System.getProperty("shop.purchases.fsync"), GroupCommitLog.FsyncPolicy.EVERY_COMMIT));
+    /** @brief 购买记录按用户名的二级索引 */
+    private static final PurchaseIndex purchaseIndex = new PurchaseIndex(PURCHASES_FILE_PATH, PURCHASES_INDEX_FILE_PATH);
+    /** @brief 商品目录读写锁 */
+    private static final ReadWriteLock catalogLock = new ReentrantReadWriteLock();
+    /** @brief 当前发布的商品目录快照，写者在写锁内构造新快照后整体替换 */
+    private static volatile CatalogSnapshot catalog = CatalogSnapshot.EMPTY;
+    /** @brief 商品ID索引，与目录快照同步维护，用于 O(1) 查找商品 */
+    private static volatile Map<String, Good> goodsIndex = new ConcurrentHashMap<>();
+    /** @brief 当前映射的二进制商品目录，未启用或尚未生成时为 null */
+    private static volatile MappedCatalog mappedCatalog;
+    /** @brief 重放日志后仍未写入购买记录（没有 P 或 A 标记）的订单，由写锁保护 */
+    private static final Map<String, PendingOrder> openOrders = new LinkedHashMap<>();
+    /** @brief 最近一次本进程读取或写入 goods.txt 时的文件版本标记 */
+    private static volatile String goodsFileStamp;
+    /** @brief goods.txt 监视器，shop.goods.watch=false 时不启动 */
+    private static final CatalogWatcher watcher = new CatalogWatcher(GOODS_FILE_PATH, TxtUtil::reloadGoodsIfChanged);
+    /** @brief 商品目录变更监听器 */
+    private static final List<CatalogListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * @brief 加载商品列表
-     * @details 从文本文件中读取商品信息并加载到 goodsList 中
+     * @details 读取商品快照并重放商品变更日志，发布新的目录快照，同时重建商品ID索引
      */
     public static void loadGoods() {
-        goodsList = readGoodsFromTxt();
+        catalogLock.writeLock().lock();
+        try {
+            openOrders.clear();
+            Map<String, Good> goods = new LinkedHashMap<>();
+            for (Good good : readGoodsSnapshot()) {
+                goods.putIfAbsent(good.getId(), good); // ID 重复时保留第一次出现的商品
+            }
+
+            journal.replay(record -> applyJournalRecord(goods, record));
+
+            List<Good> list = sortForCatalog(goods.values());
+            goodsIndex = new ConcurrentHashMap<>(goods);
+            publish(list);
+            CatalogSnapshot snapshot = catalog;
+            notifyListeners(listener -> listener.catalogReloaded(snapshot));
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 读取商品快照
+     * @return 商品列表
+     * @details 启用二进制商品目录时映射 goods.bin 并直接读取定长列；goods.bin 尚不存在时从 goods.txt 导入，
+     *          由 initialize 随后写出 goods.bin
+     */
+    private static List<Good> readGoodsSnapshot() {
+        if (MAPPED_STORAGE) {
+            mappedCatalog = null;
+            if (new File(GOODS_MAPPED_FILE_PATH).exists()) {
+                try {
+                    MappedCatalog catalog = MappedCatalog.open(GOODS_MAPPED_FILE_PATH);
+                    mappedCatalog = catalog;
+                    return catalog.readAll();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return readGoodsFromTxt();
+    }
+
+    /**
+     * @brief goods.txt 被外部修改时增量重新加载商品目录
+     * @return 发布了新的目录快照时返回 true，只有库存变化时返回 false
+     * @details 文件版本标记与本进程最近一次读写时相同则直接返回。否则在锁外解析新文件，
+     *          再在写锁内重放日志并与当前目录逐个比较：库存变化直接写入现有商品对象，
+     *          其他字段变化、新增和删除的商品才替换索引并发布新快照。读者始终读取已发布的快照，不被阻塞
+     */
+    public static boolean reloadGoodsIfChanged() {
+        if (MAPPED_STORAGE) {
+            return false; // 二进制商品目录不监视外部修改
+        }
+        String stamp = CatalogWatcher.stampOf(GOODS_FILE_PATH);
+        if (stamp == null || stamp.equals(goodsFileStamp)) {
+            return false;
+        }
+        List<Good> parsed = readGoodsFromTxt();
+        catalogLock.writeLock().lock();
+        try {
+            if (!stamp.equals(goodsFileStamp)) {
+                return false; // 解析期间本进程压缩了快照，当前目录已是最新
+            }
+            openOrders.clear();
+            Map<String, Good> goods = new LinkedHashMap<>();
+            for (Good good : parsed) {
+                goods.putIfAbsent(good.getId(), good);
+            }
+            journal.replay(record -> applyJournalRecord(goods, record));
+            return applyDiff(goods);
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 将新的商品映射与当前目录比较并应用差异
+     * @param goods 商品ID到新商品对象的映射，比较后其中未变化的商品被替换为现有对象
+     * @return 有商品新增、删除或除库存外的字段变化时返回 true
+     * @details 调用方需持有写锁
+     */
+    private static boolean applyDiff(Map<String, Good> goods) {
+        List<Good> changed = new ArrayList<>();
+        for (Map.Entry<String, Good> entry : goods.entrySet()) {
+            Good fresh = entry.getValue();
+            Good current = goodsIndex.get(entry.getKey());
+            if (current != null && sameListing(current, fresh)) {
+                current.setStock(fresh.getStock()); // 保留购物车等处持有的对象
+                entry.setValue(current);
+            } else {
+                changed.add(fresh);
+            }
+        }
+        List<Good> removed = new ArrayList<>();
+        for (Good current : goodsIndex.values()) {
+            if (!goods.containsKey(current.getId())) {
+                removed.add(current);
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return false;
+        }
+        for (Good good : changed) {
+            goodsIndex.put(good.getId(), good);
+        }
+        for (Good good : removed) {
+            goodsIndex.remove(good.getId());
+        }
+        publish(sortForCatalog(goods.values()));
+        if (changed.size() + removed.size() > RELOAD_NOTIFY_LIMIT) {
+            CatalogSnapshot snapshot = catalog;
+            notifyListeners(listener -> listener.catalogReloaded(snapshot));
+        } else {
+            for (Good good : removed) {
+                notifyListeners(listener -> listener.goodRemoved(good));
+            }
+            for (Good good : changed) {
+                notifyListeners(listener -> listener.goodPut(good));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @brief 判断两个商品除库存外的字段是否相同
+     * @param a 商品
+     * @param b 商品
+     * @return 名称、描述、价格和类别都相同时返回 true
+     */
+    private static boolean sameListing(Good a, Good b) {
+        return Objects.equals(a.getName(), b.getName()) && Objects.equals(a.getDescription(), b.getDescription())
+                && Double.compare(a.getPrice(), b.getPrice()) == 0 && Objects.equals(a.getCategory(), b.getCategory());
     }
 
     /**
      * @brief 从文本文件读取商品信息
      * @return 包含所有商品的列表
-     * @details 读取 goods.txt 文件，解析每行商品信息并按价格排序
+     * @details 由 ChunkedFileLoader 把 goods.txt 切成按行对齐的块并行解析，结果按文件顺序拼接；
+     *          价格和库存直接从字符缓冲区解析。读取前记录文件版本标记，读取期间文件再次变化时监视器会再触发一次重新加载
      */
     private static List<Good> readGoodsFromTxt() {
+        goodsFileStamp = CatalogWatcher.stampOf(GOODS_FILE_PATH);
+        List<Good> goods = new ArrayList<>();
+        try {
+            for (List<Good> chunk : ChunkedFileLoader.load(GOODS_FILE_PATH, TxtUtil::parseGoodsChunk)) {
+                goods.addAll(chunk);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return goods;
+    }
+
+    /**
+     * @brief 解析 goods.txt 的一个块
+     * @param chunk 块的字节
+     * @param offset 块在文件中的起始偏移量，为 0 时第一行是表头
+     * @return 块中的商品，按文件顺序排列
+     * @throws IOException 解析失败时抛出
+     */
+    private static List<Good> parseGoodsChunk(ByteBuffer chunk, long offset) throws IOException {
         List<Good> goods = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(GOODS_FILE_PATH))) {
-            String line;
-            br.readLine();
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                String id = values[0];
-                String name = values[1];
-                String description = values[2];
-                double price = Double.parseDouble(values[3]);
-                int stock = Integer.parseInt(values[4]);
-                String category = values[5];
+        try (CsvRecordReader record = ChunkedFileLoader.reader(chunk, StorageConfig.CHARSET)) {
+            if (offset == 0) {
+                record.next(); // 跳过表头
+            }
+            while (record.next()) {
+                String id = record.getString(0);
+                String name = record.getString(1);
+                String description = record.getString(2);
+                double price = record.getDouble(3);
+                int stock = record.getInt(4);
+                String category = record.getString(5);
 
                 Good good = new Good(id, name, description, price, stock, category);
                 goods.add(good);
             }
-            goods.sort(Comparator.comparingDouble(Good::getPrice));
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         return goods;
     }
 
+    /**
+     * @brief 将商品按目录顺序排列
+     * @param goods 商品
+     * @return 按 CatalogSnapshot.ORDER 排列的新列表
+     * @details 使用并行排序，大目录的排序在多个处理器上进行
+     */
+    private static List<Good> sortForCatalog(Collection<Good> goods) {
+        Good[] sorted = goods.toArray(new Good[0]);
+        Arrays.parallelSort(sorted, CatalogSnapshot.ORDER);
+        return Arrays.asList(sorted);
+    }
+
+    /**
+     * @brief 将一条日志记录应用到商品映射
+     * @param goods 商品ID到商品对象的映射
+     * @param record 当前日志记录
+     */
+    private static void applyJournalRecord(Map<String, Good> goods, CsvRecordReader record) {
+        if (record.fieldEquals(0, GoodsJournal.STOCK)) {
+            Good good = goods.get(record.getString(1));
+            if (good != null) {
+                good.setStock(good.getStock() + record.getInt(2));
+            }
+        } else if (record.fieldEquals(0, GoodsJournal.UPSERT)) {
+            String id = record.getString(1);
+            goods.put(id, new Good(id, record.getString(2), record.getString(3),
+                    record.getDouble(4), record.getInt(5), record.getString(6)));
+        } else if (record.fieldEquals(0, GoodsJournal.DELETE)) {
+            String id = record.getString(1);
+            goods.remove(id);
+        } else if (record.fieldEquals(0, GoodsJournal.ORDER)) {
+            PendingOrder order = PendingOrder.parse(record);
+            order.applyTo(goods, -1);
+            openOrders.put(order.orderId, order);
+        } else if (record.fieldEquals(0, GoodsJournal.PURCHASED)) {
+            openOrders.remove(record.getString(1));
+        } else if (record.fieldEquals(0, GoodsJournal.ABORT)) {
+            PendingOrder order = openOrders.remove(record.getString(1));
+            if (order != null) {
+                order.applyTo(goods, 1); // 撤销订单扣减的库存
+            }
+        } else {
+            throw new IllegalArgumentException("未知的日志记录类型: " + record.getString(0));
+        }
+    }
+
     /**
      * @brief 根据商品ID获取商品对象
      * @param id 商品ID
      * @return 匹配的商品对象，如果未找到则返回 null
+     * @details 通过商品ID索引查找，时间复杂度为 O(1)
      */
     public static Good getGoodById(String id) {
-        for (Good good : goodsList) {
-            if (good.getId().equals(id)) {
-                return good;
-            }
-        }
-        return null;
+        return goodsIndex.get(id);
     }
 
     /**
      * @brief 向文本文件添加新商品
      * @param good 要添加的商品对象
-     * @details 将新商品信息追加到 goods.txt 文件并重新加载商品列表
+     * @details 向商品变更日志追加一条新增记录，并直接更新内存中的商品列表
      */
     public static void addGoodToTxt(Good good) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(GOODS_FILE_PATH, true))) {
+        catalogLock.writeLock().lock();
+        try {
+            journal.append(GoodsJournal.UPSERT, good.getId(), good.getName(), good.getDescription(),
+                    String.valueOf(good.getPrice()), String.valueOf(good.getStock()), good.getCategory());
+            putGood(good);
+            compactIfNeeded();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 批量新增或替换商品
+     * @param goods 要导入的商品，ID 已去重
+     * @return 导入后写入新快照成功时返回 true；写入失败或仍有未补写购买记录的订单时，导入的商品改为逐条记入日志，
+     *         仍然持久，返回 false
+     * @details 在一次写锁内把导入的商品合并进当前目录：除库存外字段未变的商品保留原对象只更新库存，
+     *          只发布一个新快照，变化较多时只通知一次 catalogReloaded；随后整个目录一次性写成新的商品快照
+     *          （临时文件加原子替换）并清空日志，不为每个商品追加日志或重新解析文件
+     */
+    public static boolean importGoods(Collection<Good> goods) {
+        catalogLock.writeLock().lock();
+        try {
+            Map<String, Good> merged = new LinkedHashMap<>(goodsIndex);
+            for (Good good : goods) {
+                merged.put(good.getId(), good);
+            }
+            applyDiff(merged);
+            if (writeGoodsSnapshot()) {
+                return true;
+            }
+            for (Good good : goods) {
+                journal.append(GoodsJournal.UPSERT, good.getId(), good.getName(), good.getDescription(),
+                        String.valueOf(good.getPrice()), String.valueOf(good.getStock()), good.getCategory());
+            }
+            return false;
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 将当前目录导出为商品文件格式
+     * @param writer 输出目标，调用方负责关闭
+     * @return 导出的商品数
+     * @throws IOException 写入失败时抛出
+     * @details 遍历不可变的目录快照逐行写出，不加锁也不复制，导出期间的修改不影响本次导出
+     */
+    public static int exportGoods(Writer writer) throws IOException {
+        BufferedWriter bw = writer instanceof BufferedWriter ? (BufferedWriter) writer : new BufferedWriter(writer);
+        bw.write(GOODS_HEADER);
+        bw.newLine();
+        List<Good> goods = catalog.getGoods();
+        for (Good good : goods) {
             bw.write(good.getId() + "," + good.getName() + "," + good.getDescription() + "," + good.getPrice() + "," + good.getStock() + "," + good.getCategory());
             bw.newLine();
-            loadGoods();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
+        bw.flush();
+        return goods.size();
     }
 
     /**
      * @brief 更新文本文件中的商品信息
      * @param updatedGood 更新后的商品对象
-     * @details 替换 goods.txt 文件中指定 ID 的商品信息并重新加载商品列表
+     * @details 向商品变更日志追加一条修改记录，并替换内存中指定 ID 的商品
      */
     public static void updateGoodInTxt(Good updatedGood) {
-        List<Good> goods = readGoodsFromTxt();
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(GOODS_FILE_PATH))) {
-            bw.write("id,name,description,price,stock,category");
-            bw.newLine();
-            for (Good good : goods) {
-                if (good.getId().equals(updatedGood.getId())) {
-                    bw.write(updatedGood.getId() + "," + updatedGood.getName() + "," + updatedGood.getDescription() + "," + updatedGood.getPrice() + "," + updatedGood.getStock() + "," + updatedGood.getCategory());
-                } else {
-                    bw.write(good.getId() + "," + good.getName() + "," + good.getDescription() + "," + good.getPrice() + "," + good.getStock() + "," + good.getCategory());
-                }
-                bw.newLine();
-            }
-            loadGoods();
-        } catch (IOException e) {
-            e.printStackTrace();
+        catalogLock.writeLock().lock();
+        try {
+            journal.append(GoodsJournal.UPSERT, updatedGood.getId(), updatedGood.getName(), updatedGood.getDescription(),
+                    String.valueOf(updatedGood.getPrice()), String.valueOf(updatedGood.getStock()), updatedGood.getCategory());
+            putGood(updatedGood);
+            compactIfNeeded();
+        } finally {
+            catalogLock.writeLock().unlock();
         }
     }
 
     /**
      * @brief 从文本文件删除指定商品
      * @param id 要删除的商品ID
-     * @details 从 goods.txt 文件中移除指定 ID 的商品并重新加载商品列表
+     * @details 向商品变更日志追加一条删除记录，并发布不含该商品的新目录快照
      */
     public static void deleteGoodFromTxt(String id) {
-        List<Good> goods = readGoodsFromTxt();
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(GOODS_FILE_PATH))) {
-            bw.write("id,name,description,price,stock,category");
-            bw.newLine();
-            for (Good good : goods) {
-                if (!good.getId().equals(id)) {
-                    bw.write(good.getId() + "," + good.getName() + "," + good.getDescription() + "," + good.getPrice() + "," + good.getStock() + "," + good.getCategory());
-                    bw.newLine();
-                }
+        catalogLock.writeLock().lock();
+        try {
+            journal.append(GoodsJournal.DELETE, id);
+            Good removed = goodsIndex.remove(id);
+            if (removed != null) {
+                catalog = catalog.remove(removed);
+                notifyListeners(listener -> listener.goodRemoved(removed));
+            }
+            compactIfNeeded();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 将商品放入目录快照和索引
+     * @param good 新增或修改后的商品对象
+     * @details 由当前快照构造替换了同 ID 旧商品的下一版本快照并发布；调用方需持有写锁
+     */
+    private static void putGood(Good good) {
+        Good previous = goodsIndex.put(good.getId(), good);
+        catalog = catalog.put(previous, good);
+        notifyListeners(listener -> listener.goodPut(good));
+    }
+
+    /**
+     * @brief 注册商品目录变更监听器
+     * @param listener 监听器，在商品新增、修改、删除和整体重新加载后收到通知
+     */
+    public static void addCatalogListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @brief 通知所有监听器
+     * @param event 对单个监听器执行的回调
+     * @details 调用方需持有写锁；单个监听器出错不影响目录修改和其他监听器
+     */
+    private static void notifyListeners(Consumer<CatalogListener> event) {
+        for (CatalogListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
             }
-            loadGoods();
+        }
+    }
+
+    /**
+     * @brief 发布新的目录快照
+     * @param goods 按目录顺序排列的商品列表，之后不得再修改
+     * @details 调用方需持有写锁，版本号因此单调递增
+     */
+    private static void publish(List<Good> goods) {
+        catalog = new CatalogSnapshot(catalog.getVersion() + 1, goods);
+    }
+
+    /**
+     * @brief 日志过长时压缩进商品快照
+     * @details 调用方需持有写锁
+     */
+    private static void compactIfNeeded() {
+        if (journal.size() >= JOURNAL_COMPACT_THRESHOLD) {
+            writeGoodsSnapshot();
+        }
+    }
+
+    /**
+     * @brief 将内存中的商品列表压缩为新的 goods.txt 快照并清空日志
+     * @details 先写入临时文件再原子替换原文件，写入过程中崩溃不会损坏已有快照；
+     *          仍有未补写购买记录的订单时不压缩
+     */
+    public static void compactGoods() {
+        catalogLock.writeLock().lock();
+        try {
+            writeGoodsSnapshot();
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 写入商品快照并清空日志
+     * @return 写入是否成功，失败或未写入时旧快照和日志保持不变
+     * @details 调用方需持有写锁。仍有未补写购买记录的订单时不写入：清空日志会丢掉这些订单的 O 记录，
+     *          下次启动就无法再补写它们的购买记录。新快照先写入临时文件并 fsync，再原子地替换旧快照，
+     *          并 fsync 所在目录使替换落盘，之后才清空日志；任一步崩溃时，磁盘上要么是旧快照加完整日志，要么是已落盘的新快照
+     */
+    private static boolean writeGoodsSnapshot() {
+        if (!openOrders.isEmpty()) {
+            return false;
+        }
+        if (MAPPED_STORAGE) {
+            try {
+                MappedCatalog.write(GOODS_MAPPED_FILE_PATH, catalog.getGoods());
+                mappedCatalog = MappedCatalog.open(GOODS_MAPPED_FILE_PATH);
+                syncDirectory(new File(GOODS_MAPPED_FILE_PATH));
+                journal.truncate();
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace(); // 旧快照和日志保持不变，下次压缩时重试
+                return false;
+            }
+        }
+        File goodsFile = new File(GOODS_FILE_PATH);
+        File tempFile = new File(GOODS_FILE_PATH + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            exportGoods(new OutputStreamWriter(out, StorageConfig.CHARSET)); // 返回前已刷新到文件
+            out.getChannel().force(true);
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
+        }
+        try {
+            Files.move(tempFile.toPath(), goodsFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            goodsFileStamp = CatalogWatcher.stampOf(GOODS_FILE_PATH); // 自己写入的快照不触发重新加载
+            syncDirectory(goodsFile);
+            journal.truncate();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
         }
     }
 
     /**
-     * @brief 记录用户购买的商品
+     * @brief fsync 文件所在的目录，使其中的重命名落盘
+     * @param file 目录中的文件
+     * @throws IOException fsync 失败时抛出
+     * @details Windows 等不能以只读方式打开目录的平台上跳过，这些平台的文件系统自身保证重命名的持久性
+     */
+    private static void syncDirectory(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // 平台不支持打开目录
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @brief 原子地提交一个订单
+     * @param orderId 订单号，全局唯一
      * @param username 用户名
-     * @param good 购买的商品对象
+     * @param items 订单中的商品及其购买数量
+     * @return 订单提交成功时返回 true；商品已下架、库存不足或写入失败时返回 false，此时库存和购买记录均不变
+     * @details 持有读锁，并发结算互不阻塞，日志压缩等待进行中的订单完成。依次：
+     *          1. 以 CAS 扣减每种商品的内存库存，任一不足则撤销已扣减的部分；
+     *          2. 把全部扣减写成一条带校验和的 O 记录并 fsync（与并发订单合并刷盘），这是提交点，
+     *             崩溃后重放要么全部生效要么都不生效，写入中断而被截短的 O 记录校验不通过，被整条丢弃；
+     *          3. 写入带订单号的购买记录，成功后追加 P 标记。
+     *          第 2 步的 fsync 失败或第 3 步失败时追加 A 记录撤销该订单，并恢复内存库存
+     */
+    public static boolean commitOrder(String orderId, String username, Map<Good, Integer> items) {
+        catalogLock.readLock().lock();
+        try {
+            String[] fields = new String[4 + items.size() * 2];
+            fields[0] = GoodsJournal.ORDER;
+            fields[1] = orderId;
+            fields[2] = username;
+            List<Good> applied = new ArrayList<>();
+            List<Integer> quantities = new ArrayList<>();
+            for (Map.Entry<Good, Integer> item : items.entrySet()) {
+                Good current = goodsIndex.get(item.getKey().getId());
+                if (current == null || !current.tryAdjustStock(-item.getValue())) {
+                    revertStock(applied, quantities);
+                    return false;
+                }
+                fields[3 + applied.size() * 2] = current.getId();
+                fields[4 + applied.size() * 2] = String.valueOf(item.getValue());
+                applied.add(current);
+                quantities.add(item.getValue());
+            }
+            fields[fields.length - 1] = GoodsJournal.checksum(Arrays.copyOf(fields, fields.length - 1));
+            if (!journal.appendDurably(fields)) {
+                abortOrder(orderId, applied, quantities); // fsync 失败时 O 记录可能已在文件中，重启后会被重放
+                return false;
+            }
+            StringBuilder records = new StringBuilder();
+            long time = System.currentTimeMillis();
+            for (int i = 0; i < applied.size(); i++) {
+                appendPurchaseRecord(records, username, applied.get(i).getId(), quantities.get(i), orderId, time);
+            }
+            if (!writePurchaseRecords(username, records)) {
+                abortOrder(orderId, applied, quantities);
+                return false;
+            }
+            journal.append(GoodsJournal.PURCHASED, orderId);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        if (journal.size() >= JOURNAL_COMPACT_THRESHOLD) {
+            catalogLock.writeLock().lock();
+            try {
+                compactIfNeeded();
+            } finally {
+                catalogLock.writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @brief 撤销一个未能完成的订单
+     * @param orderId 订单号
+     * @param goods 已扣减库存的商品
+     * @param quantities 对应的扣减数量
+     * @details 追加 A 记录并 fsync，成功后恢复内存库存。A 记录也未能落盘时，文件中的 O 记录重启后仍会生效，
+     *          此时保留内存中的扣减与之保持一致，宁可少卖也不超卖
+     */
+    private static void abortOrder(String orderId, List<Good> goods, List<Integer> quantities) {
+        if (journal.appendDurably(GoodsJournal.ABORT, orderId)) {
+            revertStock(goods, quantities);
+        } else {
+            System.err.println("订单 " + orderId + " 的撤销记录未能落盘，保留其扣减的库存");
+        }
+    }
+
+    /**
+     * @brief 恢复已扣减的内存库存
+     * @param goods 已扣减库存的商品
+     * @param quantities 对应的扣减数量
+     */
+    private static void revertStock(List<Good> goods, List<Integer> quantities) {
+        for (int i = 0; i < goods.size(); i++) {
+            goods.get(i).tryAdjustStock(quantities.get(i));
+        }
+    }
+
+    /**
+     * @brief 为重放日志后仍未完成的订单补写购买记录
+     * @details 启动时在压缩日志之前调用。订单的 O 记录已落盘但没有 P 标记，说明写购买记录时进程中断：
+     *          扫描 purchases.txt 中该订单号已写入的记录，只补写缺失的部分，然后追加 P 标记。
+     *          补写失败的订单留在 openOrders 中，日志不被压缩，下次启动时重试
+     * @return 补写完成的订单数
+     */
+    private static int recoverOrders() {
+        catalogLock.writeLock().lock();
+        try {
+            if (openOrders.isEmpty()) {
+                return 0;
+            }
+            Map<String, Integer> written = new HashMap<>(); // "订单号,商品ID" 到已写入的数量
+            if (new File(PURCHASES_FILE_PATH).exists()) {
+                try {
+                    List<Map<String, Integer>> chunks = ChunkedFileLoader.load(PURCHASES_FILE_PATH, (chunk, offset) -> {
+                        Map<String, Integer> found = new HashMap<>();
+                        try (CsvRecordReader record = ChunkedFileLoader.reader(chunk, StorageConfig.CHARSET)) {
+                            while (record.next()) {
+                                if (record.fieldCount() >= 4 && openOrders.containsKey(record.getString(3))) {
+                                    found.merge(record.getString(3) + ',' + record.getString(1), record.getInt(2), Integer::sum);
+                                }
+                            }
+                        }
+                        return found;
+                    });
+                    for (Map<String, Integer> found : chunks) {
+                        found.forEach((key, quantity) -> written.merge(key, quantity, Integer::sum));
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return 0;
+                }
+            }
+            int recovered = 0;
+            long time = System.currentTimeMillis(); // 日志中没有下单时间，补写的记录以恢复时间为准
+            for (Iterator<PendingOrder> it = openOrders.values().iterator(); it.hasNext(); ) {
+                PendingOrder order = it.next();
+                StringBuilder records = new StringBuilder();
+                for (int i = 0; i < order.goodIds.length; i++) {
+                    int missing = order.quantities[i] - written.getOrDefault(order.orderId + ',' + order.goodIds[i], 0);
+                    if (missing > 0) {
+                        appendPurchaseRecord(records, order.username, order.goodIds[i], missing, order.orderId, time);
+                    }
+                }
+                if (records.length() > 0 && !writePurchaseRecords(order.username, records)) {
+                    continue;
+                }
+                journal.append(GoodsJournal.PURCHASED, order.orderId);
+                it.remove();
+                recovered++;
+            }
+            return recovered;
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @brief 向缓冲区追加一行购买记录
+     * @param records 输出缓冲区
+     * @param username 用户名
+     * @param goodId 商品ID
      * @param quantity 购买数量
-     * @details 将购买记录追加到 purchases.txt 文件
+     * @param orderId 订单号，为 null 时订单号列留空
+     * @param time 购买时间（毫秒时间戳）
+     * @details 记录格式为 用户名,商品ID,数量,订单号,时间戳；旧版本写入的记录只有前三列或前四列
      */
-    public static void addPurchasedGoodForUser(String username, Good good, int quantity) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(PURCHASES_FILE_PATH, true))) {
-            bw.write(username + "," + good.getId() + "," + quantity);
-            bw.newLine();
+    private static void appendPurchaseRecord(StringBuilder records, String username, String goodId, int quantity, String orderId, long time) {
+        records.append(username).append(',').append(goodId).append(',').append(quantity).append(',');
+        if (orderId != null) {
+            records.append(orderId);
+        }
+        records.append(',').append(time).append(System.lineSeparator());
+    }
+
+    /**
+     * @brief 将一个用户的一组购买记录写入 purchases.txt
+     * @param username 用户名
+     * @param records 购买记录文本
+     * @return 写入是否成功
+     * @details 与其他并发写入的记录组合并为一次组提交，写入后在用户购买记录索引中登记该记录组的位置
+     */
+    private static boolean writePurchaseRecords(String username, CharSequence records) {
+        byte[] bytes = records.toString().getBytes(StorageConfig.CHARSET);
+        purchaseIndex.loadIfNeeded();
+        try {
+            long offset = purchaseLog.append(bytes);
+            purchaseIndex.record(username, offset, bytes.length);
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
+    /**
+     * @brief 并行扫描全部购买记录
+     * @param partition 为每个分区创建累加结果
+     * @param accumulator 把一条记录累加到所在分区的结果中，记录为 用户名,商品ID,数量[,订单号[,时间戳]]
+     * @param <T> 每个分区的累加结果类型
+     * @return 各分区的累加结果，按文件顺序排列；购买记录文件不存在时返回空列表
+     * @throws IOException 读取失败时抛出
+     * @details 由 ChunkedFileLoader 按行切块，每块为一个分区，在线程池中并行解析；同一分区的记录在同一线程中按顺序交给 accumulator。
+     *          不持有目录锁，与结算并发进行；文件末尾正在写入、尚无换行符的记录不交给 accumulator
+     */
+    public static <T> List<T> scanPurchases(Supplier<T> partition, BiConsumer<T, CsvRecordReader> accumulator) throws IOException {
+        if (!new File(PURCHASES_FILE_PATH).exists()) {
+            return Collections.emptyList();
+        }
+        return ChunkedFileLoader.load(PURCHASES_FILE_PATH, (chunk, offset) -> {
+            int end = chunk.limit();
+            while (end > chunk.position() && chunk.get(end - 1) != '\n') {
+                end--; // 去掉末尾不完整的一行
+            }
+            chunk.limit(end);
+            T result = partition.get();
+            try (CsvRecordReader record = ChunkedFileLoader.reader(chunk, StorageConfig.CHARSET)) {
+                while (record.next()) {
+                    accumulator.accept(result, record);
+                }
+            }
+            return result;
+        });
+    }
+
     /**
      * @brief 获取指定用户的购买记录
      * @param username 用户名
      * @return 用户购买商品的详细信息列表
-     * @details 从 purchases.txt 文件读取指定用户的购买记录
+     * @details 通过用户购买记录索引只读取该用户的记录段，耗时与该用户的历史记录数成正比
      */
     public static List<String> getPurchasedGoodsByUser(String username) {
         List<String> purchasedGoods = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(PURCHASES_FILE_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",");
-                if (values.length >= 3 && values[0].equals(username)) {
-                    String goodId = values[1];
-                    int quantity = Integer.parseInt(values[2]);
-                    purchasedGoods.add("商品ID: " + goodId + ", 数量: " + quantity);
-                }
+        purchaseIndex.forEachRecord(username, record -> {
+            if (record.fieldCount() >= 3) {
+                String goodId = record.getString(1);
+                int quantity = record.getInt(2);
+                purchasedGoods.add("商品ID: " + goodId + ", 数量: " + quantity);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        });
         return purchasedGoods;
     }
 
     /**
      * @brief 初始化方法，加载商品列表
-     * @details 在系统启动时调用，确保商品列表被加载
+     * @details 在系统启动时调用，确保商品列表被加载；若存在未压缩的日志则在重放后压缩进快照，
+     *          启用二进制商品目录而 goods.bin 尚未生成时同样写出快照。使用 goods.txt 时随后启动文件监视器，
+     *          可通过系统属性 shop.goods.watch=false 关闭
+     * @return 启动时补写了购买记录的未完成订单数
      */
-    public static void initialize() {
+    public static int initialize() {
         loadGoods();
+        int recovered = recoverOrders();
+        if (journal.size() > 0 || (MAPPED_STORAGE && mappedCatalog == null)) {
+            compactGoods(); // 仍有订单未补写购买记录时不压缩，保留日志
+        }
+        if (!MAPPED_STORAGE && Boolean.parseBoolean(System.getProperty("shop.goods.watch", "true"))) {
+            watcher.start();
+        }
+        return recovered;
     }
 
     /**
-     * @brief 获取商品列表的副本
-     * @return 商品列表的深拷贝
-     * @details 返回当前缓存的商品列表，防止直接修改原列表
+     * @brief 获取当前的目录快照
+     * @return 当前发布的不可变目录快照
+     * @details 不加锁、不复制，调用方可以长期持有
+     */
+    public static CatalogSnapshot getCatalogSnapshot() {
+        return catalog;
+    }
+
+    /**
+     * @brief 获取商品列表
+     * @return 当前目录快照中的只读商品列表
+     * @details 不复制列表，时间复杂度为 O(1)
      */
     public static List<Good> getGoodsList() {
-        return new ArrayList<>(goodsList);
+        return catalog.getGoods();
+    }
+
+    /**
+     * @class PendingOrder
+     * @brief 日志中的一条订单记录
+     */
+    private static class PendingOrder {
+        /** @brief 订单号 */
+        private final String orderId;
+        /** @brief 用户名 */
+        private final String username;
+        /** @brief 商品ID */
+        private final String[] goodIds;
+        /** @brief 对应的购买数量 */
+        private final int[] quantities;
+
+        /**
+         * @brief 构造函数
+         * @param orderId 订单号
+         * @param username 用户名
+         * @param goodIds 商品ID
+         * @param quantities 对应的购买数量
+         */
+        private PendingOrder(String orderId, String username, String[] goodIds, int[] quantities) {
+            this.orderId = orderId;
+            this.username = username;
+            this.goodIds = goodIds;
+            this.quantities = quantities;
+        }
+
+        /**
+         * @brief 解析 O 记录
+         * @param record 当前日志记录
+         * @return 订单
+         * @throws IllegalArgumentException 字段数不对或校验和不符时抛出，如写入中断而被截短的记录，重放时跳过
+         */
+        private static PendingOrder parse(CsvRecordReader record) {
+            int count = record.fieldCount();
+            if (count < 6 || count % 2 != 0) {
+                throw new IllegalArgumentException("订单记录字段数不正确: " + count);
+            }
+            String[] fields = new String[count - 1];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = record.getString(i);
+            }
+            if (!GoodsJournal.checksum(fields).equals(record.getString(count - 1))) {
+                throw new IllegalArgumentException("订单记录校验和不符: " + record.getString(1));
+            }
+            int lines = (count - 4) / 2;
+            String[] goodIds = new String[lines];
+            int[] quantities = new int[lines];
+            for (int i = 0; i < lines; i++) {
+                goodIds[i] = record.getString(3 + i * 2);
+                quantities[i] = record.getInt(4 + i * 2);
+            }
+            return new PendingOrder(record.getString(1), record.getString(2), goodIds, quantities);
+        }
+
+        /**
+         * @brief 将订单的库存变化应用到商品映射
+         * @param goods 商品ID到商品对象的映射
+         * @param sign -1 表示扣减，1 表示撤销扣减
+         */
+        private void applyTo(Map<String, Good> goods, int sign) {
+            for (int i = 0; i < goodIds.length; i++) {
+                Good good = goods.get(goodIds[i]);
+                if (good != null) {
+                    good.setStock(good.getStock() + sign * quantities[i]);
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -6,33 +6,100 @@
 package main.com.util;
 
 import main.com.model.User;
+import main.com.storage.StorageConfig;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
  * @class UserUtil
  * @brief 用户工具类，处理用户信息的文件读写和管理操作
- * @details 提供用户的增删改查等基本操作，使用文本文件作为数据存储
+ * @details 提供用户的增删改查等基本操作，使用文本文件作为数据存储；
+ *          用户信息首次使用时加载到按用户名索引的内存目录中，登录和查找不再读取文件。
+ *          密码以 PasswordHasher 的加盐散列保存；旧数据中的明文或 MD5 密码在用户下次登录成功时升级为散列，
+ *          升级结果在后台合并写入用户文件
  */
 public class UserUtil {
-    /** @brief 用户信息文件路径 */
-    private static final String USER_FILE_PATH = "C:\\Users\\liu69\\Desktop\\Console-Based_E-Commerce-_Javase_1.0-master-1\\src\\main\\resources\\users.txt";
+    /** @brief 用户信息文件路径，默认位于数据目录下，可通过系统属性 shop.users.file 覆盖 */
+    private static final String USER_FILE_PATH = StorageConfig.dataFile("shop.users.file", "users.txt");
+    /** @brief 用户目录，用户名到用户对象的映射，支持并发读取 */
+    private static final Map<String, User> userDirectory = new ConcurrentHashMap<>();
+    /** @brief 写操作锁，保证文件与用户目录的修改顺序一致 */
+    private static final Object writeLock = new Object();
+    /** @brief 用户目录是否已加载 */
+    private static volatile boolean directoryLoaded;
+    /** @brief 等待在后台升级密码散列的用户名 */
+    private static final Set<String> queuedRehashes = ConcurrentHashMap.newKeySet();
+    /** @brief 登录时升级了密码散列、尚未写入文件的用户 */
+    private static final Map<String, User> pendingRehashes = new ConcurrentHashMap<>();
+    /** @brief 合并写入升级结果前的等待时间（毫秒） */
+    private static final long REHASH_FLUSH_DELAY_MILLIS = 1000;
+    /** @brief 写入升级结果的后台线程 */
+    private static final ScheduledExecutorService rehashWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-rehash-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @brief 首次使用时从文件加载用户目录
+     * @details 用户名重复时保留第一次出现的用户，与原线性查找的结果保持一致
+     */
+    private static void loadDirectoryIfNeeded() {
+        if (directoryLoaded) {
+            return;
+        }
+        synchronized (writeLock) {
+            if (!directoryLoaded) {
+                for (User user : readUsersFromTxt()) {
+                    userDirectory.putIfAbsent(user.getUsername(), user);
+                }
+                directoryLoaded = true;
+            }
+        }
+    }
+
+    /**
+     * @brief 重新从文件加载用户目录
+     * @details 用户文件被外部修改后调用
+     */
+    public static void reloadDirectory() {
+        synchronized (writeLock) {
+            userDirectory.clear();
+            directoryLoaded = false;
+            loadDirectoryIfNeeded();
+        }
+    }
 
     /**
      * @brief 添加用户到文本文件
      * @param user 要添加的用户对象
-     * @details 将用户信息追加到用户文件末尾
-     * @throws IOException 写入文件时可能发生的IO异常
+     * @details 先校验明文输入，再将密码替换为散列值，把用户信息追加到用户文件末尾并加入用户目录
+     * @throws IllegalArgumentException 当用户输入不合法时
      */
     public static void addUserToTxt(User user) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(USER_FILE_PATH, true))) {
-            bw.write(user.getUsername() + "," + user.getPassword() + "," + user.getEmail() + "," + user.getPhone());
-            bw.newLine();
-        } catch (IOException e) {
-            e.printStackTrace();
+        validateUserInput(user);
+        user = new User(user.getUsername(), PasswordHasher.hash(user.getPassword()), user.getEmail(), user.getPhone());
+
+        loadDirectoryIfNeeded();
+        synchronized (writeLock) {
+            try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(USER_FILE_PATH, true), StorageConfig.CHARSET))) {
+                bw.write(user.getUsername() + "," + user.getPassword() + "," + user.getEmail() + "," + user.getPhone());
+                bw.newLine();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            userDirectory.putIfAbsent(user.getUsername(), copyOf(user));
         }
     }
 
@@ -41,16 +108,58 @@ public class UserUtil {
      * @param username 用户名
      * @param password 密码
      * @return 登录是否成功
-     * @details 从文件中读取用户信息，匹配用户名和密码
+     * @details 在用户目录中按用户名查找并校验密码散列，重复登录命中 PasswordHasher 的校验缓存。
+     *          保存的是旧数据中的明文或 MD5 密码，或散列的迭代次数低于当前设置时，校验成功后重新计算散列
      */
     public static boolean validateUser(String username, String password) {
-        List<User> users = readUsersFromTxt();
-        for (User user : users) {
-            if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
-                return true; // 登录成功
+        loadDirectoryIfNeeded();
+        User user = userDirectory.get(username);
+        if (user == null || password == null) {
+            return false;
+        }
+        String stored = user.getPassword();
+        boolean valid = PasswordHasher.isHashed(stored)
+                ? PasswordHasher.verify(stored, password)
+                : stored.equals(password) || stored.equals(User.encryptToMD5(password)); // 旧数据
+        if (valid && !password.isEmpty() && PasswordHasher.needsRehash(stored)) {
+            rehash(user, password);
+        }
+        return valid; // 登录是否成功
+    }
+
+    /**
+     * @brief 在后台为用户重新计算密码散列
+     * @param user 用户目录中的用户对象
+     * @param password 已校验通过的明文密码
+     * @details 散列在单个后台线程中计算，登录不等待，大量旧用户同时登录时升级最多占用一个处理器。
+     *          计算完成后替换用户目录中的对象，文件写入再推迟一段时间合并进行，只重写少数几次用户文件
+     */
+    private static void rehash(User user, String password) {
+        if (!queuedRehashes.add(user.getUsername())) {
+            return; // 已在等待升级
+        }
+        rehashWriter.execute(() -> {
+            try {
+                User upgraded = new User(user.getUsername(), PasswordHasher.hash(password), user.getEmail(), user.getPhone());
+                if (userDirectory.replace(user.getUsername(), user, upgraded)
+                        && pendingRehashes.put(user.getUsername(), upgraded) == null) {
+                    rehashWriter.schedule(UserUtil::flushRehashes, REHASH_FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                queuedRehashes.remove(user.getUsername());
+            }
+        });
+    }
+
+    /**
+     * @brief 将登录时升级的密码散列写入用户文件
+     */
+    private static void flushRehashes() {
+        synchronized (writeLock) {
+            if (!pendingRehashes.isEmpty()) {
+                writeUsersToTxt(null, null);
             }
         }
-        return false; // 登录失败
     }
 
     /**
@@ -62,15 +171,13 @@ public class UserUtil {
     public static List<User> readUsersFromTxt() {
         List<User> userList = new ArrayList<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(USER_FILE_PATH))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(","); // 根据逗号分隔字段
-                if (values.length == 4) { // 确保有四个字段
-                    String username = values[0];
-                    String password = values[1];
-                    String email = values[2];
-                    String phone = values[3];
+        try (CsvRecordReader record = new CsvRecordReader(new InputStreamReader(new FileInputStream(USER_FILE_PATH), StorageConfig.CHARSET))) {
+            while (record.next()) { // 根据逗号分隔字段
+                if (record.fieldCount() == 4) { // 确保有四个字段
+                    String username = record.getString(0);
+                    String password = record.getString(1);
+                    String email = record.getString(2);
+                    String phone = record.getString(3);
 
                     User user = new User(username, password, email, phone);
                     userList.add(user);
@@ -87,48 +194,73 @@ public class UserUtil {
      * @brief 根据用户名查找用户
      * @param username 要查找的用户名
      * @return 查找到的用户对象，未找到返回null
+     * @details 返回用户目录中对象的副本，调用方修改副本不会影响目录
      */
     public static User getUserByUsername(String username) {
-        List<User> users = readUsersFromTxt();
-        for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                return user; // 找到用户
-            }
-        }
-        return null; // 未找到用户
+        loadDirectoryIfNeeded();
+        User user = userDirectory.get(username);
+        return user == null ? null : copyOf(user);
+    }
+
+    /**
+     * @brief 复制用户对象
+     * @param user 原用户对象
+     * @return 用户对象副本
+     */
+    private static User copyOf(User user) {
+        return new User(user.getUsername(), user.getPassword(), user.getEmail(), user.getPhone());
     }
 
     /**
      * @brief 更新用户密码
      * @param user 包含更新信息的用户对象
-     * @details 更新文件中对应用户的信息
-     * @throws IOException 写入文件时可能发生的IO异常
+     * @details 校验明文输入后将新密码替换为散列值，更新文件中对应用户的信息，并同步更新用户目录
+     * @throws IllegalArgumentException 当用户输入不合法时
      */
     public static void updateUserPassword(User user) {
         // 添加输入验证
         validateUserInput(user);
+        user = new User(user.getUsername(), PasswordHasher.hash(user.getPassword()), user.getEmail(), user.getPhone());
 
+        loadDirectoryIfNeeded();
+        synchronized (writeLock) {
+            if (writeUsersToTxt(user, null)) {
+                userDirectory.replace(user.getUsername(), copyOf(user));
+            }
+        }
+    }
+
+    /**
+     * @brief 重写用户文件
+     * @param updated 需要替换的用户，为 null 时不替换
+     * @param deletedUsername 需要删除的用户名，为 null 时不删除
+     * @return 是否写入成功
+     * @details 调用方需持有写操作锁。登录时升级的密码散列一并写入
+     */
+    private static boolean writeUsersToTxt(User updated, String deletedUsername) {
         List<User> users = readUsersFromTxt();
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(USER_FILE_PATH))) {
+        Map<String, User> rehashed = new HashMap<>(pendingRehashes);
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(USER_FILE_PATH), StorageConfig.CHARSET))) {
             for (User currentUser : users) {
-                if (currentUser.getUsername().equals(user.getUsername())) {
-                    // 更新用户密码
-                    bw.write(user.getUsername() + "," +
-                            user.getPassword() + "," +
-                            user.getEmail() + "," +
-                            user.getPhone());
-                } else {
-                    // 其他用户信息保持不变
-                    bw.write(currentUser.getUsername() + "," +
-                            currentUser.getPassword() + "," +
-                            currentUser.getEmail() + "," +
-                            currentUser.getPhone());
+                if (currentUser.getUsername().equals(deletedUsername)) {
+                    continue; // 删除该用户
                 }
+                User written = updated != null && currentUser.getUsername().equals(updated.getUsername())
+                        ? updated : rehashed.getOrDefault(currentUser.getUsername(), currentUser); // 更新用户密码，其他用户信息保持不变
+                bw.write(written.getUsername() + "," +
+                        written.getPassword() + "," +
+                        written.getEmail() + "," +
+                        written.getPhone());
                 bw.newLine();
             }
+            for (Map.Entry<String, User> entry : rehashed.entrySet()) {
+                pendingRehashes.remove(entry.getKey(), entry.getValue());
+            }
+            return true;
         } catch (IOException e) {
-            System.err.println("更新用户密码失败：" + e.getMessage());
+            System.err.println("写入用户文件失败：" + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -136,7 +268,7 @@ public class UserUtil {
      * @brief 根据用户名删除用户
      * @param username 要删除的用户名
      * @return 是否成功删除用户
-     * @details 从文件中移除指定用户
+     * @details 从文件和用户目录中移除指定用户
      * @throws IOException 写入文件时可能发生的IO异常
      */
     public static boolean deleteUserByUsername(String username) {
@@ -145,25 +277,14 @@ public class UserUtil {
             return false;
         }
 
-        List<User> users = readUsersFromTxt();
+        loadDirectoryIfNeeded();
         boolean userDeleted = false;
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(USER_FILE_PATH))) {
-            for (User user : users) {
-                if (!user.getUsername().equals(username)) {
-                    // 只保留不匹配的用户
-                    bw.write(user.getUsername() + ","
-                            + user.getPassword()
-                            + "," + user.getEmail()
-                            + "," + user.getPhone());
-                    bw.newLine();
-                } else {
-                    // 找到并删除用户
-                    userDeleted = true;
-                }
+        synchronized (writeLock) {
+            if (userDirectory.containsKey(username) && writeUsersToTxt(null, username)) {
+                userDirectory.remove(username);
+                userDeleted = true; // 找到并删除用户
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
 
         return userDeleted; // 返回是否成功删除
@@ -0,0 +1,234 @@
+/**
+ * @file JsonWriter.java
+ * @brief JSON 输出类，为 HTTP 前端生成响应正文
+ * @package main.com.web
+ */
+package main.com.web;
+
+import main.com.model.CartItem;
+import main.com.model.Good;
+import main.com.service.ReservationLedger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * @class JsonWriter
+ * @brief 极简的流式 JSON 输出器
+ * @details 按调用顺序直接拼接字符串，自动处理逗号和字符串转义，不依赖第三方库
+ */
+public class JsonWriter {
+    /** @brief 输出缓冲区 */
+    private final StringBuilder out = new StringBuilder(256);
+    /** @brief 每一层对象或数组是否已有元素 */
+    private final Deque<Boolean> hasElement = new ArrayDeque<>();
+    /** @brief 刚输出了属性名，下一个值不需要逗号 */
+    private boolean afterName;
+
+    /**
+     * @brief 开始一个对象
+     * @return 当前输出器
+     */
+    public JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        hasElement.push(false);
+        return this;
+    }
+
+    /**
+     * @brief 结束当前对象
+     * @return 当前输出器
+     */
+    public JsonWriter endObject() {
+        hasElement.pop();
+        out.append('}');
+        return this;
+    }
+
+    /**
+     * @brief 开始一个数组
+     * @return 当前输出器
+     */
+    public JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        hasElement.push(false);
+        return this;
+    }
+
+    /**
+     * @brief 结束当前数组
+     * @return 当前输出器
+     */
+    public JsonWriter endArray() {
+        hasElement.pop();
+        out.append(']');
+        return this;
+    }
+
+    /**
+     * @brief 输出属性名
+     * @param name 属性名
+     * @return 当前输出器
+     */
+    public JsonWriter name(String name) {
+        separate();
+        quote(name);
+        out.append(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * @brief 输出字符串值
+     * @param value 字符串，为 null 时输出 null
+     * @return 当前输出器
+     */
+    public JsonWriter value(String value) {
+        separate();
+        if (value == null) {
+            out.append("null");
+        } else {
+            quote(value);
+        }
+        return this;
+    }
+
+    /**
+     * @brief 输出数值
+     * @param value 数值
+     * @return 当前输出器
+     */
+    public JsonWriter value(double value) {
+        separate();
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value); // 整数不输出小数点
+        } else {
+            out.append(value);
+        }
+        return this;
+    }
+
+    /**
+     * @brief 输出布尔值
+     * @param value 布尔值
+     * @return 当前输出器
+     */
+    public JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        return this;
+    }
+
+    /**
+     * @brief 输出商品对象
+     * @param good 商品
+     * @return 当前输出器
+     */
+    public JsonWriter good(Good good) {
+        return beginObject()
+                .name("id").value(good.getId())
+                .name("name").value(good.getName())
+                .name("description").value(good.getDescription())
+                .name("price").value(good.getPrice())
+                .name("stock").value(good.getStock())
+                .name("available").value(ReservationLedger.shared().available(good))
+                .name("category").value(good.getCategory())
+                .endObject();
+    }
+
+    /**
+     * @brief 输出商品数组
+     * @param goods 商品列表
+     * @return 当前输出器
+     */
+    public JsonWriter goods(List<Good> goods) {
+        beginArray();
+        for (Good good : goods) {
+            good(good);
+        }
+        return endArray();
+    }
+
+    /**
+     * @brief 输出购物车项目数组
+     * @param items 购物车项目列表
+     * @return 当前输出器
+     */
+    public JsonWriter cartItems(List<CartItem> items) {
+        beginArray();
+        for (CartItem item : items) {
+            beginObject()
+                    .name("id").value(item.getId())
+                    .name("name").value(item.getName())
+                    .name("price").value(item.getGood().getPrice())
+                    .name("quantity").value(item.getQuantity())
+                    .endObject();
+        }
+        return endArray();
+    }
+
+    /**
+     * @brief 获取生成的 JSON 文本
+     * @return JSON 文本
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    /**
+     * @brief 在元素之间输出逗号
+     */
+    private void separate() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!hasElement.isEmpty()) {
+            if (hasElement.peek()) {
+                out.append(',');
+            } else {
+                hasElement.pop();
+                hasElement.push(true);
+            }
+        }
+    }
+
+    /**
+     * @brief 输出转义后的字符串
+     * @param text 字符串
+     */
+    private void quote(String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
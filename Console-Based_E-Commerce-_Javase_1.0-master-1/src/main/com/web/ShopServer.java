@@ -0,0 +1,739 @@
+/**
+ * @file ShopServer.java
+ * @brief HTTP 前端类，通过 JDK 内置 HTTP 服务器对外提供商城功能
+ * @package main.com.web
+ */
+package main.com.web;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import main.com.model.Admin;
+import main.com.model.Cart;
+import main.com.model.CartItem;
+import main.com.model.CatalogPage;
+import main.com.model.Good;
+import main.com.model.User;
+import main.com.service.GoodService;
+import main.com.service.SalesMetrics;
+import main.com.service.SearchService;
+import main.com.service.Session;
+import main.com.service.SessionManager;
+import main.com.service.UserService;
+import main.com.storage.Storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @class ShopServer
+ * @brief 基于 com.sun.net.httpserver 的 HTTP 前端
+ * @details 每个请求在独立的虚拟线程上执行（JDK 21 及以上；更早的 JDK 退化为固定大小的线程池），
+ *          阻塞的文件读写只挂起虚拟线程而不占用平台线程，单机即可同时服务数万个连接。
+ *          接口以 JSON 返回，参数取自查询串或 application/x-www-form-urlencoded 请求体，
+ *          登录后通过 Cookie SESSION 或请求头 X-Session 携带会话ID；Cookie 设为 SameSite=Strict，
+ *          且修改状态的 POST 请求只认请求头 X-Session，跨站页面无法设置该请求头，不能借用户的 Cookie 伪造请求。
+ *          业务逻辑全部复用服务层：会话和购物车来自 SessionManager 和 UserService，
+ *          浏览、搜索和筛选直接读取已发布的目录快照和索引
+ */
+public class ShopServer {
+    /** @brief 会话 Cookie 名 */
+    private static final String SESSION_COOKIE = "SESSION";
+    /** @brief 会话请求头名 */
+    private static final String SESSION_HEADER = "X-Session";
+    /** @brief 类路径中没有 front.html 时使用的文件路径 */
+    private static final String FRONT_PAGE_PATH = "src/main/com/front.html";
+    /** @brief 请求体最大字节数 */
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    /**
+     * @interface Route
+     * @brief 一个接口路径的处理函数
+     */
+    private interface Route {
+        /**
+         * @brief 处理请求
+         * @param call 当前请求
+         * @return 响应正文 JSON
+         */
+        String handle(Call call);
+    }
+
+    /** @brief 路径到处理函数的映射，GET 与 POST 分开登记 */
+    private final Map<String, Route> routes = new HashMap<>();
+    /** @brief HTTP 服务器 */
+    private final HttpServer server;
+    /** @brief 请求执行器 */
+    private final ExecutorService executor;
+
+    /**
+     * @brief 构造函数，创建服务器并登记接口
+     * @param port 监听端口，为 0 时由系统分配
+     * @throws IOException 端口无法绑定时抛出
+     */
+    public ShopServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("shop.http.backlog", 4096));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::dispatch);
+
+        routes.put("GET /api/goods", this::browse);
+        routes.put("GET /api/good", this::good);
+        routes.put("GET /api/search", this::search);
+        routes.put("GET /api/facets", this::facets);
+        routes.put("POST /api/login", this::login);
+        routes.put("POST /api/logout", this::logout);
+        routes.put("GET /api/cart", this::cart);
+        routes.put("POST /api/cart/add", this::addToCart);
+        routes.put("POST /api/cart/update", this::updateCart);
+        routes.put("POST /api/checkout", this::checkout);
+        routes.put("GET /api/purchases", this::purchases);
+        routes.put("POST /api/admin/login", this::adminLogin);
+        routes.put("GET /api/admin/users", this::adminUsers);
+        routes.put("POST /api/admin/goods", this::adminSaveGood);
+        routes.put("POST /api/admin/goods/delete", this::adminDeleteGood);
+        routes.put("GET /api/admin/metrics", this::adminMetrics);
+    }
+
+    /**
+     * @brief 启动服务器
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @brief 停止服务器
+     * @param delaySeconds 等待进行中请求完成的最长秒数
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @brief 获取实际监听的端口
+     * @return 端口号
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @brief HTTP 前端入口方法
+     * @param args 可选的监听端口，默认取系统属性 shop.http.port 或 8080
+     * @throws IOException 端口无法绑定时抛出
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("shop.http.port", 8080);
+        int recovered = Storage.catalog().initialize(); // 加载商品快照并重放商品变更日志
+        if (recovered > 0) {
+            System.out.println("已恢复 " + recovered + " 个未完成的订单");
+        }
+        ShopServer shopServer = new ShopServer(port);
+        shopServer.start();
+        System.out.println("电子商城 HTTP 服务已启动: http://localhost:" + shopServer.getPort() + "/");
+    }
+
+    /**
+     * @brief 创建请求执行器
+     * @return 每个请求一个虚拟线程的执行器；JDK 不支持虚拟线程时返回固定大小的线程池
+     * @details 通过反射调用 Executors.newVirtualThreadPerTaskExecutor，源码仍可在 JDK 8 上编译
+     */
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(Integer.getInteger("shop.http.threads", 200), runnable -> {
+                Thread thread = new Thread(runnable, "http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @brief 分发请求
+     * @param exchange HTTP 交换
+     * @throws IOException 写响应失败时抛出
+     */
+    private void dispatch(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/") || path.equals("/index.html")) {
+                sendPage(exchange);
+                return;
+            }
+            Route route = routes.get(exchange.getRequestMethod() + " " + path);
+            if (route == null) {
+                send(exchange, 404, error("未知的接口: " + exchange.getRequestMethod() + " " + path));
+                return;
+            }
+            try {
+                send(exchange, 200, route.handle(new Call(exchange)));
+            } catch (Failure e) {
+                send(exchange, e.status, error(e.getMessage()));
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                send(exchange, 400, error(e.getMessage())); // 参数或业务校验失败，消息可直接显示给用户
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                send(exchange, 500, error("服务器内部错误"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @brief 分页浏览商品：category、cursor、size
+     * @param call 当前请求
+     * @return 一页商品
+     */
+    private String browse(Call call) {
+        int size = call.intParam("size", 10);
+        CatalogPage page = Storage.catalog().snapshot().page(call.param("category"), call.param("cursor"), size);
+        return new JsonWriter().beginObject()
+                .name("goods").goods(page.getGoods())
+                .name("offset").value(page.getOffset())
+                .name("total").value(page.getTotal())
+                .name("nextCursor").value(page.getNextCursor())
+                .name("version").value(page.getVersion())
+                .endObject().toString();
+    }
+
+    /**
+     * @brief 查看单个商品：id
+     * @param call 当前请求
+     * @return 商品
+     */
+    private String good(Call call) {
+        Good good = Storage.catalog().findById(call.requiredParam("id"));
+        if (good == null) {
+            throw new Failure(404, "未找到该商品！请检查商品ID。");
+        }
+        return new JsonWriter().good(good).toString();
+    }
+
+    /**
+     * @brief 全文搜索商品：q、limit
+     * @param call 当前请求
+     * @return 按相关度排序的商品
+     */
+    private String search(Call call) {
+        List<Good> goods = SearchService.search(call.requiredParam("q"), Math.min(call.intParam("limit", 20), 100));
+        return new JsonWriter().beginObject().name("goods").goods(goods).endObject().toString();
+    }
+
+    /**
+     * @brief 按类别和价格区间筛选商品：category、min、max、limit
+     * @param call 当前请求
+     * @return 各类别商品数和符合条件的商品
+     */
+    private String facets(Call call) {
+        String category = call.param("category");
+        double min = call.doubleParam("min", 0);
+        double max = call.doubleParam("max", Double.MAX_VALUE);
+        List<Good> goods = GoodService.facets().query(category, min, max, true, Math.min(call.intParam("limit", 20), 100));
+        JsonWriter json = new JsonWriter().beginObject().name("counts").beginObject();
+        for (Map.Entry<String, Integer> entry : GoodService.facets().facetCounts(min, max).entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        return json.endObject()
+                .name("total").value(GoodService.facets().count(category, min, max))
+                .name("goods").goods(goods)
+                .endObject().toString();
+    }
+
+    /**
+     * @brief 用户登录：username、password
+     * @param call 当前请求
+     * @return 会话ID
+     */
+    private String login(Call call) {
+        String username = call.requiredParam("username");
+        if (!Storage.users().validate(username, call.requiredParam("password"))) {
+            throw new Failure(401, "登录失败，用户名或密码错误。");
+        }
+        return openSession(call, username, false);
+    }
+
+    /**
+     * @brief 管理员登录：username、password
+     * @param call 当前请求
+     * @return 会话ID
+     */
+    private String adminLogin(Call call) {
+        String username = call.requiredParam("username");
+        if (!Storage.admins().validate(username, call.requiredParam("password"))) {
+            throw new Failure(401, "管理员登录失败，用户名或密码错误。");
+        }
+        return openSession(call, username, true);
+    }
+
+    /**
+     * @brief 创建会话并通过 Cookie 返回会话ID
+     * @param call 当前请求
+     * @param username 用户名
+     * @param admin 是否为管理员会话
+     * @return 会话ID
+     */
+    private String openSession(Call call, String username, boolean admin) {
+        SessionManager.shared().close(call.sessionId()); // 同一客户端重新登录时关闭旧会话
+        Session session;
+        try {
+            session = SessionManager.shared().open(username, admin);
+        } catch (IllegalStateException e) {
+            throw new Failure(503, e.getMessage());
+        }
+        call.exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + session.getId() + "; Path=/; HttpOnly; SameSite=Strict");
+        return new JsonWriter().beginObject()
+                .name("session").value(session.getId())
+                .name("username").value(username)
+                .name("admin").value(admin)
+                .endObject().toString();
+    }
+
+    /**
+     * @brief 退出登录，释放购物车中未结算商品的库存预留
+     * @param call 当前请求
+     * @return 是否存在该会话
+     */
+    private String logout(Call call) {
+        boolean closed = SessionManager.shared().close(call.sessionId());
+        return new JsonWriter().beginObject().name("closed").value(closed).endObject().toString();
+    }
+
+    /**
+     * @brief 查看购物车
+     * @param call 当前请求
+     * @return 购物车项目和总价
+     */
+    private String cart(Call call) {
+        return cartJson(call.userSession().getCart());
+    }
+
+    /**
+     * @brief 加入购物车：id、quantity
+     * @param call 当前请求
+     * @return 加入后的购物车
+     */
+    private String addToCart(Call call) {
+        Session session = call.userSession();
+        UserService.addToCart(session, call.requiredParam("id"), call.intParam("quantity", 1));
+        return cartJson(session.getCart());
+    }
+
+    /**
+     * @brief 修改购物车商品数量：id、quantity，数量为 0 时删除
+     * @param call 当前请求
+     * @return 修改后的购物车
+     */
+    private String updateCart(Call call) {
+        Session session = call.userSession();
+        UserService.updateCart(session, call.requiredParam("id"), call.intParam("quantity", 0));
+        return cartJson(session.getCart());
+    }
+
+    /**
+     * @brief 结算购物车
+     * @param call 当前请求
+     * @return 总价、折扣率和实付金额
+     */
+    private String checkout(Call call) {
+        Session session = call.userSession();
+        Cart cart = session.getCart();
+        if (cart.isEmpty()) {
+            throw new IllegalArgumentException("购物车为空，无法结算。");
+        }
+        double totalPrice = UserService.cartTotal(cart);
+        double discountRate = UserService.discountRate(totalPrice);
+        if (!UserService.placeOrder(session)) {
+            throw new Failure(500, "结算失败，订单未提交，请稍后重试。");
+        }
+        return new JsonWriter().beginObject()
+                .name("total").value(totalPrice)
+                .name("discountRate").value(discountRate)
+                .name("paid").value(Math.round(totalPrice * discountRate * 100) / 100.0)
+                .endObject().toString();
+    }
+
+    /**
+     * @brief 查看已购买的商品
+     * @param call 当前请求
+     * @return 购买记录
+     */
+    private String purchases(Call call) {
+        JsonWriter json = new JsonWriter().beginObject().name("purchases").beginArray();
+        for (String record : Storage.purchases().findByUser(call.userSession().getUsername())) {
+            json.value(record);
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    /**
+     * @brief 管理员查看用户列表
+     * @param call 当前请求
+     * @return 用户名列表
+     */
+    private String adminUsers(Call call) {
+        call.adminSession();
+        JsonWriter json = new JsonWriter().beginObject().name("users").beginArray();
+        for (User user : Storage.users().findAll()) {
+            json.value(user.getUsername());
+        }
+        json.endArray().name("admins").beginArray();
+        for (Admin admin : Storage.admins().findAll()) {
+            json.value(admin.getUsername());
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    /**
+     * @brief 管理员添加或修改商品：id、name、description、price、stock、category
+     * @param call 当前请求
+     * @return 保存后的商品
+     */
+    private String adminSaveGood(Call call) {
+        call.adminSession();
+        String id = call.requiredParam("id");
+        String name = call.requiredParam("name");
+        double price = call.doubleParam("price", -1);
+        int stock = call.intParam("stock", -1);
+        String description = call.param("description", "");
+        String category = call.param("category", "");
+        GoodService.validateGoodData(id, name, description, price, stock, category);
+        Good good = new Good(id, name, description, price, stock, category);
+        if (Storage.catalog().findById(id) == null) {
+            Storage.catalog().add(good);
+        } else {
+            Storage.catalog().update(good);
+        }
+        return new JsonWriter().good(good).toString();
+    }
+
+    /**
+     * @brief 管理员删除商品：id
+     * @param call 当前请求
+     * @return 是否存在该商品
+     */
+    private String adminDeleteGood(Call call) {
+        call.adminSession();
+        String id = call.requiredParam("id");
+        boolean existed = Storage.catalog().findById(id) != null;
+        if (existed) {
+            Storage.catalog().delete(id);
+        }
+        return new JsonWriter().beginObject().name("deleted").value(existed).endObject().toString();
+    }
+
+    /**
+     * @brief 管理员查看实时销售指标：top（销量排行的商品数，默认 10）
+     * @param call 当前请求
+     * @return 累计订单数、销量和销售额，最近 1 分钟和 5 分钟的订单数与销量，销量最高的商品和各类别销售额
+     */
+    private String adminMetrics(Call call) {
+        call.adminSession();
+        SalesMetrics metrics = SalesMetrics.shared();
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("orders").value(metrics.getOrders())
+                .name("units").value(metrics.getUnits())
+                .name("revenue").value(metrics.getRevenue())
+                .name("ordersLastMinute").value(metrics.ordersInLast(60))
+                .name("unitsLastMinute").value(metrics.unitsInLast(60))
+                .name("ordersLast5Minutes").value(metrics.ordersInLast(300))
+                .name("unitsLast5Minutes").value(metrics.unitsInLast(300))
+                .name("topGoods").beginArray();
+        for (Map.Entry<String, Long> entry : metrics.topGoods(Math.min(call.intParam("top", 10), 100)).entrySet()) {
+            json.beginObject().name("id").value(entry.getKey()).name("units").value(entry.getValue()).endObject();
+        }
+        json.endArray().name("categories").beginArray();
+        for (Map.Entry<String, Double> entry : metrics.revenueByCategory().entrySet()) {
+            json.beginObject().name("category").value(entry.getKey()).name("revenue").value(entry.getValue()).endObject();
+        }
+        return json.endArray().endObject().toString();
+    }
+
+    /**
+     * @brief 生成购物车 JSON
+     * @param cart 购物车
+     * @return 购物车项目和总价
+     */
+    private static String cartJson(Cart cart) {
+        List<CartItem> items = cart.getItems();
+        return new JsonWriter().beginObject()
+                .name("items").cartItems(items)
+                .name("total").value(UserService.cartTotal(cart))
+                .endObject().toString();
+    }
+
+    /**
+     * @brief 生成错误 JSON
+     * @param message 错误信息
+     * @return 错误 JSON
+     */
+    private static String error(String message) {
+        return new JsonWriter().beginObject().name("error").value(message).endObject().toString();
+    }
+
+    /**
+     * @brief 返回首页 front.html
+     * @param exchange HTTP 交换
+     * @throws IOException 写响应失败时抛出
+     * @details 先从类路径查找，找不到时读取工作目录下的 src/main/com/front.html
+     */
+    private static void sendPage(HttpExchange exchange) throws IOException {
+        InputStream resource = ShopServer.class.getResourceAsStream("/main/com/front.html");
+        File file = new File(FRONT_PAGE_PATH);
+        if (resource == null && file.isFile()) {
+            resource = new FileInputStream(file);
+        }
+        try (InputStream in = resource) {
+            if (in == null) {
+                send(exchange, 404, error("未找到 front.html"));
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            byte[] body = readAll(in, Integer.MAX_VALUE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * @brief 发送 JSON 响应
+     * @param exchange HTTP 交换
+     * @param status 状态码
+     * @param json 响应正文
+     * @throws IOException 写响应失败时抛出
+     */
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * @brief 读取输入流的全部内容
+     * @param in 输入流
+     * @param limit 最大字节数
+     * @return 读取的字节
+     * @throws IOException 读取失败或超过最大字节数时抛出
+     */
+    private static byte[] readAll(InputStream in, int limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > limit) {
+                throw new Failure(413, "请求体过大");
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @brief 解析 URL 编码的参数
+     * @param encoded 查询串或表单请求体
+     * @param params 输出的参数映射，同名参数保留第一个
+     */
+    private static void parseParams(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return;
+        }
+        try {
+            for (String pair : encoded.split("&")) {
+                int separator = pair.indexOf('=');
+                String name = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), "UTF-8");
+                String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+                params.putIfAbsent(name, value);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @class Failure
+     * @brief 带 HTTP 状态码的请求失败
+     */
+    private static class Failure extends RuntimeException {
+        /** @brief 序列化版本号 */
+        private static final long serialVersionUID = 1L;
+
+        /** @brief HTTP 状态码 */
+        private final int status;
+
+        /**
+         * @brief 构造函数
+         * @param status HTTP 状态码
+         * @param message 错误信息
+         */
+        Failure(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * @class Call
+     * @brief 一次请求的参数和会话
+     */
+    private static class Call {
+        /** @brief HTTP 交换 */
+        private final HttpExchange exchange;
+        /** @brief 查询串和表单参数 */
+        private final Map<String, String> params = new HashMap<>();
+
+        /**
+         * @brief 构造函数，解析查询串和表单请求体
+         * @param exchange HTTP 交换
+         * @throws IOException 读取请求体失败时抛出
+         */
+        Call(HttpExchange exchange) throws IOException {
+            this.exchange = exchange;
+            parseParams(exchange.getRequestURI().getRawQuery(), params);
+            if ("POST".equals(exchange.getRequestMethod())) {
+                try (InputStream in = exchange.getRequestBody()) {
+                    parseParams(new String(readAll(in, MAX_BODY_BYTES), StandardCharsets.UTF_8), params);
+                }
+            }
+        }
+
+        /**
+         * @brief 获取参数
+         * @param name 参数名
+         * @return 参数值，不存在时返回 null
+         */
+        String param(String name) {
+            return params.get(name);
+        }
+
+        /**
+         * @brief 获取可选参数
+         * @param name 参数名
+         * @param defaultValue 参数缺失时的默认值
+         * @return 参数值
+         */
+        String param(String name, String defaultValue) {
+            String value = params.get(name);
+            return value == null ? defaultValue : value;
+        }
+
+        /**
+         * @brief 获取必填参数
+         * @param name 参数名
+         * @return 参数值
+         * @throws IllegalArgumentException 参数缺失或为空时抛出
+         */
+        String requiredParam(String name) {
+            String value = params.get(name);
+            if (value == null || value.isEmpty()) {
+                throw new IllegalArgumentException("缺少参数: " + name);
+            }
+            return value;
+        }
+
+        /**
+         * @brief 获取整数参数
+         * @param name 参数名
+         * @param defaultValue 参数缺失时的默认值
+         * @return 参数值
+         * @throws IllegalArgumentException 参数不是整数时抛出
+         */
+        int intParam(String name, int defaultValue) {
+            String value = params.get(name);
+            try {
+                return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("参数 " + name + " 必须是整数");
+            }
+        }
+
+        /**
+         * @brief 获取数值参数
+         * @param name 参数名
+         * @param defaultValue 参数缺失时的默认值
+         * @return 参数值
+         * @throws IllegalArgumentException 参数不是数字时抛出
+         */
+        double doubleParam(String name, double defaultValue) {
+            String value = params.get(name);
+            try {
+                return value == null || value.isEmpty() ? defaultValue : Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("参数 " + name + " 必须是数字");
+            }
+        }
+
+        /**
+         * @brief 获取请求携带的会话ID
+         * @return 会话ID，未携带时返回 null
+         * @details POST 请求只取请求头 X-Session，忽略 Cookie：浏览器会为跨站提交的表单自动附带 Cookie，
+         *          却不允许跨站页面设置自定义请求头
+         */
+        String sessionId() {
+            String header = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+            if (header != null || "POST".equals(exchange.getRequestMethod())) {
+                return header;
+            }
+            List<String> cookies = exchange.getRequestHeaders().get("Cookie");
+            if (cookies != null) {
+                for (String cookie : cookies) {
+                    for (String pair : cookie.split(";")) {
+                        String trimmed = pair.trim();
+                        if (trimmed.startsWith(SESSION_COOKIE + "=")) {
+                            return trimmed.substring(SESSION_COOKIE.length() + 1);
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @brief 获取普通用户会话
+         * @return 会话
+         * @throws Failure 未登录或会话已过期时以 401 失败
+         */
+        Session userSession() {
+            Session session = SessionManager.shared().get(sessionId());
+            if (session == null || session.isAdmin()) {
+                throw new Failure(401, "请先登录");
+            }
+            return session;
+        }
+
+        /**
+         * @brief 获取管理员会话
+         * @return 会话
+         * @throws Failure 未以管理员身份登录时以 403 失败
+         */
+        Session adminSession() {
+            Session session = SessionManager.shared().get(sessionId());
+            if (session == null || !session.isAdmin()) {
+                throw new Failure(403, "需要管理员权限");
+            }
+            return session;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package test.com.bench;
+
+import main.com.storage.StorageConfig;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * @class DatasetGenerator
+ * @brief 基准测试数据集生成器
+ * @details 按指定行数生成 goods.txt、users.txt、purchases.txt 和 Admin.txt，格式与 src/main/resources 下的文件一致
+ */
+public class DatasetGenerator {
+    /** @brief 商品类别 */
+    private static final String[] CATEGORIES = {"电子产品", "服装", "食品", "图书", "家居", "运动", "美妆", "玩具"};
+    /** @brief 每个用户平均拥有的购买记录行数 */
+    static final int PURCHASES_PER_USER = 10;
+    /** @brief 购买记录时间跨度的起点（2024-01-01T00:00:00Z），记录在之后一年内按行号均匀分布 */
+    private static final long PURCHASES_START_MILLIS = 1704067200000L;
+    /** @brief 购买记录的时间跨度（毫秒） */
+    private static final long PURCHASES_SPAN_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+    /**
+     * @brief 在指定目录生成数据集
+     * @param dir 输出目录
+     * @param rows 商品、用户和购买记录各自的行数
+     * @throws IOException 写入文件失败时抛出
+     */
+    public static void generate(File dir, int rows) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        Random random = new Random(rows);
+        try (BufferedWriter bw = Files.newBufferedWriter(new File(dir, "goods.txt").toPath(), StorageConfig.CHARSET)) {
+            bw.write("id,name,description,price,stock,category");
+            bw.newLine();
+            for (int i = 0; i < rows; i++) {
+                double price = (random.nextInt(999900) + 100) / 100.0;
+                bw.write(goodId(i) + ",商品" + i + ",描述" + i + "," + price + ",1000000000," + CATEGORIES[i % CATEGORIES.length]);
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = Files.newBufferedWriter(new File(dir, "users.txt").toPath(), StorageConfig.CHARSET)) {
+            for (int i = 0; i < rows; i++) {
+                bw.write(username(i) + "," + password(i) + ",user" + i + "@example.com," + (13000000000L + i));
+                bw.newLine();
+            }
+        }
+        int users = purchasingUsers(rows);
+        try (BufferedWriter bw = Files.newBufferedWriter(new File(dir, "purchases.txt").toPath(), StorageConfig.CHARSET)) {
+            for (int i = 0; i < rows; i++) {
+                long time = PURCHASES_START_MILLIS + PURCHASES_SPAN_MILLIS * i / rows;
+                bw.write(username(random.nextInt(users)) + "," + goodId(random.nextInt(rows)) + "," + (random.nextInt(5) + 1) + ",," + time);
+                bw.newLine();
+            }
+        }
+        try (BufferedWriter bw = Files.newBufferedWriter(new File(dir, "Admin.txt").toPath(), StorageConfig.CHARSET)) {
+            bw.write("username,password");
+            bw.newLine();
+            bw.write("admin1,admin123");
+            bw.newLine();
+        }
+    }
+
+    /**
+     * @brief 有购买记录的用户数
+     * @param rows 数据集行数
+     * @return 用户数
+     */
+    public static int purchasingUsers(int rows) {
+        return Math.max(1, rows / PURCHASES_PER_USER);
+    }
+
+    /**
+     * @brief 第 i 个商品的ID
+     * @param i 序号
+     * @return 商品ID
+     */
+    public static String goodId(int i) {
+        return String.valueOf(i + 1);
+    }
+
+    /**
+     * @brief 第 i 个用户的用户名
+     * @param i 序号
+     * @return 用户名
+     */
+    public static String username(int i) {
+        return "user" + i;
+    }
+
+    /**
+     * @brief 第 i 个用户的密码
+     * @param i 序号
+     * @return 密码
+     */
+    public static String password(int i) {
+        return "pass" + i;
+    }
+
+    /**
+     * @brief 递归删除数据集目录
+     * @param file 要删除的文件或目录
+     */
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
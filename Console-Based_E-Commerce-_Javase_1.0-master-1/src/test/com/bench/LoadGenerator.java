@@ -0,0 +1,364 @@
+package test.com.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @class LoadGenerator
+ * @brief HTTP 前端的负载生成器
+ * @details 启动若干模拟顾客，每个顾客登录后在限定时间内循环执行浏览、搜索、查看商品、加入购物车和结算，
+ *          最后输出吞吐量和延迟分位数。未指定 -u 时先生成数据集并在子 JVM 中启动 ShopServer。
+ *          每个顾客在 JDK 21 及以上使用一个虚拟线程，否则使用一个平台线程。
+ *          用法：java -cp &lt;classes&gt; test.com.bench.LoadGenerator [-u http://host:port] [-c 顾客数] [-d 秒数]
+ *          [-r 数据集行数]
+ */
+public class LoadGenerator {
+    /** @brief 默认顾客数 */
+    private static final int DEFAULT_CLIENTS = 1000;
+    /** @brief 默认压测时长（秒） */
+    private static final int DEFAULT_SECONDS = 30;
+    /** @brief 默认数据集行数，使用 -u 时应与服务端数据集一致 */
+    private static final int DEFAULT_ROWS = 10000;
+    /** @brief 搜索用的关键词 */
+    private static final String[] QUERIES = {"商品1", "描述2", "电子产品", "服装", "图书 商品3"};
+
+    /** @brief 请求总数 */
+    private static final AtomicLong requests = new AtomicLong();
+    /** @brief 失败请求数 */
+    private static final AtomicLong errors = new AtomicLong();
+
+    /**
+     * @brief 负载生成入口
+     * @param args 命令行参数
+     * @throws Exception 启动服务端或压测失败时抛出
+     */
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        int clients = DEFAULT_CLIENTS;
+        int seconds = DEFAULT_SECONDS;
+        int rows = DEFAULT_ROWS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-u":
+                    url = args[++i];
+                    break;
+                case "-c":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "-d":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                case "-r":
+                    rows = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+        System.setProperty("http.maxConnections", String.valueOf(clients)); // 每个顾客保持一个长连接
+
+        Process server = null;
+        File dir = null;
+        try {
+            if (url == null) {
+                dir = Files.createTempDirectory("shop-load").toFile();
+                DatasetGenerator.generate(dir, rows);
+                int port = freePort();
+                server = startServer(dir, port);
+                url = "http://localhost:" + port;
+                awaitServer(url, server);
+            }
+            run(url, clients, seconds, rows);
+        } finally {
+            if (server != null) {
+                server.destroy();
+                server.waitFor();
+            }
+            if (dir != null) {
+                DatasetGenerator.delete(dir);
+            }
+        }
+    }
+
+    /**
+     * @brief 运行压测并输出结果
+     * @param url 服务端地址
+     * @param clients 顾客数
+     * @param seconds 压测时长（秒）
+     * @param rows 数据集行数
+     * @throws InterruptedException 等待顾客结束时被中断
+     */
+    private static void run(String url, int clients, int seconds, int rows) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<long[]> latencies = new ArrayList<>();
+        List<Shopper> shoppers = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            shoppers.add(new Shopper(url, i, rows, deadline));
+        }
+        ExecutorService executor = newShopperExecutor(clients);
+        long start = System.nanoTime();
+        for (Shopper shopper : shoppers) {
+            executor.execute(shopper);
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long total = 0;
+        for (Shopper shopper : shoppers) {
+            latencies.add(Arrays.copyOf(shopper.latencies, shopper.count));
+            total += shopper.count;
+        }
+        long[] all = new long[(int) total];
+        int position = 0;
+        for (long[] part : latencies) {
+            System.arraycopy(part, 0, all, position, part.length);
+            position += part.length;
+        }
+        Arrays.sort(all);
+        System.out.printf("顾客数 %d，时长 %.1f 秒，请求 %d，失败 %d，吞吐量 %.1f 请求/秒%n",
+                clients, elapsed, requests.get(), errors.get(), requests.get() / elapsed);
+        System.out.printf("延迟（毫秒） p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                percentile(all, 0.5), percentile(all, 0.9), percentile(all, 0.99), percentile(all, 0.999),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+    }
+
+    /**
+     * @brief 计算延迟分位数
+     * @param sorted 升序排列的延迟（纳秒）
+     * @param quantile 分位
+     * @return 延迟（毫秒）
+     */
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * quantile))] / 1e6;
+    }
+
+    /**
+     * @brief 创建顾客执行器
+     * @param clients 顾客数
+     * @return 每个顾客一个虚拟线程的执行器；JDK 不支持虚拟线程时每个顾客一个平台线程
+     */
+    private static ExecutorService newShopperExecutor(int clients) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(clients);
+        }
+    }
+
+    /**
+     * @brief 在子 JVM 中启动 ShopServer
+     * @param dir 数据集目录
+     * @param port 监听端口
+     * @return 子进程
+     * @throws IOException 启动失败时抛出
+     */
+    private static Process startServer(File dir, int port) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-Dshop.data.dir=" + dir);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("main.com.web.ShopServer");
+        command.add(String.valueOf(port));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * @brief 等待服务端可以响应请求
+     * @param url 服务端地址
+     * @param server 服务端子进程
+     * @throws Exception 服务端提前退出或超时未就绪时抛出
+     */
+    private static void awaitServer(String url, Process server) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("服务端子进程异常退出");
+            }
+            try {
+                if (request(url + "/api/goods?size=1", null, null) == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                Thread.sleep(100); // 尚未开始监听
+            }
+        }
+        throw new IllegalStateException("等待服务端启动超时");
+    }
+
+    /**
+     * @brief 查找一个空闲端口
+     * @return 端口号
+     * @throws IOException 无法绑定时抛出
+     */
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * @brief 发送一次请求并读完响应
+     * @param url 请求地址
+     * @param form 表单请求体，为 null 时发送 GET
+     * @param session 会话ID，可为 null
+     * @return HTTP 状态码
+     * @throws IOException 连接失败时抛出
+     */
+    private static int request(String url, String form, String[] session) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        if (session != null && session[0] != null) {
+            connection.setRequestProperty("X-Session", session[0]);
+        }
+        if (form != null) {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            try {
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                    body.write(buffer, 0, read);
+                }
+            } finally {
+                in.close(); // 读完响应体后连接才能复用
+            }
+            if (session != null && url.endsWith("/api/login") && status == 200) {
+                String json = new String(body.toByteArray(), StandardCharsets.UTF_8);
+                int start = json.indexOf("\"session\":\"") + 11;
+                session[0] = json.substring(start, json.indexOf('"', start));
+            }
+        }
+        return status;
+    }
+
+    /**
+     * @class Shopper
+     * @brief 一个模拟顾客
+     */
+    private static class Shopper implements Runnable {
+        /** @brief 服务端地址 */
+        private final String url;
+        /** @brief 顾客序号 */
+        private final int index;
+        /** @brief 数据集行数 */
+        private final int rows;
+        /** @brief 结束时间（System.nanoTime） */
+        private final long deadline;
+        /** @brief 随机数生成器 */
+        private final Random random;
+        /** @brief 会话ID */
+        private final String[] session = new String[1];
+        /** @brief 每次请求的延迟（纳秒） */
+        private long[] latencies = new long[1024];
+        /** @brief 已记录的请求数 */
+        private int count;
+
+        /**
+         * @brief 构造函数
+         * @param url 服务端地址
+         * @param index 顾客序号
+         * @param rows 数据集行数
+         * @param deadline 结束时间（System.nanoTime）
+         */
+        Shopper(String url, int index, int rows, long deadline) {
+            this.url = url;
+            this.index = index;
+            this.rows = rows;
+            this.deadline = deadline;
+            this.random = new Random(index);
+        }
+
+        /**
+         * @brief 登录后循环执行购物操作直到结束时间
+         */
+        @Override
+        public void run() {
+            int user = index % rows;
+            call("/api/login", "username=" + DatasetGenerator.username(user) + "&password=" + DatasetGenerator.password(user));
+            int cartLines = 0;
+            while (System.nanoTime() < deadline) {
+                int dice = random.nextInt(100);
+                String goodId = DatasetGenerator.goodId(random.nextInt(rows));
+                if (dice < 40) {
+                    call("/api/goods?size=10&category=" + encode(random.nextBoolean() ? "" : "图书"), null);
+                } else if (dice < 65) {
+                    call("/api/search?limit=10&q=" + encode(QUERIES[random.nextInt(QUERIES.length)]), null);
+                } else if (dice < 80) {
+                    call("/api/good?id=" + goodId, null);
+                } else if (dice < 95 || cartLines == 0) {
+                    call("/api/cart/add", "id=" + goodId + "&quantity=1");
+                    cartLines++;
+                } else {
+                    call("/api/checkout", "");
+                    cartLines = 0;
+                }
+            }
+            call("/api/logout", "");
+        }
+
+        /**
+         * @brief 发送一次请求并记录延迟
+         * @param path 请求路径
+         * @param form 表单请求体，为 null 时发送 GET
+         */
+        private void call(String path, String form) {
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = request(url + path, form, session) < 400;
+            } catch (IOException e) {
+                ok = false;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+            requests.incrementAndGet();
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+
+        /**
+         * @brief URL 编码
+         * @param text 原文
+         * @return 编码后的文本
+         */
+        private static String encode(String text) {
+            try {
+                return URLEncoder.encode(text, "UTF-8");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
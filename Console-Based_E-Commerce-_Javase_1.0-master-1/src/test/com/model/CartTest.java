@@ -0,0 +1,118 @@
+package test.com.model;
+
+import main.com.model.Cart;
+import main.com.model.CartItem;
+import main.com.model.Good;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @class CartTest
+ * @brief 购物车的合并加入和紧凑编码
+ */
+public class CartTest {
+    /**
+     * @brief 重复加入同一商品只增加数量，不新增一行
+     */
+    @Test
+    public void addingSameGoodMergesIntoOneLine() {
+        Cart cart = new Cart();
+        Good apple = good("g1");
+        CartItem first = cart.add(apple, 2);
+        cart.add(good("g2"), 1);
+        CartItem merged = cart.add(apple, 3);
+
+        assertSame(first, merged);
+        assertEquals(5, merged.getQuantity());
+        assertEquals(2, cart.getItems().size());
+        assertEquals("g1", cart.getItems().get(0).getId()); // 显示顺序为第一次加入的顺序
+    }
+
+    /**
+     * @brief 购物车已满时不能新增一行，但已有商品仍可合并
+     */
+    @Test
+    public void fullCartOnlyAcceptsGoodsAlreadyInIt() {
+        Cart cart = new Cart();
+        for (int i = 0; i < Cart.MAX_ITEMS; i++) {
+            cart.add(good("g" + i), 1);
+        }
+        assertNull(cart.add(good("extra"), 1));
+        assertEquals(2, cart.add(good("g0"), 1).getQuantity());
+        assertTrue(cart.canAdd("g0"));
+        assertEquals(Cart.MAX_ITEMS, cart.getItems().size());
+    }
+
+    /**
+     * @brief 编码后解码得到相同的商品和数量，ID 中的分隔符被转义
+     */
+    @Test
+    public void encodeDecodeRoundTrip() {
+        Cart cart = new Cart();
+        cart.add(good("g1"), 2);
+        cart.add(good("a,b=c%d"), 7);
+        cart.add(good("g1"), 1);
+
+        String encoded = cart.encode();
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("g1", 3);
+        expected.put("a,b=c%d", 7);
+        assertEquals(expected, Cart.decode(encoded));
+        assertEquals("g1=3,a%2cb%3dc%25d=7", encoded);
+    }
+
+    /**
+     * @brief 空购物车编码为空串，空串和 null 解码为空映射
+     */
+    @Test
+    public void emptyCartRoundTrip() {
+        assertEquals("", new Cart().encode());
+        assertTrue(Cart.decode("").isEmpty());
+        assertTrue(Cart.decode(null).isEmpty());
+    }
+
+    /**
+     * @brief 解码时同一商品出现多次则合并数量
+     */
+    @Test
+    public void decodeMergesRepeatedIds() {
+        Map<String, Integer> lines = Cart.decode("g1=1,g2=2,g1=4");
+        assertEquals(Integer.valueOf(5), lines.get("g1"));
+        assertEquals(2, lines.size());
+    }
+
+    /**
+     * @brief 合并两个编码时同一商品的数量相加，先保存的商品排在前面
+     */
+    @Test
+    public void mergeAddsQuantities() {
+        String merged = Cart.merge("g1=2,x%2c=1", "g2=1,g1=3");
+        assertEquals("g1=5,x%2c=1,g2=1", merged);
+        assertEquals(Integer.valueOf(1), Cart.decode(merged).get("x,"));
+        assertEquals("g1=1", Cart.merge(null, "g1=1"));
+    }
+
+    /**
+     * @brief 格式错误的编码被拒绝
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeRejectsMalformedText() {
+        Cart.decode("g1=abc");
+    }
+
+    /**
+     * @brief 构造测试用商品
+     * @param id 商品ID
+     * @return 商品
+     */
+    private static Good good(String id) {
+        return new Good(id, "商品" + id, "描述", 10.0, 100, "测试");
+    }
+}
@@ -1,4 +1,75 @@
 package test.com.service;
 
+import main.com.service.GoodService;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @class GoodServiceTest
+ * @brief 商品数据校验
+ * @details 商品以逗号分隔、一行一条写入 goods.txt 和商品日志，文本字段中的逗号和换行必须被拒绝
+ */
 public class GoodServiceTest {
+    /**
+     * @brief 合法的商品数据通过校验，描述和类别可以为空
+     */
+    @Test
+    public void acceptsValidGood() {
+        GoodService.validateGoodData("g1", "苹果", "红色", 3.5, 10, "水果");
+        GoodService.validateGoodData("g2", "梨", "", 0, 0, null);
+    }
+
+    /**
+     * @brief 名称中的逗号被拒绝
+     */
+    @Test
+    public void rejectsCommaInName() {
+        assertRejected("商品名称不能包含逗号或换行", "g1", "苹,果", "红色", "水果");
+    }
+
+    /**
+     * @brief 名称中的换行被拒绝，不能伪造额外的日志记录
+     */
+    @Test
+    public void rejectsNewlineInName() {
+        assertRejected("商品名称不能包含逗号或换行", "g1", "苹果\nD,g2", "红色", "水果");
+        assertRejected("商品名称不能包含逗号或换行", "g1", "苹果\r", "红色", "水果");
+    }
+
+    /**
+     * @brief ID、描述和类别中的分隔符同样被拒绝
+     */
+    @Test
+    public void rejectsSeparatorsInOtherTextFields() {
+        assertRejected("商品ID不能包含逗号或换行", "g,1", "苹果", "红色", "水果");
+        assertRejected("商品描述不能包含逗号或换行", "g1", "苹果", "红\n色", "水果");
+        assertRejected("商品类别不能包含逗号或换行", "g1", "苹果", "红色", "水,果");
+    }
+
+    /**
+     * @brief 负数价格和库存被拒绝
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativePrice() {
+        GoodService.validateGoodData("g1", "苹果", "红色", -1, 10, "水果");
+    }
+
+    /**
+     * @brief 断言商品数据被拒绝
+     * @param message 期望的错误信息
+     * @param id 商品ID
+     * @param name 商品名称
+     * @param description 商品描述
+     * @param category 商品类别
+     */
+    private static void assertRejected(String message, String id, String name, String description, String category) {
+        try {
+            GoodService.validateGoodData(id, name, description, 1.0, 1, category);
+            fail("应拒绝: " + name);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package test.com.service;
+
+import main.com.model.Good;
+import main.com.service.ReservationLedger;
+import main.com.storage.Storage;
+import main.com.storage.StorageConfig;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import test.com.bench.DatasetGenerator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @class ReservationLedgerTest
+ * @brief 库存预留台账的预留、过期和结算记账
+ * @details 持久库存取自商品目录，因此在临时数据目录中准备一个库存为 10 的商品；每个测试使用自己的台账实例，
+ *          结算时以计数器代替真正的持久提交，持久库存始终为 10，可用数量的变化只来自预留
+ */
+public class ReservationLedgerTest {
+    /** @brief 持久库存 */
+    private static final int STOCK = 10;
+    /** @brief 足够长、测试期间不会过期的预留有效期（毫秒） */
+    private static final long LONG_TTL = TimeUnit.HOURS.toMillis(1);
+
+    /** @brief 临时数据目录 */
+    private static File dir;
+    /** @brief 测试商品 */
+    private static Good good;
+
+    /**
+     * @brief 准备数据目录并初始化商品目录
+     * @throws IOException 写入数据文件失败时抛出
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        dir = Files.createTempDirectory("shop-ledger-test").toFile();
+        try (BufferedWriter bw = Files.newBufferedWriter(new File(dir, "goods.txt").toPath(), StorageConfig.CHARSET)) {
+            bw.write("id,name,description,price,stock,category");
+            bw.newLine();
+            bw.write("g1,苹果,红色,3.5," + STOCK + ",水果");
+            bw.newLine();
+        }
+        System.setProperty("shop.data.dir", dir.getPath());
+        Storage.catalog().initialize();
+        good = Storage.catalog().findById("g1");
+    }
+
+    /**
+     * @brief 删除临时数据目录
+     */
+    @AfterClass
+    public static void tearDown() {
+        DatasetGenerator.delete(dir);
+    }
+
+    /**
+     * @brief 预留不能超过可用数量，不同持有者共享同一可用数量
+     */
+    @Test
+    public void reserveNeverExceedsAvailableStock() {
+        ReservationLedger ledger = new ReservationLedger(LONG_TTL);
+        assertTrue(ledger.reserve("a", good, 6));
+        assertEquals(4, ledger.available(good));
+        assertFalse(ledger.reserve("b", good, 5));
+        assertEquals(4, ledger.available(good));
+        assertTrue(ledger.reserve("b", good, 4));
+        assertEquals(0, ledger.available(good));
+        assertFalse(ledger.reserve("a", good, 1));
+    }
+
+    /**
+     * @brief 部分释放和全部释放都归还可用数量，释放超过预留的数量只释放已有部分
+     */
+    @Test
+    public void releaseReturnsQuantityToAvailable() {
+        ReservationLedger ledger = new ReservationLedger(LONG_TTL);
+        ledger.reserve("a", good, 5);
+        ledger.release("a", "g1", 2);
+        assertEquals(7, ledger.available(good));
+        ledger.release("a", "g1", 100);
+        assertEquals(STOCK, ledger.available(good));
+
+        ledger.reserve("a", good, 3);
+        ledger.reserve("b", good, 2);
+        ledger.releaseAll("a");
+        assertEquals(8, ledger.available(good));
+    }
+
+    /**
+     * @brief 过期的预留由 sweep 释放，结算前 ensure 按当前可用数量重新预留
+     */
+    @Test
+    public void expiredHoldsAreSweptAndReacquiredByEnsure() {
+        ReservationLedger ledger = new ReservationLedger(0); // 预留一创建即过期
+        ledger.reserve("a", good, 4);
+        ledger.reserve("b", good, 3);
+        assertEquals(3, ledger.available(good));
+        assertEquals(2, ledger.sweep());
+        assertEquals(STOCK, ledger.available(good));
+        assertEquals(0, ledger.sweep());
+
+        assertTrue(ledger.ensure("a", good, 4));
+        assertEquals(6, ledger.available(good));
+        assertFalse(ledger.ensure("b", good, 7));
+        assertEquals(6, ledger.available(good));
+    }
+
+    /**
+     * @brief ensure 在预留足够时不重复预留，不足时只补差额
+     */
+    @Test
+    public void ensureOnlyReservesTheShortfall() {
+        ReservationLedger ledger = new ReservationLedger(LONG_TTL);
+        ledger.reserve("a", good, 3);
+        assertTrue(ledger.ensure("a", good, 3));
+        assertEquals(7, ledger.available(good));
+        assertTrue(ledger.ensure("a", good, 5));
+        assertEquals(5, ledger.available(good));
+    }
+
+    /**
+     * @brief 提交成功后订单数量从预留中扣除，其余预留保持不变
+     */
+    @Test
+    public void commitAllConsumesHolds() {
+        ReservationLedger ledger = new ReservationLedger(LONG_TTL);
+        ledger.reserve("a", good, 5);
+        AtomicInteger commits = new AtomicInteger();
+        assertTrue(ledger.commitAll("a", order(3), () -> commits.incrementAndGet() > 0));
+        assertEquals(1, commits.get());
+        assertEquals(8, ledger.available(good)); // 剩余 2 件仍被预留
+        assertTrue(ledger.commitAll("a", order(2), () -> true));
+        assertEquals(STOCK, ledger.available(good));
+        assertFalse(ledger.commitAll("a", order(1), () -> true)); // 预留已全部用完
+    }
+
+    /**
+     * @brief 预留不足时不调用持久提交，提交失败时预留保持不变
+     */
+    @Test
+    public void failedCommitLeavesHoldsUntouched() {
+        ReservationLedger ledger = new ReservationLedger(LONG_TTL);
+        ledger.reserve("a", good, 2);
+        AtomicInteger commits = new AtomicInteger();
+        assertFalse(ledger.commitAll("a", order(3), () -> commits.incrementAndGet() > 0));
+        assertEquals(0, commits.get());
+        assertFalse(ledger.commitAll("b", order(1), () -> commits.incrementAndGet() > 0));
+        assertEquals(0, commits.get());
+
+        assertFalse(ledger.commitAll("a", order(2), () -> false));
+        assertEquals(8, ledger.available(good));
+        assertTrue(ledger.commitAll("a", order(2), () -> true));
+        assertEquals(STOCK, ledger.available(good));
+    }
+
+    /**
+     * @brief 构造只含测试商品的订单
+     * @param quantity 购买数量
+     * @return 商品到数量的映射
+     */
+    private static Map<Good, Integer> order(int quantity) {
+        return Collections.singletonMap(good, quantity);
+    }
+}
@@ -0,0 +1,76 @@
+package test.com.util;
+
+import main.com.model.Admin;
+import main.com.storage.StorageConfig;
+import main.com.util.AdminUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import test.com.bench.DatasetGenerator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @class AdminUtilTest
+ * @brief 管理员文件的读取和登录校验
+ * @details Admin.txt 第一行是表头，不能被当作用户名为 username、密码为 password 的管理员。
+ *          AdminUtil 在类初始化时读取数据目录，因此 shop.data.dir 在首次访问 AdminUtil 之前设置
+ */
+public class AdminUtilTest {
+    /** @brief 临时数据目录 */
+    private static File dir;
+
+    /**
+     * @brief 准备带表头的管理员文件
+     * @throws IOException 写入数据文件失败时抛出
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        dir = Files.createTempDirectory("shop-admin-test").toFile();
+        try (BufferedWriter bw = Files.newBufferedWriter(new File(dir, "Admin.txt").toPath(), StorageConfig.CHARSET)) {
+            bw.write("username,password");
+            bw.newLine();
+            bw.write("admin1,admin123");
+            bw.newLine();
+            bw.write("admin2,admin456");
+            bw.newLine();
+        }
+        System.setProperty("shop.data.dir", dir.getPath());
+    }
+
+    /**
+     * @brief 删除临时数据目录
+     */
+    @AfterClass
+    public static void tearDown() {
+        DatasetGenerator.delete(dir);
+    }
+
+    /**
+     * @brief 表头不会被读成管理员
+     */
+    @Test
+    public void headerIsNotAnAdmin() {
+        List<Admin> admins = AdminUtil.readAdminsFromTxt();
+        assertEquals(2, admins.size());
+        assertEquals("admin1", admins.get(0).getUsername());
+        assertFalse(AdminUtil.validateAdmin("username", "password"));
+    }
+
+    /**
+     * @brief 文件中的管理员可以登录，密码错误时登录失败
+     */
+    @Test
+    public void validatesListedAdmins() {
+        assertTrue(AdminUtil.validateAdmin("admin2", "admin456"));
+        assertFalse(AdminUtil.validateAdmin("admin2", "admin123"));
+    }
+}
@@ -0,0 +1,113 @@
+package test.com.util;
+
+import main.com.util.GoodsJournal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import test.com.bench.DatasetGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @class GoodsJournalTest
+ * @brief 组提交中追加写入流被关闭后的 fsync
+ * @details 测试线程先占住日志的 fsync 锁，让另一线程写入订单记录后在锁上等待，再通过重放关闭追加写入流，
+ *          模拟其他线程写入失败后截断日志的情形；等待的线程拿到锁时流已关闭，仍须 fsync 日志文件才能返回成功
+ */
+public class GoodsJournalTest {
+    /** @brief 临时目录 */
+    private File dir;
+    /** @brief 日志文件 */
+    private File file;
+    /** @brief 被测日志 */
+    private GoodsJournal journal;
+    /** @brief 执行 appendDurably 的线程 */
+    private ExecutorService executor;
+
+    /**
+     * @brief 准备空日志
+     * @throws IOException 创建临时目录失败时抛出
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("shop-goods-journal-test").toFile();
+        file = new File(dir, "goods_journal.txt");
+        journal = new GoodsJournal(file.getPath());
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * @brief 停止线程并删除临时目录
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        DatasetGenerator.delete(dir);
+    }
+
+    /**
+     * @brief 流被关闭后等待的线程重新打开文件 fsync，记录保留在日志中
+     * @throws Exception 等待线程失败时抛出
+     */
+    @Test
+    public void waiterSyncsAfterStreamClosed() throws Exception {
+        assertTrue(appendWhileStreamCloses(false));
+        assertEquals(1, journal.replay(record -> { }));
+    }
+
+    /**
+     * @brief 流被关闭后日志文件无法 fsync 时，等待的线程不能报告记录已落盘
+     * @throws Exception 等待线程失败时抛出
+     */
+    @Test
+    public void waiterFailsWhenJournalCannotBeSynced() throws Exception {
+        assertFalse(appendWhileStreamCloses(true));
+    }
+
+    /**
+     * @brief 写入一条订单记录，在其等待 fsync 锁期间关闭追加写入流
+     * @param deleteFile 关闭流后是否删除日志文件，使之后的 fsync 失败
+     * @return appendDurably 的返回值
+     * @throws Exception 等待线程失败时抛出
+     */
+    private boolean appendWhileStreamCloses(boolean deleteFile) throws Exception {
+        ReentrantLock syncLock = syncLock();
+        Future<Boolean> result;
+        syncLock.lock();
+        try {
+            result = executor.submit(() -> journal.appendDurably(GoodsJournal.PURCHASED, "o1"));
+            while (!syncLock.hasQueuedThreads()) {
+                Thread.sleep(1); // 等待记录写入后在 fsync 锁上排队
+            }
+            assertEquals(1, journal.replay(record -> { })); // 重放会关闭追加写入流
+            if (deleteFile) {
+                assertTrue(file.delete());
+            }
+        } finally {
+            syncLock.unlock();
+        }
+        return result.get();
+    }
+
+    /**
+     * @brief 取出日志的 fsync 锁
+     * @return fsync 锁
+     * @throws ReflectiveOperationException 字段不存在时抛出
+     */
+    private ReentrantLock syncLock() throws ReflectiveOperationException {
+        Field field = GoodsJournal.class.getDeclaredField("syncLock");
+        field.setAccessible(true);
+        return (ReentrantLock) field.get(journal);
+    }
+}
@@ -0,0 +1,135 @@
+package test.com.util;
+
+import main.com.storage.StorageConfig;
+import main.com.util.GoodsJournal;
+import main.com.util.TxtUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import test.com.bench.DatasetGenerator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @class OrderJournalTest
+ * @brief 商品日志中订单记录的重放和启动恢复
+ * @details 在临时数据目录中准备商品快照、购买记录和一份模拟崩溃后留下的日志，再初始化 TxtUtil：
+ *          有 O 无 P 的订单补写购买记录，有 A 的订单恢复库存，截短或校验和不符的 O 记录不生效。
+ *          TxtUtil 在类初始化时读取数据目录，因此 shop.data.dir 在首次访问 TxtUtil 之前设置，本类在独立的 JVM 中运行
+ */
+public class OrderJournalTest {
+    /** @brief 临时数据目录 */
+    private static File dir;
+    /** @brief 初始化时补写了购买记录的订单数 */
+    private static int recovered;
+
+    /**
+     * @brief 准备数据目录并初始化商品目录
+     * @throws IOException 写入数据文件失败时抛出
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        dir = Files.createTempDirectory("shop-journal-test").toFile();
+        write("goods.txt",
+                "id,name,description,price,stock,category",
+                "g1,苹果,红色,3.5,10,水果",
+                "g2,梨,白色,4.0,10,水果",
+                "g3,桃,粉色,5.0,10,水果");
+        write("purchases.txt", "carol,g3,4,o3,1700000000000");
+        write("goods_journal.txt",
+                order("o1", "alice", "g1", "2"),                        // 已提交，购买记录未写入
+                order("o2", "bob", "g2", "3"), "A,o2",                  // 已撤销
+                order("o3", "carol", "g3", "4"), "P,o3",                // 已完成
+                "O,o4,dave,g1,5,deadbeef",                              // 校验和不符
+                order("o5", "eve", "g2", "1", "g3", "1").replaceFirst(",[0-9a-f]+$", "")); // 写入中断，缺少校验和
+        System.setProperty("shop.data.dir", dir.getPath());
+        recovered = TxtUtil.initialize();
+    }
+
+    /**
+     * @brief 删除临时数据目录
+     */
+    @AfterClass
+    public static void tearDown() {
+        DatasetGenerator.delete(dir);
+    }
+
+    /**
+     * @brief 只有已提交而缺少购买记录的订单被补写
+     */
+    @Test
+    public void recoversOnlyCommittedOrdersWithoutPurchaseMarker() {
+        assertEquals(1, recovered);
+        assertEquals(Collections.singletonList("商品ID: g1, 数量: 2"), TxtUtil.getPurchasedGoodsByUser("alice"));
+        assertEquals(Collections.singletonList("商品ID: g3, 数量: 4"), TxtUtil.getPurchasedGoodsByUser("carol"));
+    }
+
+    /**
+     * @brief 已撤销的订单不扣减库存，也不补写购买记录
+     */
+    @Test
+    public void abortedOrderRestoresStock() {
+        assertEquals(10, TxtUtil.getGoodById("g2").getStock());
+        assertEquals(Collections.emptyList(), TxtUtil.getPurchasedGoodsByUser("bob"));
+    }
+
+    /**
+     * @brief 截短或校验和不符的订单记录被跳过
+     */
+    @Test
+    public void tornOrderRecordsAreNotReplayed() {
+        assertEquals(8, TxtUtil.getGoodById("g1").getStock());
+        assertEquals(6, TxtUtil.getGoodById("g3").getStock());
+        assertEquals(Collections.emptyList(), TxtUtil.getPurchasedGoodsByUser("dave"));
+        assertEquals(Collections.emptyList(), TxtUtil.getPurchasedGoodsByUser("eve"));
+    }
+
+    /**
+     * @brief 恢复后日志被压缩进快照，重新加载不会重复扣减库存
+     */
+    @Test
+    public void journalIsCompactedAfterRecovery() {
+        assertEquals(0, new File(dir, "goods_journal.txt").length());
+        TxtUtil.loadGoods();
+        assertEquals(8, TxtUtil.getGoodById("g1").getStock());
+        assertEquals(10, TxtUtil.getGoodById("g2").getStock());
+        assertEquals(6, TxtUtil.getGoodById("g3").getStock());
+    }
+
+    /**
+     * @brief 构造带校验和的 O 记录
+     * @param orderId 订单号
+     * @param username 用户名
+     * @param lines 依次为商品ID和数量
+     * @return 日志行
+     */
+    private static String order(String orderId, String username, String... lines) {
+        String[] fields = new String[3 + lines.length];
+        fields[0] = GoodsJournal.ORDER;
+        fields[1] = orderId;
+        fields[2] = username;
+        System.arraycopy(lines, 0, fields, 3, lines.length);
+        return String.join(",", fields) + "," + GoodsJournal.checksum(fields);
+    }
+
+    /**
+     * @brief 写入数据文件
+     * @param name 文件名
+     * @param lines 各行内容
+     * @throws IOException 写入失败时抛出
+     */
+    private static void write(String name, String... lines) throws IOException {
+        try (BufferedWriter bw = Files.newBufferedWriter(new File(dir, name).toPath(), StorageConfig.CHARSET)) {
+            for (String line : lines) {
+                bw.write(line);
+                bw.newLine();
+            }
+        }
+    }
+}